@@ -3,31 +3,39 @@ package ru.yandex.practicum.filmorate.aspect;
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.AfterReturning;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.annotation.Pointcut;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.model.Review;
-import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
+import ru.yandex.practicum.filmorate.storage.feed.FeedEventPipeline;
 
 import java.time.Instant;
 
+/**
+ * Аспект, публикующий события ленты после действий пользователя. Id сущности события берется из значения,
+ * возвращенного методом: id дружбы возвращает хранилище дружбы, отзыв - сервис отзывов, поэтому аспект
+ * не обращается к БД. События записываются в БД асинхронно через FeedEventPipeline, а событие изменения,
+ * выполненного в транзакции, публикуется только после ее фиксации, поэтому запрос пользователя
+ * не ждет записи события
+ */
 @Component
 @Aspect
 public class EventFeedAspect {
-    private final FeedStorage feedStorage;
+    private final FeedEventPipeline feedEventPipeline;
 
     @Autowired
-    public EventFeedAspect(FeedStorage feedStorage) {
-        this.feedStorage = feedStorage;
+    public EventFeedAspect(FeedEventPipeline feedEventPipeline) {
+        this.feedEventPipeline = feedEventPipeline;
     }
 
-    @Pointcut("execution(* ru.yandex.practicum.filmorate.service.UserService.addToFriends(Long, Long))")
+    @Pointcut("execution(* ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage.addToFriends(Long, Long))")
     public void executeEventFriendshipAdd() {
     }
 
-    @Pointcut("execution(* ru.yandex.practicum.filmorate.service.UserService.deleteFromFriends(Long, Long))")
+    @Pointcut("execution(* ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage.deleteFromFriends(Long, Long))")
     public void executeEventFriendshipDelete() {
     }
 
@@ -54,45 +62,18 @@ public class EventFeedAspect {
     /**
      * Метод для обработки события добавления в друзья
      */
-    @AfterReturning("executeEventFriendshipAdd()")
-    public void processingEventFriendshipAdd(JoinPoint joinPoint) {
-        //инициализация полей для объекта класса Feed
-        Long userId = (Long) joinPoint.getArgs()[0];
-        Long entityId = feedStorage.getFriendshipIdByUserId(userId, (Long) joinPoint.getArgs()[1]);
-        if (entityId != null) {
-            //запись в хранилище
-            feedStorage.createEvent(
-                    Feed.builder()
-                            .timestamp(getTimeNow())
-                            .userId(userId)
-                            .eventType("FRIEND")
-                            .operation("ADD")
-                            .entityId(entityId)
-                            .build()
-            );
-        }
+    @AfterReturning(pointcut = "executeEventFriendshipAdd()", returning = "friendshipId")
+    public void processingEventFriendshipAdd(JoinPoint joinPoint, Long friendshipId) {
+        publishFriendshipEvent(joinPoint, friendshipId, "ADD");
     }
 
     /**
-     * Метод для обработки события удаления из друзей
+     * Метод для обработки события удаления из друзей. Если пользователи не были друзьями, событие
+     * не публикуется
      */
-    @Before("executeEventFriendshipDelete()")
-    public void processingEventFriendshipDelete(JoinPoint joinPoint) {
-        //инициализация полей для объекта класса Feed
-        Long userId = (Long) joinPoint.getArgs()[0];
-        Long entityId = feedStorage.getFriendshipIdByUserId(userId, (Long) joinPoint.getArgs()[1]);
-        if (entityId != null) {
-            //запись в хранилище
-            feedStorage.createEvent(
-                    Feed.builder()
-                            .timestamp(getTimeNow())
-                            .userId(userId)
-                            .eventType("FRIEND")
-                            .operation("REMOVE")
-                            .entityId(entityId)
-                            .build()
-            );
-        }
+    @AfterReturning(pointcut = "executeEventFriendshipDelete()", returning = "friendshipId")
+    public void processingEventFriendshipDelete(JoinPoint joinPoint, Long friendshipId) {
+        publishFriendshipEvent(joinPoint, friendshipId, "REMOVE");
     }
 
     /**
@@ -102,8 +83,8 @@ public class EventFeedAspect {
     public void processingEventLikeAdd(JoinPoint joinPoint) {
         //инициализация полей для объекта класса Feed
         Long userId = (Long) joinPoint.getArgs()[1];
-        //запись в хранилище
-        feedStorage.createEvent(
+        //публикация для записи в хранилище
+        feedEventPipeline.publish(
                 Feed.builder()
                         .timestamp(getTimeNow())
                         .userId(userId)
@@ -120,8 +101,8 @@ public class EventFeedAspect {
     @AfterReturning("executeEventLikeDelete()")
     public void processingEventLikeDelete(JoinPoint joinPoint) {
         Long userId = (Long) joinPoint.getArgs()[1];
-        //запись в хранилище
-        feedStorage.createEvent(
+        //публикация для записи в хранилище
+        feedEventPipeline.publish(
                 Feed.builder()
                         .timestamp(getTimeNow())
                         .userId(userId)
@@ -135,47 +116,59 @@ public class EventFeedAspect {
     /**
      * Метод для обработки события добавления отзыва или обновление отзыва
      */
-    @AfterReturning("executeEventReviewAdd() || executeEventReviewUpdate()")
-    public void processingEventReviewAddOrUpdate(JoinPoint joinPoint) {
-        //инициализация полей для объекта класса Feed
-        Long userId = ((Review) joinPoint.getArgs()[0]).getUserId();
-        String operation = (joinPoint.getSignature().getName().equals("addToFriends")) ? "ADD" : "UPDATE";
-        Long entityId = feedStorage.getReviewIdByUserId(userId, ((Review) joinPoint.getArgs()[0]).getFilmId());
-        if (entityId != null) {
-            //запись в хранилище
-            feedStorage.createEvent(
-                    Feed.builder()
-                            .timestamp(getTimeNow())
-                            .userId(userId)
-                            .eventType("REVIEW")
-                            .operation(operation)
-                            .entityId(entityId)
-                            .build()
-            );
-        }
+    @AfterReturning(pointcut = "executeEventReviewAdd() || executeEventReviewUpdate()", returning = "review")
+    public void processingEventReviewAddOrUpdate(JoinPoint joinPoint, Review review) {
+        String operation = joinPoint.getSignature().getName().equals("create") ? "ADD" : "UPDATE";
+        publishReviewEvent(review, operation);
     }
 
     /**
      * Метод для обработки события удаление отзыва
      */
-    @Before("executeEventReviewDelete()")
-    public void processingEventReviewDelete(JoinPoint joinPoint) {
+    @AfterReturning(pointcut = "executeEventReviewDelete()", returning = "review")
+    public void processingEventReviewDelete(Review review) {
+        publishReviewEvent(review, "REMOVE");
+    }
+
+    private void publishFriendshipEvent(JoinPoint joinPoint, Long friendshipId, String operation) {
+        if (friendshipId == null) {
+            return;
+        }
         //инициализация полей для объекта класса Feed
-        long timestamp = getTimeNow();
-        Long userId = (Long) joinPoint.getArgs()[0];
-        Long entityId = feedStorage.getReviewIdByUserId(userId, (Long) joinPoint.getArgs()[0]);
-        if (entityId != null) {
-            //запись в хранилище
-            feedStorage.createEvent(
-                    Feed.builder()
-                            .timestamp(timestamp)
-                            .userId(userId)
-                            .eventType("REVIEW")
-                            .operation("REMOVE")
-                            .entityId(entityId)
-                            .build()
-            );
+        Feed feed = Feed.builder()
+                .timestamp(getTimeNow())
+                .userId((Long) joinPoint.getArgs()[0])
+                .eventType("FRIEND")
+                .operation(operation)
+                .entityId(friendshipId)
+                .build();
+        //публикация для записи в хранилище после фиксации транзакции хранилища дружбы
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    feedEventPipeline.publish(feed);
+                }
+            });
+        } else {
+            feedEventPipeline.publish(feed);
+        }
+    }
+
+    private void publishReviewEvent(Review review, String operation) {
+        if (review == null) {
+            return;
         }
+        //публикация для записи в хранилище
+        feedEventPipeline.publish(
+                Feed.builder()
+                        .timestamp(getTimeNow())
+                        .userId(review.getUserId())
+                        .eventType("REVIEW")
+                        .operation(operation)
+                        .entityId(review.getId())
+                        .build()
+        );
     }
 
     private long getTimeNow() {
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Конфигурация работы с БД. Все хранилища работают через JdbcTemplate, поэтому транзакциями управляет
+ * DataSourceTransactionManager, а не менеджер транзакций JPA
+ */
+@Configuration
+public class JdbcConfig {
+
+    @Bean
+    public PlatformTransactionManager transactionManager(DataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
+    }
+}
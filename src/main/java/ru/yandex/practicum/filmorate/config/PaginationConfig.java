@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.config;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Настройки постраничной выдачи списков. Постраничная выдача включается параметром limit,
+ * запросы без него возвращают списки целиком
+ */
+@Component
+@Getter
+public class PaginationConfig {
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public PaginationConfig(@Value("${filmorate.pagination.default-limit:100}") int defaultLimit,
+                            @Value("${filmorate.pagination.max-limit:1000}") int maxLimit) {
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Метод для приведения запрошенного размера страницы к допустимому диапазону
+     */
+    public int limit(Integer requested) {
+        if (requested == null) {
+            return defaultLimit;
+        }
+        return Math.max(1, Math.min(requested, maxLimit));
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.service.ExportService;
+
+/**
+ * Класс-контроллер для потоковой выгрузки каталога в формате NDJSON
+ */
+@RestController
+@Slf4j
+@RequiredArgsConstructor
+@RequestMapping("/export")
+public class ExportController {
+    private final ExportService exportService;
+
+    /**
+     * Метод для выгрузки всех фильмов
+     */
+    @GetMapping(value = "/films", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        log.debug("Входящий запрос на выгрузку всех фильмов");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(exportService::exportFilms);
+    }
+
+    /**
+     * Метод для выгрузки всех пользователей
+     */
+    @GetMapping(value = "/users", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        log.debug("Входящий запрос на выгрузку всех пользователей");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(exportService::exportUsers);
+    }
+
+    /**
+     * Метод для выгрузки всех лайков фильмов
+     */
+    @GetMapping(value = "/likes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportLikes() {
+        log.debug("Входящий запрос на выгрузку всех лайков");
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(exportService::exportLikes);
+    }
+}
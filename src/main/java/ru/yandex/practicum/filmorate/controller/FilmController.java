@@ -3,12 +3,19 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.config.PaginationConfig;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.InvalidCountException;
+import ru.yandex.practicum.filmorate.exception.InvalidCursorException;
+import ru.yandex.practicum.filmorate.exception.UnknownSimilarFilmsSourceException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
 
 import java.util.List;
 
@@ -21,6 +28,7 @@ import java.util.List;
 @RequestMapping("/films")
 public class FilmController {
     private final FilmService filmService;
+    private final PaginationConfig paginationConfig;
 
     public FilmService getFilmService() {
         return filmService;
@@ -35,6 +43,17 @@ public class FilmController {
         return filmService.getAll();
     }
 
+    /**
+     * Метод для получения страницы фильмов. Курсор следующей страницы возвращается в заголовке X-Next-Cursor
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<List<Film>> getPage(@RequestParam Integer limit, @RequestParam(required = false) String after)
+            throws InvalidCursorException {
+        log.debug("Входящий запрос на получение страницы фильмов, limit = {}, after = {}", limit, after);
+        List<Film> films = filmService.getPage(PageCursor.decode(after), limit);
+        return PageResponse.of(films, paginationConfig.limit(limit), PageResponse.lastId(Film::getId));
+    }
+
     /**
      * Метод для создания фильма
      */
@@ -65,6 +84,18 @@ public class FilmController {
         return filmService.getById(filmId);
     }
 
+    /**
+     * Метод для получения count фильмов, похожих на фильм. По умолчанию (source=likes) это фильмы, которые
+     * чаще всего лайкают вместе с фильмом, при source=embeddings - фильмы с близкими векторами модели ALS
+     */
+    @GetMapping("/{filmId}/similar")
+    public List<Film> getSimilarFilms(@PathVariable Long filmId, @RequestParam(defaultValue = "10") int count,
+                                      @RequestParam(defaultValue = "likes") String source)
+            throws FilmNotFoundException, InvalidCountException, UnknownSimilarFilmsSourceException {
+        log.debug("Входящий запрос на получение {} фильмов, похожих на фильм с id = {}", count, filmId);
+        return filmService.getSimilarFilms(filmId, count, source);
+    }
+
     /**
      * Метод для проставления лайка фильму пользователем
      */
@@ -76,7 +107,7 @@ public class FilmController {
     }
 
     // /common?userId={userId}&friendId={friendId}
-    @GetMapping("/common")
+    @GetMapping(value = "/common", params = {"userId", "friendId"})
     public List<Film> getCommonFilms(@RequestParam long userId, @RequestParam long friendId)
             throws UserNotFoundException {
         log.debug("Входящий запрос на получение общих с другом фильмов с сортировкой " +
@@ -84,6 +115,18 @@ public class FilmController {
         return filmService.getCommonFilms(userId, friendId);
     }
 
+    /**
+     * Метод для получения фильмов, которые лайкнули не менее min пользователей группы, с сортировкой
+     * по их популярности. По умолчанию min равен размеру группы
+     */
+    @GetMapping(value = "/common", params = "userIds")
+    public List<Film> getGroupCommonFilms(@RequestParam List<Long> userIds, @RequestParam(required = false) Integer min)
+            throws UserNotFoundException, InvalidCountException {
+        log.debug("Входящий запрос на получение фильмов, которые лайкнули не менее {} из пользователей {}",
+                min, userIds);
+        return filmService.getCommonFilms(userIds, min);
+    }
+
     /**
      * Метод для удаления лайка фильму пользователем
      */
@@ -103,6 +146,15 @@ public class FilmController {
         return filmService.getCountFilms(count);
     }
 
+    /**
+     * Метод для получения статистики кэша фильмов: попадания, промахи и вытеснения
+     */
+    @GetMapping("/cache/stats")
+    public FilmCache.Stats getCacheStats() {
+        log.debug("Входящий запрос на получение статистики кэша фильмов");
+        return filmService.getCacheStats();
+    }
+
     /**
      * Метод удаления фильма по id
      */
@@ -122,6 +174,15 @@ public class FilmController {
         return new ErrorResponse(e.getMessage());
     }
 
+    /**
+     * Обработка ошибки, если запрошен неизвестный источник похожих фильмов
+     */
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleUnknownSimilarFilmsSource(final UnknownSimilarFilmsSourceException e) {
+        return new ErrorResponse(e.getMessage());
+    }
+
     /**
      * Обработка ошибки сервера
      */
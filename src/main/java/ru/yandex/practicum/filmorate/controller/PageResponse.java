@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.model.PageCursor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Класс для формирования ответа с постраничной выдачей. Тело ответа - список элементов страницы,
+ * курсор следующей страницы передается в заголовке X-Next-Cursor. Если заголовка нет, страница последняя
+ */
+public final class PageResponse {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private PageResponse() {
+    }
+
+    public static <T> ResponseEntity<List<T>> of(List<T> page, int limit, Function<List<T>, PageCursor> cursorOf) {
+        if (page.isEmpty() || page.size() < limit) {
+            return ResponseEntity.ok(page);
+        }
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, cursorOf.apply(page).encode())
+                .body(page);
+    }
+
+    /**
+     * Курсор по id последнего элемента страницы
+     */
+    public static <T> Function<List<T>, PageCursor> lastId(Function<T, Long> idOf) {
+        return page -> PageCursor.builder().id(idOf.apply(page.get(page.size() - 1))).build();
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.yandex.practicum.filmorate.exception.InvalidCountException;
+import ru.yandex.practicum.filmorate.exception.InvalidCursorException;
+
+/**
+ * Класс для обработки ошибок постраничной выдачи, общих для всех контроллеров со списками
+ */
+@RestControllerAdvice
+public class PaginationExceptionHandler {
+    /**
+     * Обработка ошибки, если передан некорректный курсор постраничной выдачи
+     */
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleInvalidCursor(final InvalidCursorException e) {
+        return new ErrorResponse(e.getMessage());
+    }
+
+    /**
+     * Обработка ошибки, если запрошено некорректное количество элементов списка
+     */
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleInvalidCount(final InvalidCountException e) {
+        return new ErrorResponse(e.getMessage());
+    }
+}
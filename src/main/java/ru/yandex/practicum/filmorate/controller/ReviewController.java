@@ -3,8 +3,10 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.exception.*;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.service.ReviewService;
 
@@ -61,14 +63,24 @@ public class ReviewController {
     }
 
     /**
-     * Метод для получения всех отзывов для фильма по его id. Если фильм не найден, то возвращается 400 ошибка
+     * Метод для получения всех отзывов для фильма по его id. Если фильм не найден, то возвращается 400 ошибка.
+     * Отзывы выдаются по убыванию полезности страницами по count штук, курсор следующей страницы
+     * возвращается в заголовке X-Next-Cursor
      */
     @GetMapping()
-    public List<Review> getReviewsForFilm(@RequestParam(required = false) Long filmId,
-                                          @RequestParam(defaultValue = "10") int count)
-            throws FilmNotFoundException {
+    public ResponseEntity<List<Review>> getReviewsForFilm(@RequestParam(required = false) Long filmId,
+                                                          @RequestParam(defaultValue = "10") int count,
+                                                          @RequestParam(required = false) String after)
+            throws FilmNotFoundException, InvalidCursorException {
         log.debug("Входящий запрос на получение первых {} отзывов на фильм с id = {}", count, filmId);
-        return reviewService.getReviewsForFilm(filmId, count);
+        List<Review> reviews = reviewService.getReviewsPage(filmId, PageCursor.decode(after), count);
+        return PageResponse.of(reviews, count, page -> {
+            Review last = page.get(page.size() - 1);
+            return PageCursor.builder()
+                    .id(last.getId())
+                    .sortValue(last.getUseful())
+                    .build();
+        });
     }
 
     /**
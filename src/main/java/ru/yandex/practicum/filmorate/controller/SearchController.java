@@ -3,8 +3,13 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.config.PaginationConfig;
+import ru.yandex.practicum.filmorate.exception.InvalidCursorException;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.service.SearchService;
 
 import java.util.List;
@@ -15,6 +20,7 @@ import java.util.List;
 @RequestMapping("/search")
 public class SearchController {
     private final SearchService searchService;
+    private final PaginationConfig paginationConfig;
 
     @GetMapping
     public List<Film> findFilmByParam(@RequestParam String query,
@@ -23,6 +29,18 @@ public class SearchController {
         return searchService.searchFilmByParam(query, by);
     }
 
+    @GetMapping(params = "limit")
+    public ResponseEntity<List<Film>> findFilmPageByParam(@RequestParam String query,
+                                                          @RequestParam List<String> by,
+                                                          @RequestParam Integer limit,
+                                                          @RequestParam(required = false) String after)
+            throws InvalidCursorException {
+        log.debug(String.format("Запрос на поиск фильмов по параметрам: query = %s, by = %s, limit = %s, after = %s",
+                query, by, limit, after));
+        CursorPage<Film> films = searchService.searchFilmByParam(query, by, PageCursor.decode(after), limit);
+        return PageResponse.of(films.getItems(), paginationConfig.limit(limit), page -> films.getLastCursor());
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleUnsupportedException(final UnsupportedOperationException e) {
@@ -3,13 +3,20 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.config.PaginationConfig;
+import ru.yandex.practicum.filmorate.exception.InvalidCursorException;
+import ru.yandex.practicum.filmorate.exception.UnknownRecommendationAlgorithmException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.PageCursor;
+import ru.yandex.practicum.filmorate.model.Recommendations;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.recommendations.RecommendationCache;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -23,6 +30,7 @@ import java.util.stream.Collectors;
 @RequestMapping("/users")
 public class UserController {
     private final UserService userService;
+    private final PaginationConfig paginationConfig;
 
     public UserService getUserService() {
         return userService;
@@ -76,6 +84,31 @@ public class UserController {
         return userService.getFriendsForUser(userId);
     }
 
+    /**
+     * Метод для получения страницы друзей пользователя. Курсор следующей страницы возвращается
+     * в заголовке X-Next-Cursor
+     */
+    @GetMapping(value = "/{userId}/friends", params = "limit")
+    public ResponseEntity<List<User>> getFriendsPage(@PathVariable Long userId, @RequestParam Integer limit,
+                                                     @RequestParam(required = false) String after)
+            throws UserNotFoundException, InvalidCursorException {
+        log.debug("Входящий запрос на получения страницы друзей для пользователя с id = {}, limit = {}, after = {}",
+                userId, limit, after);
+        List<User> friends = userService.getFriendsForUser(userId, PageCursor.decode(after), limit);
+        return PageResponse.of(friends, paginationConfig.limit(limit), PageResponse.lastId(User::getId));
+    }
+
+    /**
+     * Метод для получения возможных друзей пользователя, упорядоченных по убыванию количества общих друзей
+     */
+    @GetMapping("/{userId}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable Long userId, @RequestParam(defaultValue = "10") Integer limit)
+            throws UserNotFoundException {
+        log.debug("Входящий запрос на получение возможных друзей для пользователя с id = {}, limit = {}",
+                userId, limit);
+        return userService.getFriendSuggestions(userId, limit);
+    }
+
     /**
      * Метод для получения списка событий у пользователя
      */
@@ -106,6 +139,17 @@ public class UserController {
         return userService.getAll();
     }
 
+    /**
+     * Метод для получения страницы пользователей. Курсор следующей страницы возвращается в заголовке X-Next-Cursor
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<List<User>> getPage(@RequestParam Integer limit, @RequestParam(required = false) String after)
+            throws InvalidCursorException {
+        log.debug("Входящий запрос на получение страницы пользователей, limit = {}, after = {}", limit, after);
+        List<User> users = userService.getPage(PageCursor.decode(after), limit);
+        return PageResponse.of(users, paginationConfig.limit(limit), PageResponse.lastId(User::getId));
+    }
+
     /**
      * Метод для создания нового пользователя
      */
@@ -136,6 +180,15 @@ public class UserController {
         return new ErrorResponse(e.getMessage());
     }
 
+    /**
+     * Обработка ошибки, если запрошен неизвестный способ подбора рекомендаций
+     */
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ErrorResponse handleUnknownRecommendationAlgorithm(final UnknownRecommendationAlgorithmException e) {
+        return new ErrorResponse(e.getMessage());
+    }
+
     /**
      * Обработка ошибки сервера
      */
@@ -147,11 +200,31 @@ public class UserController {
 
     /**
      * Метод для получения рекомендаций для пользователя
-     * Выводит топ 10 рекомендаций, отсортированные по убыванию количества лайков
+     * Выводит топ 10 рекомендаций, отсортированные по убыванию количества лайков.
+     * Время с момента подбора рекомендаций в секундах возвращается в заголовке X-Recommendations-Age,
+     * признак того, что рекомендации ожидают пересчета, - в заголовке X-Recommendations-Stale.
+     * Способ подбора можно выбрать параметром algorithm (neighbours или als), по умолчанию используется
+     * способ из настроек. Фактически использованный способ возвращается в заголовке X-Recommendations-Algorithm
      */
     @GetMapping("/{id}/recommendations")
-    public List<Film> getRecomendation(@PathVariable Long id) {
+    public ResponseEntity<List<Film>> getRecomendation(@PathVariable Long id,
+                                                       @RequestParam(required = false) String algorithm)
+            throws UnknownRecommendationAlgorithmException {
         log.debug("Входящий запрос на получение рекомендаций");
-        return userService.getRecommendation(id);
+        Recommendations recommendations = userService.getRecommendations(id, algorithm);
+        return ResponseEntity.ok()
+                .header("X-Recommendations-Age", String.valueOf(recommendations.getAge().toSeconds()))
+                .header("X-Recommendations-Stale", String.valueOf(recommendations.isStale()))
+                .header("X-Recommendations-Algorithm", recommendations.getAlgorithm().getName())
+                .body(recommendations.getFilms());
+    }
+
+    /**
+     * Метод для получения статистики кэша рекомендаций и очереди их пересчета
+     */
+    @GetMapping("/recommendations/stats")
+    public RecommendationCache.Stats getRecommendationCacheStats() {
+        log.debug("Входящий запрос на получение статистики кэша рекомендаций");
+        return userService.getRecommendationCacheStats();
     }
 }
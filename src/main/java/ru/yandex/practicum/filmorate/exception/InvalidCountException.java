@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.exception;
+
+/**
+ * Класс, описывающий исключение, если запрошено некорректное количество элементов списка
+ */
+public class InvalidCountException extends Exception {
+    public InvalidCountException(String message) {
+        super(message);
+    }
+}
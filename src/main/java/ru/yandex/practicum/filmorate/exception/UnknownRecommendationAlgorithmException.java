@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.exception;
+
+/**
+ * Класс, описывающий исключение, если запрошен неизвестный способ подбора рекомендаций
+ */
+public class UnknownRecommendationAlgorithmException extends Exception {
+    public UnknownRecommendationAlgorithmException(String message) {
+        super(message);
+    }
+}
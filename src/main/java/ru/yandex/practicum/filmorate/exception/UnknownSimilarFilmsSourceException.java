@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.exception;
+
+/**
+ * Класс, описывающий исключение, если запрошен неизвестный источник похожих фильмов
+ */
+public class UnknownSimilarFilmsSourceException extends Exception {
+    public UnknownSimilarFilmsSourceException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Класс, описывающий страницу списка вместе с курсором ее последнего элемента. Используется, когда значение
+ * поля сортировки известно только хранилищу и не может быть восстановлено по элементам страницы
+ */
+@Getter
+@RequiredArgsConstructor
+public class CursorPage<T> {
+    private final List<T> items;
+    private final PageCursor lastCursor;
+}
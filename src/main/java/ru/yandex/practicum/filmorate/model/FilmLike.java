@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Класс, описывающий лайк фильма от пользователя
+ */
+@Data
+@Builder
+public class FilmLike {
+    private Long userId;
+    private Long filmId;
+}
@@ -1,14 +1,17 @@
 package ru.yandex.practicum.filmorate.model;
 
 import lombok.Builder;
-import lombok.Data;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
 /**
- * Класс, описывающий сущность жанр
+ * Класс, описывающий сущность жанр. Объекты неизменяемые, поэтому один экземпляр из справочника
+ * можно отдавать всем фильмам
  */
-@Data
+@Value
 @Builder
+@Jacksonized
 public class Genre {
-    private int id;
-    private String name;
+    int id;
+    String name;
 }
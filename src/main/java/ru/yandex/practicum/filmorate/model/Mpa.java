@@ -1,14 +1,17 @@
 package ru.yandex.practicum.filmorate.model;
 
 import lombok.Builder;
-import lombok.Data;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
 /**
- * Класс, описывающий рейтинг фильмов mpa
+ * Класс, описывающий рейтинг фильмов mpa. Объекты неизменяемые, поэтому один экземпляр из справочника
+ * можно отдавать всем фильмам
  */
-@Data
+@Value
 @Builder
+@Jacksonized
 public class Mpa {
-    private int id;
-    private String name;
+    int id;
+    String name;
 }
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.yandex.practicum.filmorate.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Класс, описывающий курсор постраничной выдачи. Курсор хранит ключ последнего элемента страницы:
+ * id и, если список сортируется не по id, значение поля сортировки. Клиенту курсор передается
+ * в закодированном виде и не предназначен для разбора на его стороне
+ */
+@Data
+@Builder
+public class PageCursor {
+    private Long id;
+    private Long sortValue;
+
+    /**
+     * Метод для кодирования курсора в строку
+     */
+    public String encode() {
+        String value = id + ":" + (sortValue == null ? "" : sortValue);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Метод для восстановления курсора из строки. Для пустой строки возвращается null - первая страница
+     */
+    public static PageCursor decode(String value) throws InvalidCursorException {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8)
+                    .split(":", -1);
+            if (parts.length != 2) {
+                throw new InvalidCursorException("Некорректный курсор: " + value);
+            }
+            return PageCursor.builder()
+                    .id(Long.parseLong(parts[0]))
+                    .sortValue(parts[1].isEmpty() ? null : Long.parseLong(parts[1]))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Некорректный курсор: " + value);
+        }
+    }
+}
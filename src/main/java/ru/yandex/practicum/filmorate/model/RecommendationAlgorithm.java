@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Способ подбора рекомендаций: по похожим пользователям или по модели матричного разложения лайков
+ */
+public enum RecommendationAlgorithm {
+    NEIGHBOURS("neighbours"),
+    ALS("als");
+
+    private final String name;
+
+    RecommendationAlgorithm(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Метод для получения способа подбора по названию из настройки или параметра запроса
+     */
+    public static Optional<RecommendationAlgorithm> byName(String name) {
+        return Arrays.stream(values())
+                .filter(algorithm -> algorithm.name.equalsIgnoreCase(name))
+                .findFirst();
+    }
+}
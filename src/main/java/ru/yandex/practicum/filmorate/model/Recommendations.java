@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Рекомендации фильмов для пользователя: фильмы, время с момента подбора, признак того,
+ * что рекомендации устарели и ожидают пересчета, и способ, которым они подобраны
+ */
+@Data
+@Builder
+public class Recommendations {
+    private List<Film> films;
+    private Duration age;
+    private boolean stale;
+    private RecommendationAlgorithm algorithm;
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.storage.export.ExportStorage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Класс-сервис, отвечающий за выгрузку каталога в формате NDJSON (один JSON-объект на строку).
+ * Каждый объект пишется в выходной поток сразу после чтения из БД. Если клиент читает медленно, запись
+ * в поток блокируется и вместе с ней приостанавливается чтение из БД. Если клиент отключился, запись
+ * завершается ошибкой, выгрузка прерывается и соединение с БД освобождается
+ */
+@Service
+@Slf4j
+public class ExportService {
+    private final ExportStorage exportStorage;
+    private final ObjectWriter writer;
+    private final int flushEvery;
+
+    public ExportService(ExportStorage exportStorage, ObjectMapper objectMapper,
+                         @Value("${filmorate.export.flush-every:500}") int flushEvery) {
+        this.exportStorage = exportStorage;
+        this.writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator((String) null);
+        this.flushEvery = flushEvery;
+    }
+
+    /**
+     * Метод для выгрузки всех фильмов
+     */
+    public void exportFilms(OutputStream out) {
+        export(out, "film", exportStorage::streamFilms);
+    }
+
+    /**
+     * Метод для выгрузки всех пользователей
+     */
+    public void exportUsers(OutputStream out) {
+        export(out, "users", exportStorage::streamUsers);
+    }
+
+    /**
+     * Метод для выгрузки всех лайков фильмов
+     */
+    public void exportLikes(OutputStream out) {
+        export(out, "user_film_likes", exportStorage::streamLikes);
+    }
+
+    private <T> void export(OutputStream out, String table, Consumer<Consumer<T>> source) {
+        long[] written = new long[1];
+        try (JsonGenerator generator = writer.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            source.accept(item -> {
+                try {
+                    writer.writeValue(generator, item);
+                    generator.writeRaw('\n');
+                    if (++written[0] % flushEvery == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+            log.debug("Выгрузка {} завершена, записано строк: {}", table, written[0]);
+        } catch (UncheckedIOException e) {
+            log.warn("Выгрузка {} прервана после {} строк: {}", table, written[0], e.getCause().getMessage());
+        } catch (IOException e) {
+            // ошибка последней записи или закрытия генератора, если клиент отключился после чтения всех строк
+            log.warn("Выгрузка {} прервана после {} строк: {}", table, written[0], e.getMessage());
+        }
+    }
+}
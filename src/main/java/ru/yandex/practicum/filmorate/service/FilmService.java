@@ -2,21 +2,31 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.config.PaginationConfig;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.InvalidCountException;
+import ru.yandex.practicum.filmorate.exception.UnknownSimilarFilmsSourceException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 import ru.yandex.practicum.filmorate.storage.genrefilm.FilmGenreStorage;
+import ru.yandex.practicum.filmorate.storage.leaderboard.FilmLeaderboard;
+import ru.yandex.practicum.filmorate.storage.recommendations.FilmEmbeddingIndex;
+import ru.yandex.practicum.filmorate.storage.recommendations.LikeBitmapIndex;
+import ru.yandex.practicum.filmorate.storage.recommendations.SimilarFilmsIndex;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 import ru.yandex.practicum.filmorate.storage.userfilmlikes.UserFilmLikesStorage;
 
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Класс-сервис, отвечающий за логику работы с фильмами
@@ -24,21 +34,43 @@ import java.util.*;
 @Service
 @Slf4j
 public class FilmService {
+    /**
+     * Количество популярных фильмов тех же жанров, по которым вычисляется вектор нового фильма
+     */
+    private static final int COLD_START_FILMS = 100;
+
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
     private final UserFilmLikesStorage userFilmLikesStorage;
     private final FilmGenreStorage filmGenreStorage;
-    private final GenreStorage genreStorage;
+    private final FilmLeaderboard filmLeaderboard;
+    private final boolean leaderboardEnabled;
+    private final PaginationConfig paginationConfig;
+    private final FilmCache filmCache;
+    private final LikeBitmapIndex likeBitmapIndex;
+    private final SimilarFilmsIndex similarFilmsIndex;
+    private final FilmEmbeddingIndex filmEmbeddingIndex;
 
     public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
                        @Qualifier("userDbStorage") UserStorage userStorage,
                        @Qualifier("userFilmLikesDbStorage") UserFilmLikesStorage userFilmLikesStorage,
-                       FilmGenreStorage filmGenreStorage, GenreStorage genreStorage) {
+                       FilmGenreStorage filmGenreStorage,
+                       FilmLeaderboard filmLeaderboard,
+                       @Value("${filmorate.popular.leaderboard-enabled:true}") boolean leaderboardEnabled,
+                       PaginationConfig paginationConfig, FilmCache filmCache,
+                       LikeBitmapIndex likeBitmapIndex, SimilarFilmsIndex similarFilmsIndex,
+                       FilmEmbeddingIndex filmEmbeddingIndex) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
         this.userFilmLikesStorage = userFilmLikesStorage;
         this.filmGenreStorage = filmGenreStorage;
-        this.genreStorage = genreStorage;
+        this.filmLeaderboard = filmLeaderboard;
+        this.leaderboardEnabled = leaderboardEnabled;
+        this.paginationConfig = paginationConfig;
+        this.filmCache = filmCache;
+        this.likeBitmapIndex = likeBitmapIndex;
+        this.similarFilmsIndex = similarFilmsIndex;
+        this.filmEmbeddingIndex = filmEmbeddingIndex;
     }
 
     public FilmStorage getFilmStorage() {
@@ -53,7 +85,15 @@ public class FilmService {
     }
 
     /**
-     * Метод создания нового фильма. Перед добавлением фильм валидируется
+     * Метод для получения страницы фильмов после фильма из курсора
+     */
+    public List<Film> getPage(PageCursor after, Integer limit) {
+        return filmStorage.getPage(after, paginationConfig.limit(limit));
+    }
+
+    /**
+     * Метод создания нового фильма. Перед добавлением фильм валидируется. Фильм с жанрами добавляется
+     * в индекс векторов фильмов с вектором, усредненным по популярным фильмам тех же жанров
      */
     public Film create(Film film) throws ValidationException, FilmNotFoundException {
         validate(film);
@@ -64,6 +104,14 @@ public class FilmService {
                 filmGenreStorage.create(film.getId(), genre.getId());
             }
         }
+        filmLeaderboard.putFilm(film.getId(), film.getName());
+        if (film.getGenres() != null && !film.getGenres().isEmpty() && filmEmbeddingIndex.isReady()) {
+            List<Integer> genreIds = new ArrayList<>();
+            for (Genre genre : film.getGenres()) {
+                genreIds.add(genre.getId());
+            }
+            filmEmbeddingIndex.addFilm(film.getId(), filmGenreStorage.getPopularFilmIds(genreIds, COLD_START_FILMS));
+        }
         return film;
     }
 
@@ -71,7 +119,7 @@ public class FilmService {
      * Метод редактирования существующего фильма. Перед редактированием новый объект фильма валидируется
      */
     public Film update(Film film) throws ValidationException, FilmNotFoundException {
-        if (filmStorage.getById(film.getId()) != null) {
+        if (filmStorage.findById(film.getId()).isPresent()) {
             validate(film);
             filmGenreStorage.deleteByFilmId(film.getId());
             filmStorage.update(film);
@@ -80,6 +128,7 @@ public class FilmService {
                     filmGenreStorage.create(film.getId(), genre.getId());
                 }
             }
+            filmLeaderboard.putFilm(film.getId(), film.getName());
             return film;
         } else {
             throw new FilmNotFoundException("Film with id = " + film.getId() + " not found");
@@ -90,55 +139,74 @@ public class FilmService {
      * Метод удаления фильма
      */
     public void delete(Long id) throws FilmNotFoundException {
-        if (filmStorage.getById(id) != null) {
+        if (filmStorage.findById(id).isPresent()) {
             filmStorage.delete(id);
+            filmLeaderboard.removeFilm(id);
+            likeBitmapIndex.removeFilm(id);
         } else {
             throw new FilmNotFoundException("Film with id = " + id + " not found");
         }
     }
 
     /**
-     * Метод получения фильма по его id
+     * Метод получения фильма по его id. Фильм загружается вместе с лайками и жанрами одним запросом
      */
     public Film getById(Long filmId) throws FilmNotFoundException {
-        final Film film = filmStorage.getById(filmId);
-        if (film == null) {
-            throw new FilmNotFoundException("Film with id = " + filmId + " not found");
-        } else {
-            TreeSet<Integer> genresId = filmGenreStorage.getByFilmId(filmId);
-            LinkedHashSet<Genre> genres = new LinkedHashSet<>();
-            if (!genresId.isEmpty()) {
-                for (Integer genreId : genresId) {
-                    genres.add(genreStorage.getById(genreId));
-                }
-                film.setGenres(genres);
-            } else {
-                film.setGenres(null);
-            }
-        }
-        return film;
+        return filmStorage.findById(filmId)
+                .orElseThrow(() -> new FilmNotFoundException("Film with id = " + filmId + " not found"));
     }
 
     /**
-     * Метод для получения списка первых count фильмов в порядке убывания количества лайков
+     * Метод для получения списка первых count фильмов в порядке убывания количества лайков.
+     * Если рейтинг популярности в памяти отключен, фильмы сортируются запросом к БД
      */
     public List<Film> getCountFilms(int count) {
+        if (leaderboardEnabled) {
+            return userFilmLikesStorage.getByIds(filmLeaderboard.getTop(count));
+        }
         return userFilmLikesStorage.getCount(count);
     }
 
+    /**
+     * Метод для получения не более count похожих фильмов по источнику: likes - фильмы, которые чаще всего
+     * лайкают вместе с фильмом, по модели в памяти; embeddings - по близости векторов фильмов модели ALS
+     * в индексе HNSW
+     */
+    public List<Film> getSimilarFilms(Long filmId, int count, String source) throws FilmNotFoundException,
+            InvalidCountException, UnknownSimilarFilmsSourceException {
+        if (count < 1) {
+            throw new InvalidCountException("Count must be positive");
+        }
+        if (!"likes".equals(source) && !"embeddings".equals(source)) {
+            throw new UnknownSimilarFilmsSourceException("Unknown similar films source: " + source);
+        }
+        if (filmStorage.findById(filmId).isEmpty()) {
+            throw new FilmNotFoundException("Film with id = " + filmId + " not found");
+        }
+        List<Long> similar = "likes".equals(source)
+                ? similarFilmsIndex.getSimilar(filmId, count)
+                : filmEmbeddingIndex.getSimilar(filmId, count);
+        return filmStorage.getByIds(similar);
+    }
+
+    /**
+     * Метод для получения статистики кэша фильмов
+     */
+    public FilmCache.Stats getCacheStats() {
+        return filmCache.getStats();
+    }
+
     /**
      * Метод для получения общих с другом фильмов с сортировкой по их популярности
      */
     public List<Film> getCommonFilms(long userId, long friendId)
             throws UserNotFoundException {
 
-        User user = userStorage.getById(userId);
-        if (user == null) {
+        if (!userStorage.existsById(userId)) {
             throw new UserNotFoundException("User with id = " + userId + " not found");
         }
 
-        User friend = userStorage.getById(friendId);
-        if (friend == null) {
+        if (!userStorage.existsById(friendId)) {
             throw new UserNotFoundException("User with id = " + friendId + " not found");
         }
 
@@ -152,36 +220,73 @@ public class FilmService {
     }
 
     /**
-     * Метод добавления лайка фильму от пользователя
+     * Метод для получения фильмов, которые лайкнули не менее min из переданных пользователей, с сортировкой
+     * по их популярности. Повторяющиеся id учитываются один раз; если min не задан, фильм должны лайкнуть
+     * все пользователи
+     */
+    public List<Film> getCommonFilms(Collection<Long> userIds, Integer min)
+            throws UserNotFoundException, InvalidCountException {
+        Set<Long> users = new LinkedHashSet<>(userIds);
+        if (users.isEmpty()) {
+            throw new InvalidCountException("User ids must not be empty");
+        }
+        int threshold = min == null ? users.size() : min;
+        if (threshold < 1 || threshold > users.size()) {
+            throw new InvalidCountException("Min must be between 1 and " + users.size());
+        }
+        Set<Long> missing = userStorage.findMissingIds(users);
+        if (!missing.isEmpty()) {
+            throw new UserNotFoundException("Users with ids = " + missing + " not found");
+        }
+        return userFilmLikesStorage.getCommonFilms(users, threshold);
+    }
+
+    /**
+     * Метод добавления лайка фильму от пользователя. Изменяется только таблица лайков, строка фильма
+     * не перезаписывается: в ответе возвращается уже загруженный фильм с добавленным лайком
      */
     public Film likeFilm(Long filmId, Long userId) throws UserNotFoundException, FilmNotFoundException {
-        Film film = filmStorage.getById(filmId);
+        Optional<Film> film = filmStorage.findById(filmId);
 
-        if (film == null) {
+        if (film.isEmpty()) {
             throw new FilmNotFoundException("Film with id = " + filmId + " not found");
-        } else if (userStorage.getById(userId) == null) {
+        } else if (!userStorage.existsById(userId)) {
             throw new UserNotFoundException("User with id = " + userId + " not found");
         } else {
             userFilmLikesStorage.saveLike(filmId, userId);
-            return filmStorage.update(film);
+            filmLeaderboard.addLikes(filmId, 1);
+            return withLikes(film.get(), likes -> likes.add(userId));
         }
     }
 
     /**
-     * Метод удаления лайка пользователя у фильма
+     * Метод удаления лайка пользователя у фильма. Изменяется только таблица лайков, строка фильма
+     * не перезаписывается: в ответе возвращается уже загруженный фильм без удаленного лайка
      */
     public Film deleteLike(Long filmId, Long userId) throws UserNotFoundException, FilmNotFoundException {
-        Film film = filmStorage.getById(filmId);
-        if (film == null) {
+        Optional<Film> film = filmStorage.findById(filmId);
+        if (film.isEmpty()) {
             throw new FilmNotFoundException("Film with id = " + filmId + " not found");
-        } else if (userStorage.getById(userId) == null) {
+        } else if (!userStorage.existsById(userId)) {
             throw new UserNotFoundException("User with id = " + userId + " not found");
         } else {
-            userFilmLikesStorage.removeLike(filmId, userId);
-            return filmStorage.update(film);
+            if (userFilmLikesStorage.removeLike(filmId, userId)) {
+                filmLeaderboard.addLikes(filmId, -1);
+            }
+            return withLikes(film.get(), likes -> likes.remove(userId));
         }
     }
 
+    /**
+     * Метод для применения изменения к множеству лайков загруженного фильма
+     */
+    private Film withLikes(Film film, Consumer<Set<Long>> change) {
+        Set<Long> likes = film.getLikesFromUsers() == null ? new HashSet<>() : film.getLikesFromUsers();
+        change.accept(likes);
+        film.setLikesFromUsers(likes);
+        return film;
+    }
+
     /**
      * Метод для валидации данных при создании и редактировании фильма. Если какая-либо валидация не пройдена,
      * то выбрасывается исключение ValidationException
@@ -22,11 +22,8 @@ public class GenreService {
      * Метод для получения жанра по его id
      */
     public Genre getById(int genreId) throws GenreNotFoundException {
-        final Genre genre = genreStorage.getById(genreId);
-        if (genre == null) {
-            throw new GenreNotFoundException("Genre with id = " + genreId + " not found");
-        }
-        return genre;
+        return genreStorage.findById(genreId)
+                .orElseThrow(() -> new GenreNotFoundException("Genre with id = " + genreId + " not found"));
     }
 
     /**
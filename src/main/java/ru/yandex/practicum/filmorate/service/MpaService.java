@@ -22,11 +22,8 @@ public class MpaService {
      * Метод для получения mpa рейтинга по его id
      */
     public Mpa getById(int mpaId) throws MpaNotFoundException {
-        final Mpa mpa = mpaStorage.getById(mpaId);
-        if (mpa == null) {
-            throw new MpaNotFoundException("Mpa with id = " + mpaId + " not found");
-        }
-        return mpa;
+        return mpaStorage.findById(mpaId)
+                .orElseThrow(() -> new MpaNotFoundException("Mpa with id = " + mpaId + " not found"));
     }
 
     /**
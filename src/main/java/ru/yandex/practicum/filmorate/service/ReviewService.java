@@ -4,15 +4,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.*;
-import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.model.Review;
-import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.review.ReviewStorage;
 import ru.yandex.practicum.filmorate.storage.reviewlikes.ReviewLikesStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
-import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -43,11 +41,9 @@ public class ReviewService {
         if (review.getUserId() == null || review.getFilmId() == null || review.getIsPositive() == null) {
             throw new ValidationException("Incorrect request");
         } else {
-            User user = userStorage.getById(review.getUserId());
-            Film film = filmStorage.getById(review.getFilmId());
-            if (film == null) {
+            if (filmStorage.findById(review.getFilmId()).isEmpty()) {
                 throw new FilmNotFoundException("Film with id = " + review.getUserId() + " not found");
-            } else if (user == null) {
+            } else if (!userStorage.existsById(review.getUserId())) {
                 throw new UserNotFoundException("User with id = " + review.getUserId() + " not found");
             } else {
                 return reviewStorage.create(review);
@@ -59,7 +55,7 @@ public class ReviewService {
      * Метод для редактирования отзыва
      */
     public Review update(Review review) throws ReviewNotFoundException {
-        if (reviewStorage.getById(review.getId()) == null) {
+        if (reviewStorage.findById(review.getId()).isEmpty()) {
             throw new ReviewNotFoundException("Review with id = " + review.getId() + " not found");
         } else {
             return reviewStorage.update(review);
@@ -70,32 +66,23 @@ public class ReviewService {
      * Метод для получения отзыва по его id
      */
     public Review getById(Long id) throws ReviewNotFoundException {
-        if (reviewStorage.getById(id) == null) {
-            throw new ReviewNotFoundException("Review with id = " + id + " not found");
-        } else {
-            return reviewStorage.getById(id);
-        }
+        return reviewStorage.findById(id)
+                .orElseThrow(() -> new ReviewNotFoundException("Review with id = " + id + " not found"));
     }
 
     /**
-     * Метод для получения отзывов для фильма по его id
+     * Метод для получения отзывов для фильма по его id, а если id не передан - отзывов на все фильмы.
+     * Отзывы упорядочены по убыванию полезности, страница начинается после отзыва из курсора
      */
-    public List<Review> getReviewsForFilm(Long id, int count) throws FilmNotFoundException {
-        if (id == null) {
-            List<Review> getReviews = reviewStorage.getAllReviews(count);
-            getReviews.sort(Comparator.comparing(Review::getUseful).reversed()
-                    .thenComparing(Review::getId));
-            return getReviews;
-        } else {
-            if (filmStorage.getById(id) == null) {
-                throw new FilmNotFoundException("Film with id = " + id + " not found");
-            } else {
-                List<Review> getReviews = reviewStorage.getReviewsForFilm(id, count);
-                getReviews.sort(Comparator.comparing(Review::getUseful).reversed()
-                                .thenComparing(Review::getId));
-                return getReviews;
-            }
+    public List<Review> getReviewsPage(Long filmId, PageCursor after, int count) throws FilmNotFoundException,
+            InvalidCursorException {
+        if (after != null && after.getSortValue() == null) {
+            throw new InvalidCursorException("Некорректный курсор: " + after.encode());
         }
+        if (filmId != null && filmStorage.findById(filmId).isEmpty()) {
+            throw new FilmNotFoundException("Film with id = " + filmId + " not found");
+        }
+        return reviewStorage.getReviewsPage(filmId, after, count);
     }
 
     /**
@@ -103,9 +90,9 @@ public class ReviewService {
      */
     public void addLikeToReview(Long reviewId, Long userId) throws ReviewNotFoundException, UserNotFoundException,
             LikeRecordAlreadyExistsException {
-        if (userStorage.getById(userId) == null) {
+        if (!userStorage.existsById(userId)) {
             throw new UserNotFoundException("User with id = " + userId + " not found");
-        } else if (reviewStorage.getById(reviewId) == null) {
+        } else if (reviewStorage.findById(reviewId).isEmpty()) {
             throw new ReviewNotFoundException("Review with id = " + reviewId + " not found");
         } else if (reviewLikesStorage.checkIfRecordExists(reviewId, userId)) {
             throw new LikeRecordAlreadyExistsException("Review with id = " + reviewId + " has already been rated by "
@@ -120,9 +107,9 @@ public class ReviewService {
      */
     public void addDislikeToReview(Long reviewId, Long userId) throws UserNotFoundException, ReviewNotFoundException,
             LikeRecordAlreadyExistsException {
-        if (userStorage.getById(userId) == null) {
+        if (!userStorage.existsById(userId)) {
             throw new UserNotFoundException("User with id = " + userId + " not found");
-        } else if (reviewStorage.getById(reviewId) == null) {
+        } else if (reviewStorage.findById(reviewId).isEmpty()) {
             throw new ReviewNotFoundException("Review with id = " + reviewId + " not found");
         } else if (reviewLikesStorage.checkIfRecordExists(reviewId, userId)) {
             throw new LikeRecordAlreadyExistsException("Review with id = " + reviewId + " has already been rated by "
@@ -137,9 +124,9 @@ public class ReviewService {
      */
     public void removeLikeFromReview(Long reviewId, Long userId) throws UserNotFoundException,
             ReviewNotFoundException {
-        if (userStorage.getById(userId) == null) {
+        if (!userStorage.existsById(userId)) {
             throw new UserNotFoundException("User with id = " + userId + " not found");
-        } else if (reviewStorage.getById(reviewId) == null) {
+        } else if (reviewStorage.findById(reviewId).isEmpty()) {
             throw new ReviewNotFoundException("Review with id = " + reviewId + " not found");
         } else {
             reviewLikesStorage.removeLikeFromReview(reviewId, userId);
@@ -151,9 +138,9 @@ public class ReviewService {
      */
     public void removeDislikeFromReview(Long reviewId, Long userId) throws UserNotFoundException,
             ReviewNotFoundException {
-        if (userStorage.getById(userId) == null) {
+        if (!userStorage.existsById(userId)) {
             throw new UserNotFoundException("User with id = " + userId + " not found");
-        } else if (reviewStorage.getById(reviewId) == null) {
+        } else if (reviewStorage.findById(reviewId).isEmpty()) {
             throw new ReviewNotFoundException("Review with id = " + reviewId + " not found");
         } else {
             reviewLikesStorage.removeDislikeFromReview(reviewId, userId);
@@ -161,13 +148,12 @@ public class ReviewService {
     }
 
     /**
-     * Метод для удаления отзыва по его id
+     * Метод для удаления отзыва по его id. Возвращает удаленный отзыв
      */
-    public void deleteById(Long reviewId) throws ReviewNotFoundException {
-        if (reviewStorage.getById(reviewId) == null) {
-            throw new ReviewNotFoundException("Review with id = " + reviewId + " not found");
-        } else {
-            reviewStorage.deleteById(reviewId);
-        }
+    public Review deleteById(Long reviewId) throws ReviewNotFoundException {
+        Review review = reviewStorage.findById(reviewId)
+                .orElseThrow(() -> new ReviewNotFoundException("Review with id = " + reviewId + " not found"));
+        reviewStorage.deleteById(reviewId);
+        return review;
     }
 }
@@ -3,7 +3,11 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.config.PaginationConfig;
+import ru.yandex.practicum.filmorate.exception.InvalidCursorException;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.storage.search.KindOfSearchFilm;
 import ru.yandex.practicum.filmorate.storage.search.Search;
 
@@ -14,11 +18,20 @@ import java.util.List;
 @Slf4j
 public class SearchService {
     private final Search search;
+    private final PaginationConfig paginationConfig;
 
     public List<Film> searchFilmByParam(String query, List<String> by) {
         return search.searchFilmByParam(query, byParamToKindOfSearchFilm(by));
     }
 
+    public CursorPage<Film> searchFilmByParam(String query, List<String> by, PageCursor after, Integer limit)
+            throws InvalidCursorException {
+        if (after != null && after.getSortValue() == null) {
+            throw new InvalidCursorException("Некорректный курсор: " + after.encode());
+        }
+        return search.searchFilmByParam(query, byParamToKindOfSearchFilm(by), after, paginationConfig.limit(limit));
+    }
+
     private KindOfSearchFilm byParamToKindOfSearchFilm(List<String> by) {
         if (by.size() == 2) {
             return KindOfSearchFilm.DIRECTOR_AND_TITLE;
@@ -3,23 +3,37 @@ package ru.yandex.practicum.filmorate.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.config.PaginationConfig;
+import ru.yandex.practicum.filmorate.exception.UnknownRecommendationAlgorithmException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.PageCursor;
+import ru.yandex.practicum.filmorate.model.RecommendationAlgorithm;
+import ru.yandex.practicum.filmorate.model.Recommendations;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.feed.FeedEventPipeline;
 import ru.yandex.practicum.filmorate.storage.feed.FeedStorage;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.friendship.FriendshipStorage;
+import ru.yandex.practicum.filmorate.storage.recommendations.AlsRecommendationEngine;
+import ru.yandex.practicum.filmorate.storage.recommendations.LikeBitmapIndex;
+import ru.yandex.practicum.filmorate.storage.recommendations.RecommendationCache;
 import ru.yandex.practicum.filmorate.storage.recommendations.UserRecommendationStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -33,18 +47,42 @@ public class UserService {
     private final UserRecommendationStorage userRecommendationStorage;
     private final FilmStorage filmStorage;
     private final FeedStorage feedStorage;
+    private final FeedEventPipeline feedEventPipeline;
+    private final PaginationConfig paginationConfig;
+    private final RecommendationCache recommendationCache;
+    private final LikeBitmapIndex likeBitmapIndex;
+    private final boolean bitmapRecommendationsEnabled;
+    private final AlsRecommendationEngine alsRecommendationEngine;
+    private final RecommendationAlgorithm recommendationAlgorithm;
 
     @Autowired
     public UserService(@Qualifier("userDbStorage") UserStorage userStorage,
                        @Qualifier("friendshipDbStorage") FriendshipStorage friendshipStorage,
                        UserRecommendationStorage userRecommendationStorage,
                        @Qualifier("filmDbStorage") FilmStorage filmStorage,
-                       FeedStorage feedStorage) {
+                       FeedStorage feedStorage,
+                       FeedEventPipeline feedEventPipeline,
+                       PaginationConfig paginationConfig,
+                       RecommendationCache recommendationCache,
+                       LikeBitmapIndex likeBitmapIndex,
+                       @Value("${filmorate.recommendations.bitmap-enabled:true}")
+                       boolean bitmapRecommendationsEnabled,
+                       AlsRecommendationEngine alsRecommendationEngine,
+                       @Value("${filmorate.recommendations.algorithm:neighbours}") String recommendationAlgorithm) {
         this.userStorage = userStorage;
         this.friendshipStorage = friendshipStorage;
         this.userRecommendationStorage = userRecommendationStorage;
         this.filmStorage = filmStorage;
         this.feedStorage = feedStorage;
+        this.feedEventPipeline = feedEventPipeline;
+        this.paginationConfig = paginationConfig;
+        this.recommendationCache = recommendationCache;
+        this.likeBitmapIndex = likeBitmapIndex;
+        this.bitmapRecommendationsEnabled = bitmapRecommendationsEnabled;
+        this.alsRecommendationEngine = alsRecommendationEngine;
+        this.recommendationAlgorithm = RecommendationAlgorithm.byName(recommendationAlgorithm)
+                .orElseThrow(() -> new IllegalStateException("Unknown recommendation algorithm: "
+                        + recommendationAlgorithm));
     }
 
     public UserStorage getUserStorage() {
@@ -58,6 +96,13 @@ public class UserService {
         return userStorage.getAll();
     }
 
+    /**
+     * Метод для получения страницы пользователей после пользователя из курсора
+     */
+    public List<User> getPage(PageCursor after, Integer limit) {
+        return userStorage.getPage(after, paginationConfig.limit(limit));
+    }
+
     /**
      * Метод для создания нового пользователя. Перед добавлением пользователь валидируется
      */
@@ -74,7 +119,7 @@ public class UserService {
      * валидируется
      */
     public User update(User user) throws ValidationException, UserNotFoundException {
-        if (userStorage.getById(user.getId()) != null) {
+        if (userStorage.findById(user.getId()).isPresent()) {
             if (user.getName() == null || user.getName().isBlank()) {
                 user.setName(user.getLogin());
             }
@@ -89,8 +134,9 @@ public class UserService {
      * Метод удаления пользователя
      */
     public void delete(Long id) throws UserNotFoundException {
-        if (userStorage.getById(id) != null) {
+        if (userStorage.findById(id).isPresent()) {
             userStorage.delete(id);
+            likeBitmapIndex.removeUser(id);
         } else {
             throw new UserNotFoundException("User with id = " + id + " not found");
         }
@@ -100,11 +146,8 @@ public class UserService {
      * Метод для получения информации о пользователе по его id
      */
     public User getById(Long userId) throws UserNotFoundException {
-        final User user = userStorage.getById(userId);
-        if (user == null) {
-            throw new UserNotFoundException("User with id = " + userId + " not found");
-        }
-        return user;
+        return userStorage.findById(userId)
+                .orElseThrow(() -> new UserNotFoundException("User with id = " + userId + " not found"));
     }
 
 
@@ -112,16 +155,15 @@ public class UserService {
      * Метод для добавления пользователя в друзья другому пользователю
      */
     public User addToFriends(Long userId, Long friendId) throws UserNotFoundException {
-        final User user = userStorage.getById(userId);
-        final User friend = userStorage.getById(friendId);
+        final Optional<User> user = userStorage.findById(userId);
 
-        if (user == null) {
+        if (user.isEmpty()) {
             throw new UserNotFoundException("User with id = " + userId + " not found");
-        } else if (friend == null) {
+        } else if (!userStorage.existsById(friendId)) {
             throw new UserNotFoundException("User with id = " + friendId + " not found");
         } else {
             friendshipStorage.addToFriends(userId, friendId);
-            return userStorage.update(user);
+            return withFriends(user.get(), friends -> friends.add(friendId));
         }
     }
 
@@ -130,43 +172,58 @@ public class UserService {
      * у второго пользователя первый пользователь также удаляется из друзей
      */
     public User deleteFromFriends(Long userId, Long friendId) throws UserNotFoundException {
-        User user = userStorage.getById(userId);
-        User friend = userStorage.getById(friendId);
+        Optional<User> user = userStorage.findById(userId);
 
-        if (user == null) {
+        if (user.isEmpty()) {
             throw new UserNotFoundException("User with id = " + userId + " not found");
-        } else if (friend == null) {
+        } else if (!userStorage.existsById(friendId)) {
             throw new UserNotFoundException("User with id = " + friendId + " not found");
         } else {
             friendshipStorage.deleteFromFriends(userId, friendId);
-            return userStorage.update(user);
+            return withFriends(user.get(), friends -> friends.remove(friendId));
         }
     }
 
+    /**
+     * Метод для применения изменения к множеству друзей загруженного пользователя. Строка пользователя
+     * в таблице при добавлении и удалении друзей не перезаписывается
+     */
+    private User withFriends(User user, Consumer<Set<Long>> change) {
+        Set<Long> friends = user.getFriends() == null ? new HashSet<>() : user.getFriends();
+        change.accept(friends);
+        user.setFriends(friends);
+        return user;
+    }
+
     /**
      * Метод для получения списка друзей пользователя
      */
     public List<User> getFriendsForUser(Long userId) throws UserNotFoundException {
-        User user = userStorage.getById(userId);
-
-        if (user == null) {
+        if (!userStorage.existsById(userId)) {
             throw new UserNotFoundException("User with id = " + userId + " not found");
         } else {
-            List<User> friendsList = friendshipStorage.getFriendsForUser(userId);
-            return friendsList;
+            return friendshipStorage.getFriendsForUser(userId);
+        }
+    }
+
+    /**
+     * Метод для получения страницы друзей пользователя после друга из курсора
+     */
+    public List<User> getFriendsForUser(Long userId, PageCursor after, Integer limit)
+            throws UserNotFoundException {
+        if (!userStorage.existsById(userId)) {
+            throw new UserNotFoundException("User with id = " + userId + " not found");
         }
+        return friendshipStorage.getFriendsForUser(userId, after, paginationConfig.limit(limit));
     }
 
     /**
      * Метод для получения списка общих друзей двух пользователей
      */
     public List<User> getCommonFriends(Long userId, Long otherUserId) throws UserNotFoundException {
-        User user = userStorage.getById(userId);
-        User otherUser = userStorage.getById(otherUserId);
-
-        if (user == null) {
+        if (!userStorage.existsById(userId)) {
             throw new UserNotFoundException("User with id = " + userId + " not found");
-        } else if (otherUser == null) {
+        } else if (!userStorage.existsById(otherUserId)) {
             throw new UserNotFoundException("User with id = " + otherUserId + " not found");
         } else {
             return friendshipStorage.getCommonFriends(userId, otherUserId);
@@ -174,14 +231,26 @@ public class UserService {
     }
 
     /**
-     * Метод для получения списка событий у пользователя
+     * Метод для получения возможных друзей пользователя по количеству общих друзей
      */
-    public List<Feed> getEventFeedById(Long userId) throws UserNotFoundException {
-        User user = userStorage.getById(userId);
+    public List<User> getFriendSuggestions(Long userId, Integer limit) throws UserNotFoundException {
+        if (!userStorage.existsById(userId)) {
+            throw new UserNotFoundException("User with id = " + userId + " not found");
+        }
+        return friendshipStorage.getFriendSuggestions(userId, paginationConfig.limit(limit));
+    }
 
-        if (user == null) {
+    /**
+     * Метод для получения списка событий у пользователя. Перед чтением дожидается записи уже опубликованных
+     * событий, чтобы пользователь видел результат своих действий
+     */
+    public List<Feed> getEventFeedById(Long userId) throws UserNotFoundException {
+        if (!userStorage.existsById(userId)) {
             throw new UserNotFoundException("User with id = " + userId + " not found");
         } else {
+            if (!feedEventPipeline.flush()) {
+                log.warn("Не дождались записи событий ленты перед чтением ленты пользователя с id = {}", userId);
+            }
             return feedStorage.findEventByUserId(userId);
         }
     }
@@ -203,7 +272,80 @@ public class UserService {
         }
     }
 
+    /**
+     * Метод для получения рекомендаций фильмов пользователю
+     */
     public List<Film> getRecommendation(Long id) {
+        return getRecommendations(id).getFilms();
+    }
+
+    /**
+     * Метод для получения рекомендаций фильмов пользователю способом из настройки
+     * filmorate.recommendations.algorithm
+     */
+    public Recommendations getRecommendations(Long id) {
+        return getRecommendations(id, recommendationAlgorithm);
+    }
+
+    /**
+     * Метод для получения рекомендаций фильмов пользователю способом, переданным по названию. Если название
+     * не передано, используется способ из настройки filmorate.recommendations.algorithm
+     */
+    public Recommendations getRecommendations(Long id, String algorithm) throws UnknownRecommendationAlgorithmException {
+        if (algorithm == null || algorithm.isBlank()) {
+            return getRecommendations(id);
+        }
+        return getRecommendations(id, RecommendationAlgorithm.byName(algorithm)
+                .orElseThrow(() -> new UnknownRecommendationAlgorithmException(
+                        "Unknown recommendation algorithm: " + algorithm)));
+    }
+
+    /**
+     * Метод для получения рекомендаций фильмов пользователю вместе с их возрастом. Рекомендации ALS
+     * подбираются по последней обученной модели, возраст рекомендаций - время с момента ее обучения; пока
+     * модели нет, рекомендации подбираются по похожим пользователям. Рекомендации по похожим пользователям
+     * по умолчанию берутся из кэша, который пересчитывается в фоне по индексу лайков в памяти. При выключенной
+     * настройке filmorate.recommendations.bitmap-enabled они подбираются прежним способом с запросами лайков
+     * каждого пользователя к БД
+     */
+    private Recommendations getRecommendations(Long id, RecommendationAlgorithm algorithm) {
+        if (algorithm == RecommendationAlgorithm.ALS) {
+            Optional<Instant> trainedAt = alsRecommendationEngine.getTrainedAt();
+            if (trainedAt.isPresent()) {
+                return Recommendations.builder()
+                        .films(filmStorage.getByIds(alsRecommendationEngine.recommend(id, RecommendationCache.LIMIT)))
+                        .age(Duration.between(trainedAt.get(), Instant.now()))
+                        .stale(false)
+                        .algorithm(RecommendationAlgorithm.ALS)
+                        .build();
+            }
+            log.debug("Модель ALS еще не обучена, рекомендации подбираются по похожим пользователям");
+        }
+        if (bitmapRecommendationsEnabled) {
+            RecommendationCache.Snapshot snapshot = recommendationCache.get(id);
+            return Recommendations.builder()
+                    .films(filmStorage.getByIds(snapshot.getFilmIds()))
+                    .age(snapshot.getAge())
+                    .stale(snapshot.isStale())
+                    .algorithm(RecommendationAlgorithm.NEIGHBOURS)
+                    .build();
+        }
+        return Recommendations.builder()
+                .films(getRecommendationFromDb(id))
+                .age(Duration.ZERO)
+                .stale(false)
+                .algorithm(RecommendationAlgorithm.NEIGHBOURS)
+                .build();
+    }
+
+    /**
+     * Метод для получения статистики кэша рекомендаций и очереди их пересчета
+     */
+    public RecommendationCache.Stats getRecommendationCacheStats() {
+        return recommendationCache.getStats();
+    }
+
+    private List<Film> getRecommendationFromDb(Long id) {
         List<Long> userFilm = userRecommendationStorage.getUserFilms(id); // список фильмов, которые лайкнул пользователь
         List<Long> listOfUsers = userRecommendationStorage.getListOfOtherUser(id); // список других пользователей
         Set<Long> recommendedFilms = new HashSet<>(); // список фильмов для рекомендации
@@ -227,10 +369,9 @@ public class UserService {
             }
 
         }
-        return List.copyOf(recommendedFilms).stream()
-                .map(filmStorage::getById)
+        return filmStorage.getByIds(recommendedFilms).stream()
                 .sorted((o1, o2) -> o2.getLikesFromUsers().size() - o1.getLikesFromUsers().size())
-                .limit(10L)
+                .limit(RecommendationCache.LIMIT)
                 .collect(Collectors.toList());
     }
 }
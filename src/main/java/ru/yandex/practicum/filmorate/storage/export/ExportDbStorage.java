@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.storage.export;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashSet;
+import java.util.function.Consumer;
+
+/**
+ * Класс, имплементирующий интерфейс потоковой выгрузки таблиц film, users и user_film_likes.
+ * Строки передаются дальше по одной по мере чтения из ResultSet, списки объектов не собираются.
+ * Чтение выполняется в транзакции только для чтения, так как некоторые драйверы учитывают fetch-size
+ * только при выключенном autocommit. H2 без LAZY_QUERY_EXECUTION fetch-size не учитывает: результат запроса
+ * собирается на стороне БД (большие результаты H2 сбрасывает во временный файл)
+ */
+@Component
+public class ExportDbStorage implements ExportStorage {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ExportDbStorage(DataSource dataSource, @Value("${filmorate.export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Метод для выгрузки фильмов вместе с рейтингом и жанрами. Строки упорядочены по id фильма, поэтому
+     * жанры одного фильма идут подряд и фильм передается дальше, как только начинается следующий
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamFilms(Consumer<Film> consumer) {
+        String sqlQuery = "SELECT f.FILM_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, f.RATING_MPAA_ID, "
+                + "m.NAME AS MPA_NAME, g.GENRE_ID, g.NAME AS GENRE_NAME FROM film f "
+                + "LEFT OUTER JOIN rating_mpaa m ON m.RATING_MPAA_ID = f.RATING_MPAA_ID "
+                + "LEFT OUTER JOIN film_genre fg ON fg.FILM_ID = f.FILM_ID "
+                + "LEFT OUTER JOIN genre g ON g.GENRE_ID = fg.GENRE_ID "
+                + "WHERE NOT f.is_delete ORDER BY f.FILM_ID, g.GENRE_ID";
+
+        Film[] current = new Film[1];
+        jdbcTemplate.query(sqlQuery, rs -> {
+            long filmId = rs.getLong("FILM_ID");
+            if (current[0] == null || current[0].getId() != filmId) {
+                if (current[0] != null) {
+                    consumer.accept(current[0]);
+                }
+                current[0] = Film.builder()
+                        .id(filmId)
+                        .name(rs.getString("NAME"))
+                        .description(rs.getString("DESCRIPTION"))
+                        .releaseDate(rs.getDate("RELEASE_DATE").toLocalDate())
+                        .duration(rs.getLong("DURATION"))
+                        .mpa(Mpa.builder()
+                                .id(rs.getInt("RATING_MPAA_ID"))
+                                .name(rs.getString("MPA_NAME"))
+                                .build())
+                        .genres(new LinkedHashSet<>())
+                        .build();
+            }
+            int genreId = rs.getInt("GENRE_ID");
+            if (!rs.wasNull()) {
+                current[0].getGenres().add(Genre.builder()
+                        .id(genreId)
+                        .name(rs.getString("GENRE_NAME"))
+                        .build());
+            }
+        });
+        if (current[0] != null) {
+            consumer.accept(current[0]);
+        }
+    }
+
+    /**
+     * Метод для выгрузки пользователей
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamUsers(Consumer<User> consumer) {
+        String sqlQuery = "SELECT USER_ID, EMAIL, LOGIN, NAME, BIRTHDAY FROM users WHERE NOT is_delete";
+
+        jdbcTemplate.query(sqlQuery, rs -> {
+            consumer.accept(User.builder()
+                    .id(rs.getLong("USER_ID"))
+                    .email(rs.getString("EMAIL"))
+                    .login(rs.getString("LOGIN"))
+                    .name(rs.getString("NAME"))
+                    .birthday(rs.getDate("BIRTHDAY").toLocalDate())
+                    .build());
+        });
+    }
+
+    /**
+     * Метод для выгрузки лайков фильмов
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamLikes(Consumer<FilmLike> consumer) {
+        String sqlQuery = "SELECT USER_ID, FILM_ID FROM user_film_likes";
+
+        jdbcTemplate.query(sqlQuery, rs -> {
+            consumer.accept(FilmLike.builder()
+                    .userId(rs.getLong("USER_ID"))
+                    .filmId(rs.getLong("FILM_ID"))
+                    .build());
+        });
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.storage.export;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.function.Consumer;
+
+/**
+ * Интерфейс, описывающий потоковую выгрузку данных из хранилища. Каждый элемент передается в consumer
+ * сразу после чтения, без накопления всей выборки в памяти
+ */
+public interface ExportStorage {
+    void streamFilms(Consumer<Film> consumer);
+
+    void streamUsers(Consumer<User> consumer);
+
+    void streamLikes(Consumer<FilmLike> consumer);
+}
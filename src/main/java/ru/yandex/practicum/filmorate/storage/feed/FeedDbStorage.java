@@ -4,7 +4,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Feed;
 
@@ -42,6 +41,22 @@ public class FeedDbStorage implements FeedStorage {
         }, keyHolder);
     }
 
+    /**
+     * Метод для создания пачки событий одним пакетным запросом. Сгенерированные id событий не запрашиваются
+     */
+    @Override
+    public void createEvents(List<Feed> feeds) {
+        String sqlQuery = "INSERT INTO FEED (USER_ID, EVENT_TYPE, OPERATION, TIMESTAMP, ENTITY_ID) " +
+                "values (?, ?, ?, ?, ?)";
+        jdbcTemplate.batchUpdate(sqlQuery, feeds, feeds.size(), (stmt, feed) -> {
+            stmt.setLong(1, feed.getUserId());
+            stmt.setString(2, feed.getEventType());
+            stmt.setString(3, feed.getOperation());
+            stmt.setLong(4, feed.getTimestamp());
+            stmt.setLong(5, feed.getEntityId());
+        });
+    }
+
     /**
      * Метод для получения список объектов класса Event по id пользователя
      */
@@ -51,28 +66,6 @@ public class FeedDbStorage implements FeedStorage {
         return jdbcTemplate.query(sqlQuery, this::mapRowToFeed, userId);
     }
 
-    @Override
-    public Long getFriendshipIdByUserId(Long userId, Long friendId) {
-        String sqlQuery = "SELECT FRIENDSHIP_ID FROM FRIENDSHIP WHERE USER_ID = ? and FRIEND_ID = ?";
-        SqlRowSet row = jdbcTemplate.queryForRowSet(sqlQuery, userId, friendId);
-        if (row.next()) {
-            return row.getLong("FRIENDSHIP_ID");
-        } else {
-            return null;
-        }
-    }
-
-    @Override
-    public Long getReviewIdByUserId(Long userId, Long filmId) {
-        String sqlQuery = "SELECT REVIEW_ID FROM REVIEW WHERE USER_ID = ? and FILM_ID = ?";
-        SqlRowSet row = jdbcTemplate.queryForRowSet(sqlQuery, userId, filmId);
-        if (row.next()) {
-            return row.getLong("REVIEW_ID");
-        } else {
-            return null;
-        }
-    }
-
     /**
      * Метод для маппинга полей жанра из таблицы в объект
      */
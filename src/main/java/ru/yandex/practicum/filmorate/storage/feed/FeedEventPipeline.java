@@ -0,0 +1,321 @@
+package ru.yandex.practicum.filmorate.storage.feed;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Feed;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронная запись событий ленты. События публикуются в ограниченный кольцевой буфер без блокировок,
+ * а фоновый поток забирает их пачками не больше batch-size и записывает одним пакетным запросом. Поток
+ * просыпается раз в flush-interval или сразу, как только в буфере набралась полная пачка. Если буфер
+ * заполнен, публикующий поток ждет освобождения места (политика block) или событие отбрасывается
+ * (политика drop). При остановке приложения буфер записывается до конца. Чтение ленты вызывает flush,
+ * чтобы пользователь видел свои только что опубликованные события.
+ * При async=false события записываются синхронно в вызывающем потоке, как раньше
+ */
+@Component
+@Slf4j
+public class FeedEventPipeline {
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final FeedStorage feedStorage;
+    private final boolean async;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long flushTimeoutMillis;
+    private final QueueFullPolicy queueFullPolicy;
+    private final int mask;
+    private final AtomicReferenceArray<Feed> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicInteger publishing = new AtomicInteger();
+    private final Object persistedMonitor = new Object();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private long head;
+    private volatile boolean running;
+    private Thread writer;
+
+    @Autowired
+    public FeedEventPipeline(FeedStorage feedStorage,
+                             @Value("${filmorate.feed.async:true}") boolean async,
+                             @Value("${filmorate.feed.queue-capacity:8192}") int queueCapacity,
+                             @Value("${filmorate.feed.batch-size:256}") int batchSize,
+                             @Value("${filmorate.feed.flush-interval-ms:20}") long flushIntervalMillis,
+                             @Value("${filmorate.feed.flush-timeout-ms:1000}") long flushTimeoutMillis,
+                             @Value("${filmorate.feed.queue-full-policy:block}") String queueFullPolicy) {
+        this.feedStorage = feedStorage;
+        this.async = async;
+        this.batchSize = Math.max(batchSize, 1);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(flushIntervalMillis, 1));
+        this.flushTimeoutMillis = flushTimeoutMillis;
+        this.queueFullPolicy = QueueFullPolicy.valueOf(queueFullPolicy.toUpperCase(Locale.ROOT));
+        int capacity = Integer.highestOneBit(Math.max(queueCapacity, 2) - 1) << 1;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Метод для запуска потока записи событий
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (!async || running) {
+            return;
+        }
+        writer = new Thread(this::runWriter, "feed-writer");
+        writer.setDaemon(true);
+        running = true;
+        writer.start();
+    }
+
+    /**
+     * Метод для остановки потока записи: новые события после остановки записываются синхронно,
+     * а уже опубликованные дописываются потоком записи перед завершением. Остановка дожидается
+     * публикаций, начатых до нее, чтобы их события не остались в буфере после последней записи
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        while (publishing.get() > 0) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+        }
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!writer.isAlive()) {
+            List<Feed> batch = new ArrayList<>(batchSize);
+            while (drain(batch) > 0) {
+                batch.clear();
+            }
+        }
+        log.info("Статистика записи ленты событий: {}", getStats());
+    }
+
+    /**
+     * Метод для публикации события. Вызывающий поток не ждет записи события в БД
+     */
+    public void publish(Feed feed) {
+        publishing.incrementAndGet();
+        try {
+            if (!running) {
+                feedStorage.createEvent(feed);
+                return;
+            }
+            while (!offer(feed)) {
+                if (queueFullPolicy == QueueFullPolicy.DROP) {
+                    dropped.increment();
+                    log.warn("Буфер ленты событий заполнен, событие отброшено: {}", feed);
+                    return;
+                }
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                if (!running) {
+                    feedStorage.createEvent(feed);
+                    return;
+                }
+            }
+            published.increment();
+        } finally {
+            publishing.decrementAndGet();
+        }
+    }
+
+    /**
+     * Метод для ожидания записи всех событий, опубликованных до вызова, но не дольше flush-timeout.
+     * Возвращает false, если время ожидания истекло
+     */
+    public boolean flush() {
+        if (!running) {
+            return true;
+        }
+        long target = tail.get();
+        if (persisted.get() >= target) {
+            return true;
+        }
+        LockSupport.unpark(writer);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushTimeoutMillis);
+        synchronized (persistedMonitor) {
+            while (persisted.get() < target) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0 || !running) {
+                    return persisted.get() >= target;
+                }
+                try {
+                    persistedMonitor.wait(remainingMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Метод для получения статистики записи ленты событий
+     */
+    public Stats getStats() {
+        return Stats.builder()
+                .async(running)
+                .queueCapacity(mask + 1)
+                .queueSize(tail.get() - persisted.get())
+                .published(published.sum())
+                .persisted(persisted.get())
+                .batches(batches.sum())
+                .dropped(dropped.sum())
+                .failed(failed.sum())
+                .build();
+    }
+
+    /**
+     * Метод для занятия следующей ячейки буфера. Ячейка свободна, если ее номер последовательности
+     * совпадает с позицией записи; после записи события номер увеличивается на единицу, что делает
+     * событие видимым потоку записи. Возвращает false, если буфер заполнен
+     */
+    private boolean offer(Feed feed) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, feed);
+                    sequences.set(index, position + 1);
+                    if ((position + 1 - persisted.get()) % batchSize == 0) {
+                        LockSupport.unpark(writer);
+                    }
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Метод для извлечения следующего события потоком записи. Возвращает null, если следующая ячейка
+     * еще не заполнена
+     */
+    private Feed poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        Feed feed = slots.get(index);
+        slots.set(index, null);
+        sequences.set(index, head + mask + 1);
+        head++;
+        return feed;
+    }
+
+    private void runWriter() {
+        List<Feed> batch = new ArrayList<>(batchSize);
+        while (true) {
+            boolean stopping = !running;
+            int drained = drain(batch);
+            batch.clear();
+            if (stopping && head == tail.get()) {
+                return;
+            }
+            if (drained < batchSize) {
+                LockSupport.parkNanos(this, stopping ? BLOCK_PARK_NANOS : flushIntervalNanos);
+            }
+        }
+    }
+
+    /**
+     * Метод для извлечения из буфера и записи не больше одной пачки событий. Возвращает количество
+     * записанных событий
+     */
+    private int drain(List<Feed> batch) {
+        Feed feed;
+        while (batch.size() < batchSize && (feed = poll()) != null) {
+            batch.add(feed);
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+        return batch.size();
+    }
+
+    /**
+     * Метод для записи пачки событий. Пачка, которую не удалось записать, отбрасывается с записью в лог,
+     * чтобы ошибка БД не останавливала поток записи
+     */
+    private void write(List<Feed> batch) {
+        try {
+            feedStorage.createEvents(batch);
+            batches.increment();
+        } catch (RuntimeException e) {
+            failed.add(batch.size());
+            log.error("Ошибка записи пачки событий ленты, потеряно событий: {}", batch.size(), e);
+        }
+        persisted.set(head);
+        synchronized (persistedMonitor) {
+            persistedMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Поведение при заполненном буфере: block - публикующий поток ждет освобождения места,
+     * drop - событие отбрасывается
+     */
+    public enum QueueFullPolicy {
+        BLOCK,
+        DROP
+    }
+
+    /**
+     * Статистика записи ленты событий: dropped - события, отброшенные при заполненном буфере,
+     * failed - события из пачек, которые не удалось записать
+     */
+    @Getter
+    @Builder
+    @ToString
+    public static class Stats {
+        private final boolean async;
+        private final int queueCapacity;
+        private final long queueSize;
+        private final long published;
+        private final long persisted;
+        private final long batches;
+        private final long dropped;
+        private final long failed;
+    }
+}
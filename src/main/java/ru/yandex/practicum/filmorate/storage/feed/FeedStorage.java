@@ -10,9 +10,7 @@ import java.util.List;
 public interface FeedStorage {
     void createEvent(Feed feed);
 
-    List<Feed> findEventByUserId(Long userId);
-
-    Long getFriendshipIdByUserId(Long userId, Long friendId);
+    void createEvents(List<Feed> feeds);
 
-    Long getReviewIdByUserId(Long userId, Long filmId);
+    List<Feed> findEventByUserId(Long userId);
 }
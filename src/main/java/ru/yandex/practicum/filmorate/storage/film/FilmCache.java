@@ -0,0 +1,276 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Ограниченный по размеру кэш фильмов по id с частотной политикой допуска (W-TinyLFU).
+ * Новые записи попадают в небольшое окно LRU, а при вытеснении из окна допускаются в основную область,
+ * только если по частотному скетчу к ним обращались чаще, чем к кандидату на вытеснение из основной области.
+ * Поэтому разовые обращения к редким фильмам не вытесняют из кэша популярные.
+ * Кэш хранит и отдает копии фильмов, чтобы изменения возвращенного объекта не попадали в кэш
+ */
+@Component
+@Slf4j
+public class FilmCache {
+    /**
+     * Доля окна LRU от общего размера кэша в процентах
+     */
+    private static final int WINDOW_PERCENT = 1;
+
+    private final int maximumSize;
+    private final int windowSize;
+    private final LinkedHashMap<Long, Film> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Long, Film> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private final Map<Long, Long> loading = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private long loadTokens;
+
+    @Autowired
+    public FilmCache(@Value("${filmorate.film-cache.maximum-size:10000}") int maximumSize) {
+        this.maximumSize = Math.max(maximumSize, 0);
+        this.windowSize = Math.max(1, this.maximumSize * WINDOW_PERCENT / 100);
+        this.sketch = new FrequencySketch(Math.max(this.maximumSize, 1));
+    }
+
+    /**
+     * Метод для получения фильма из кэша. Если фильма в кэше нет, он загружается переданной функцией
+     * и помещается в кэш, если за время загрузки этот фильм не удалялся из кэша. На время загрузки
+     * за id закрепляется метка, которую снимает удаление фильма, поэтому изменения других фильмов
+     * не мешают кэшированию
+     */
+    public Film get(Long id, Function<Long, Film> loader) {
+        if (maximumSize == 0) {
+            return loader.apply(id);
+        }
+        long token;
+        synchronized (this) {
+            sketch.increment(id);
+            Film cached = window.get(id);
+            if (cached == null) {
+                cached = main.get(id);
+            }
+            if (cached != null) {
+                hits.increment();
+                return copy(cached);
+            }
+            misses.increment();
+            token = ++loadTokens;
+            loading.put(id, token);
+        }
+
+        Film loaded = null;
+        try {
+            loaded = loader.apply(id);
+        } finally {
+            synchronized (this) {
+                if (loading.remove(id, token) && loaded != null) {
+                    put(id, copy(loaded));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Метод для удаления фильма из кэша. Если вызван внутри транзакции, фильм удаляется повторно после фиксации,
+     * чтобы параллельное чтение не вернуло в кэш состояние до изменения
+     */
+    public void invalidate(Long id) {
+        evict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Метод для очистки кэша
+     */
+    public synchronized void invalidateAll() {
+        loading.clear();
+        window.clear();
+        main.clear();
+    }
+
+    /**
+     * Метод для получения статистики работы кэша
+     */
+    public synchronized Stats getStats() {
+        return Stats.builder()
+                .maximumSize(maximumSize)
+                .size(window.size() + main.size())
+                .hits(hits.sum())
+                .misses(misses.sum())
+                .evictions(evictions.sum())
+                .rejections(rejections.sum())
+                .build();
+    }
+
+    @PreDestroy
+    public void logStats() {
+        log.info("Статистика кэша фильмов: {}", getStats());
+    }
+
+    private synchronized void evict(Long id) {
+        loading.remove(id);
+        if (window.remove(id) == null) {
+            main.remove(id);
+        }
+    }
+
+    private void put(Long id, Film film) {
+        if (window.containsKey(id) || main.containsKey(id)) {
+            if (window.replace(id, film) == null) {
+                main.replace(id, film);
+            }
+            return;
+        }
+        window.put(id, film);
+        if (window.size() <= windowSize) {
+            return;
+        }
+
+        Iterator<Map.Entry<Long, Film>> windowIterator = window.entrySet().iterator();
+        Map.Entry<Long, Film> candidate = windowIterator.next();
+        windowIterator.remove();
+        if (main.size() < maximumSize - windowSize) {
+            main.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+        if (main.isEmpty()) {
+            evictions.increment();
+            return;
+        }
+
+        Iterator<Map.Entry<Long, Film>> mainIterator = main.entrySet().iterator();
+        Map.Entry<Long, Film> victim = mainIterator.next();
+        evictions.increment();
+        if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim.getKey())) {
+            mainIterator.remove();
+            main.put(candidate.getKey(), candidate.getValue());
+        } else {
+            rejections.increment();
+        }
+    }
+
+    private static Film copy(Film film) {
+        return Film.builder()
+                .id(film.getId())
+                .name(film.getName())
+                .description(film.getDescription())
+                .releaseDate(film.getReleaseDate())
+                .duration(film.getDuration())
+                .mpa(film.getMpa())
+                .likesFromUsers(film.getLikesFromUsers() == null ? null : new HashSet<>(film.getLikesFromUsers()))
+                .genres(film.getGenres() == null ? null : new LinkedHashSet<>(film.getGenres()))
+                .build();
+    }
+
+    /**
+     * Статистика кэша: hits и misses - попадания и промахи, evictions - вытеснения из кэша,
+     * rejections - случаи, когда новый фильм не был допущен в основную область из-за низкой частоты обращений
+     */
+    @Getter
+    @Builder
+    @ToString
+    public static class Stats {
+        private final int maximumSize;
+        private final int size;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long rejections;
+
+        public double getHitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+
+    /**
+     * Скетч Count-Min с 4-битными счетчиками для приблизительной оценки частоты обращений к id.
+     * После числа обращений, в 10 раз превышающего размер кэша, все счетчики делятся пополам,
+     * чтобы старая популярность со временем забывалась
+     */
+    static final class FrequencySketch {
+        private static final long[] SEEDS = {
+                0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+        private static final int MAX_COUNT = 15;
+
+        private final byte[][] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(capacity, 8) - 1) << 1;
+            table = new byte[SEEDS.length][width];
+            mask = width - 1;
+            sampleSize = 10 * capacity;
+        }
+
+        void increment(long key) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int index = index(key, i);
+                if (table[i][index] < MAX_COUNT) {
+                    table[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(long key) {
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < SEEDS.length; i++) {
+                frequency = Math.min(frequency, table[i][index(key, i)]);
+            }
+            return frequency;
+        }
+
+        private int index(long key, int row) {
+            long hash = (key + SEEDS[row]) * SEEDS[row];
+            hash ^= hash >>> 32;
+            return (int) hash & mask;
+        }
+
+        private void reset() {
+            for (byte[] row : table) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+    }
+}
@@ -3,20 +3,32 @@ package ru.yandex.practicum.filmorate.storage.film;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.PageCursor;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Класс, имплементирующий интерфейс для работы с таблицей films в БД
@@ -25,9 +37,19 @@ import java.util.Set;
 @Slf4j
 public class FilmDbStorage implements FilmStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final FilmHydrator filmHydrator;
+    private final FilmCache filmCache;
+    private final GenreStorage genreStorage;
+
     @Autowired
-    public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                         FilmHydrator filmHydrator, FilmCache filmCache, GenreStorage genreStorage) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.filmHydrator = filmHydrator;
+        this.filmCache = filmCache;
+        this.genreStorage = genreStorage;
     }
 
     /**
@@ -37,7 +59,27 @@ public class FilmDbStorage implements FilmStorage {
     public List<Film> getAll() {
         String sqlQuery = "SELECT FILM_ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, " +
                 "RATING_MPAA_ID FROM film WHERE NOT is_delete";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm);
+        return queryFilms(sqlQuery);
+    }
+
+    /**
+     * Метод, возвращающий страницу фильмов после фильма из курсора. Используется поиск по первичному ключу,
+     * а не OFFSET, поэтому стоимость запроса не зависит от номера страницы
+     */
+    @Override
+    public List<Film> getPage(PageCursor after, int limit) {
+        String sqlQuery = "SELECT FILM_ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, RATING_MPAA_ID FROM film " +
+                "WHERE FILM_ID > ? AND NOT is_delete ORDER BY FILM_ID LIMIT ?";
+        return queryFilms(sqlQuery, after == null ? 0L : after.getId(), limit);
+    }
+
+    /**
+     * Метод для выполнения запроса, возвращающего строки таблицы film, с пакетной подгрузкой рейтинга и лайков
+     */
+    public List<Film> queryFilms(String sqlQuery, Object... args) {
+        List<Film> films = jdbcTemplate.query(sqlQuery, this::mapRowToFilm, args);
+        hydrate(films);
+        return films;
     }
 
     /**
@@ -78,22 +120,68 @@ public class FilmDbStorage implements FilmStorage {
                 film.getDuration(),
                 film.getMpa().getId(),
                 film.getId());
+        filmCache.invalidate(film.getId());
         return getById(film.getId());
     }
 
     /**
-     * Метод для получения фильма по его id из таблицы
+     * Метод для получения фильма по его id. Фильм берется из кэша, а при промахе загружается из таблицы
      */
     @Override
-    public Film getById (Long id) {
+    public Optional<Film> findById(Long id) {
+        return Optional.ofNullable(filmCache.get(id, this::loadById));
+    }
+
+    /**
+     * Метод для загрузки фильма по его id вместе с лайками и жанрами одним запросом. Жанры фильма
+     * заполняются в порядке их id, если у фильма нет жанров - поле остается пустым
+     */
+    private Film loadById(Long id) {
+        String sqlQuery = "SELECT f.FILM_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, f.RATING_MPAA_ID, "
+                + "ARRAY(SELECT u.USER_ID FROM user_film_likes u WHERE u.FILM_ID = f.FILM_ID) AS LIKE_IDS, "
+                + "ARRAY(SELECT fg.GENRE_ID FROM film_genre fg WHERE fg.FILM_ID = f.FILM_ID "
+                + "ORDER BY fg.GENRE_ID) AS GENRE_IDS "
+                + "FROM film f WHERE (NOT f.is_delete) AND (f.FILM_ID = ?)";
+        List<Film> films = jdbcTemplate.query(sqlQuery, (rs, rowNum) -> {
+            Film film = mapRowToFilm(rs, rowNum);
+            Set<Long> likes = new HashSet<>();
+            for (Object userId : (Object[]) rs.getArray("LIKE_IDS").getArray()) {
+                likes.add(((Number) userId).longValue());
+            }
+            film.setLikesFromUsers(likes);
+            LinkedHashSet<Genre> genres = new LinkedHashSet<>();
+            for (Object genreId : (Object[]) rs.getArray("GENRE_IDS").getArray()) {
+                genreStorage.findById(((Number) genreId).intValue()).ifPresent(genres::add);
+            }
+            film.setGenres(genres.isEmpty() ? null : genres);
+            return film;
+        }, id);
+        filmHydrator.fillMpa(films);
+        return films.isEmpty() ? null : films.get(0);
+    }
+
+    /**
+     * Метод для получения списка фильмов по их id. Порядок фильмов в списке соответствует порядку переданных id
+     */
+    @Override
+    public List<Film> getByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
         String sqlQuery = "SELECT FILM_ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, RATING_MPAA_ID " +
-                "FROM film WHERE (NOT is_delete) AND (FILM_ID = ?)";
-        SqlRowSet row = jdbcTemplate.queryForRowSet(sqlQuery, id);
-        if (row.next()) {
-            return jdbcTemplate.queryForObject(sqlQuery, this::mapRowToFilm, id);
-        } else {
-            return null;
+                "FROM film WHERE (NOT is_delete) AND (FILM_ID IN (:ids))";
+        Map<Long, Film> filmsById = new HashMap<>();
+        for (Film film : namedJdbcTemplate.query(sqlQuery, new MapSqlParameterSource("ids", ids),
+                this::mapRowToFilm)) {
+            filmsById.put(film.getId(), film);
         }
+
+        List<Film> films = ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        hydrate(films);
+        return films;
     }
 
     /**
@@ -103,6 +191,7 @@ public class FilmDbStorage implements FilmStorage {
     public void deleteAll() {
         String sqlQuery = "DELETE FROM film";
         jdbcTemplate.update(sqlQuery);
+        filmCache.invalidateAll();
     }
 
     /**
@@ -112,41 +201,29 @@ public class FilmDbStorage implements FilmStorage {
     public void delete(Long id) {
         String sqlQuery = "UPDATE film SET is_delete = TRUE WHERE film_id = ?";
         jdbcTemplate.update(sqlQuery, id);
+        filmCache.invalidate(id);
     }
 
     /**
-     * Метод для маппинга полей фильма из таблицы в объект
+     * Метод для пакетной подгрузки рейтинга mpa и лайков для списка фильмов
      */
-    public Film mapRowToFilm(ResultSet resultSet, int rowNum) throws SQLException {
-        int mpaId = resultSet.getInt("RATING_MPAA_ID");
-        String sqlFindName = "SELECT RATING_MPAA_ID, NAME FROM rating_mpaa WHERE RATING_MPAA_ID = ?";
-        Mpa mpa = jdbcTemplate.queryForObject(sqlFindName, this::mapRowToMpa, mpaId);
-
-        Set<Long> idLikes = new HashSet<>();
-        String sqlFindLikes = "SELECT USER_ID FROM user_film_likes WHERE FILM_ID = ?";
-        SqlRowSet row = jdbcTemplate.queryForRowSet(sqlFindLikes, resultSet.getLong("FILM_ID"));
-        while(row.next()) {
-            idLikes.add(row.getLong("USER_ID"));
-        }
+    public void hydrate(List<Film> films) {
+        filmHydrator.fillMpa(films);
+        filmHydrator.fillLikes(films);
+    }
 
+    /**
+     * Метод для маппинга полей фильма из таблицы в объект. Рейтинг заполняется только id, название рейтинга
+     * и лайки подгружаются пакетно через метод hydrate
+     */
+    public Film mapRowToFilm(ResultSet resultSet, int rowNum) throws SQLException {
         return Film.builder()
                 .id(resultSet.getLong("FILM_ID"))
                 .name(resultSet.getString("NAME"))
                 .description(resultSet.getString("DESCRIPTION"))
                 .releaseDate(resultSet.getDate("RELEASE_DATE").toLocalDate())
                 .duration(resultSet.getLong("DURATION"))
-                .mpa(mpa)
-                .likesFromUsers(idLikes)
-                .build();
-    }
-
-    /**
-     * Метод для маппинга полей рейтинга фильма из таблицы в объект
-     */
-    private Mpa mapRowToMpa(ResultSet resultSet, int rowNum) throws SQLException {
-        return Mpa.builder()
-                .id(resultSet.getInt("RATING_MPAA_ID"))
-                .name(resultSet.getString("NAME"))
+                .mpa(Mpa.builder().id(resultSet.getInt("RATING_MPAA_ID")).build())
                 .build();
     }
 }
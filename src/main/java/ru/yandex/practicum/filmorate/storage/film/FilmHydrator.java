@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Класс для пакетной загрузки связанных с фильмами данных (рейтинг mpa, жанры, лайки).
+ * Данные подгружаются для всей страницы фильмов фиксированным числом запросов, а не отдельным запросом на каждую строку.
+ * Названия рейтингов и жанров берутся из справочников в памяти и к БД не обращаются
+ */
+@Component
+public class FilmHydrator {
+    /**
+     * Максимальное количество id фильмов в одном условии IN
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final MpaStorage mpaStorage;
+    private final GenreStorage genreStorage;
+
+    @Autowired
+    public FilmHydrator(NamedParameterJdbcTemplate namedJdbcTemplate, MpaStorage mpaStorage,
+                        GenreStorage genreStorage) {
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.mpaStorage = mpaStorage;
+        this.genreStorage = genreStorage;
+    }
+
+    /**
+     * Метод для заполнения рейтинга mpa у всех переданных фильмов из справочника
+     */
+    public void fillMpa(List<Film> films) {
+        for (Film film : films) {
+            if (film.getMpa() != null) {
+                film.setMpa(mpaStorage.getById(film.getMpa().getId()));
+            }
+        }
+    }
+
+    /**
+     * Метод для заполнения множества id пользователей, лайкнувших фильм, у всех переданных фильмов
+     */
+    public void fillLikes(List<Film> films) {
+        Map<Long, Set<Long>> likesByFilm = new HashMap<>();
+        for (Film film : films) {
+            likesByFilm.put(film.getId(), new HashSet<>());
+        }
+
+        String sqlQuery = "SELECT FILM_ID, USER_ID FROM user_film_likes WHERE FILM_ID IN (:ids)";
+        for (List<Long> batch : partition(likesByFilm.keySet())) {
+            namedJdbcTemplate.query(sqlQuery, new MapSqlParameterSource("ids", batch), rs -> {
+                likesByFilm.get(rs.getLong("FILM_ID")).add(rs.getLong("USER_ID"));
+            });
+        }
+
+        for (Film film : films) {
+            film.setLikesFromUsers(likesByFilm.get(film.getId()));
+        }
+    }
+
+    /**
+     * Метод для заполнения жанров у всех переданных фильмов. Жанры упорядочиваются по их id
+     */
+    public void fillGenres(List<Film> films) {
+        Map<Long, LinkedHashSet<Genre>> genresByFilm = new HashMap<>();
+        for (Film film : films) {
+            genresByFilm.put(film.getId(), new LinkedHashSet<>());
+        }
+
+        String sqlQuery = "SELECT FILM_ID, GENRE_ID FROM film_genre WHERE FILM_ID IN (:ids) "
+                + "ORDER BY FILM_ID, GENRE_ID";
+        for (List<Long> batch : partition(genresByFilm.keySet())) {
+            namedJdbcTemplate.query(sqlQuery, new MapSqlParameterSource("ids", batch), rs -> {
+                Genre genre = genreStorage.getById(rs.getInt("GENRE_ID"));
+                if (genre != null) {
+                    genresByFilm.get(rs.getLong("FILM_ID")).add(genre);
+                }
+            });
+        }
+
+        for (Film film : films) {
+            film.setGenres(genresByFilm.get(film.getId()));
+        }
+    }
+
+    /**
+     * Метод для разбиения списка id на пачки, чтобы не превышать допустимый размер условия IN
+     */
+    private List<List<Long>> partition(Collection<Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        List<List<Long>> batches = new ArrayList<>();
+        for (int i = 0; i < idList.size(); i += BATCH_SIZE) {
+            batches.add(idList.subList(i, Math.min(i + BATCH_SIZE, idList.size())));
+        }
+        return batches;
+    }
+}
@@ -1,8 +1,11 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Интерфейс, описывающий логику работы с хранилищем для фильмов
@@ -13,10 +16,28 @@ public interface FilmStorage {
 
     Film update(Film film);
 
-    Film getById(Long id);
+    /**
+     * Получение фильма по id вместе с рейтингом, жанрами и id поставивших лайк пользователей.
+     * Удаленный фильм не возвращается
+     */
+    Optional<Film> findById(Long id);
+
+    /**
+     * Получение фильма по id или null, если фильма нет или он удален
+     */
+    default Film getById(Long id) {
+        return findById(id).orElse(null);
+    }
+
+    List<Film> getByIds(Collection<Long> ids);
 
     List<Film> getAll();
 
+    /**
+     * Получение страницы фильмов, упорядоченных по id, после фильма из курсора
+     */
+    List<Film> getPage(PageCursor after, int limit);
+
     void deleteAll();
 
     void delete(Long id);
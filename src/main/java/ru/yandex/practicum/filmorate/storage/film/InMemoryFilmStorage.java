@@ -3,10 +3,16 @@ package ru.yandex.practicum.filmorate.storage.film;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Класс, имплементирующий интерфейс для работы с хранилищем фильмов. Фильмы сохранаются в мапу
@@ -24,6 +30,19 @@ public class InMemoryFilmStorage implements FilmStorage {
         return new ArrayList<>(films.values());
     }
 
+    /**
+     * Метод, возвращающий страницу фильмов после фильма из курсора
+     */
+    @Override
+    public List<Film> getPage(PageCursor after, int limit) {
+        long afterId = after == null ? 0L : after.getId();
+        return films.values().stream()
+                .filter(film -> film.getId() > afterId)
+                .sorted(Comparator.comparing(Film::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Метод для создания нового фильма
      */
@@ -48,8 +67,19 @@ public class InMemoryFilmStorage implements FilmStorage {
      * Метод для получения информации о фильме по его id
      */
     @Override
-    public Film getById (Long id) {
-        return films.get(id);
+    public Optional<Film> findById(Long id) {
+        return Optional.ofNullable(films.get(id));
+    }
+
+    /**
+     * Метод для получения списка фильмов по их id
+     */
+    @Override
+    public List<Film> getByIds(Collection<Long> ids) {
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     /**
@@ -0,0 +1,283 @@
+package ru.yandex.practicum.filmorate.storage.friendship;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * Граф дружбы в памяти: для каждого пользователя - отсортированный массив id его друзей. Друзьями
+ * пользователя считаются пользователи, которых он добавил сам, и пользователи, подтвердившие дружбу с ним,
+ * как и в таблице friend_edge. Граф строится при старте приложения по таблице friend_edge
+ * и далее обновляется при каждом добавлении и удалении друга; если изменение выполняется внутри транзакции,
+ * граф обновляется только после ее фиксации. Массивы друзей не изменяются после публикации: изменение
+ * заменяет массив пользователя новым, поэтому чтение идет без блокировок. Удаленные пользователи из графа
+ * не исключаются и отфильтровываются при загрузке пользователей
+ */
+@Component
+@Slf4j
+public class FriendGraph {
+    private static final long[] EMPTY = new long[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Map<Long, long[]> friendsByUser = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FriendGraph(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Метод для построения графа по таблице friend_edge. Строки читаются в порядке первичного ключа,
+     * поэтому друзья каждого пользователя приходят подряд и уже отсортированными
+     */
+    @PostConstruct
+    public synchronized void rebuild() {
+        String sqlQuery = "SELECT USER_ID, FRIEND_ID FROM friend_edge ORDER BY USER_ID, FRIEND_ID";
+
+        FriendListCollector collector = new FriendListCollector();
+        jdbcTemplate.query(sqlQuery, collector);
+        Map<Long, long[]> graph = collector.finish();
+        friendsByUser = graph;
+        log.info("Граф дружбы построен, пользователей с друзьями: {}", graph.size());
+    }
+
+    /**
+     * Метод для добавления friendId в друзья userId
+     */
+    public void addFriend(Long userId, Long friendId) {
+        afterCommit(() -> update(userId, friendId, true));
+    }
+
+    /**
+     * Метод для удаления friendId из друзей userId. Друзья friendId не меняются
+     */
+    public void removeFriend(Long userId, Long friendId) {
+        afterCommit(() -> update(userId, friendId, false));
+    }
+
+    /**
+     * Метод для получения отсортированных id друзей пользователя. Массив нельзя изменять
+     */
+    public long[] getFriends(long userId) {
+        return friendsByUser.getOrDefault(userId, EMPTY);
+    }
+
+    /**
+     * Метод для получения отсортированных id общих друзей двух пользователей слиянием их массивов друзей
+     */
+    public long[] getCommonFriends(long userId, long otherUserId) {
+        long[] first = getFriends(userId);
+        long[] second = getFriends(otherUserId);
+        long[] result = new long[Math.min(first.length, second.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Метод для подбора возможных друзей: не друзей пользователя, упорядоченных по убыванию количества общих
+     * друзей, а при равенстве - по id. Кандидаты собираются обходом друзей друзей; у каждого друга берется
+     * не больше fanOut его друзей, начиная с зависящей от пары пользователей позиции, чтобы у популярных
+     * пользователей учитывались не только друзья с младшими id. Если обход не уложился в budgetNanos,
+     * кандидаты подбираются по уже обойденным друзьям
+     */
+    public long[] getSuggestions(long userId, int limit, int fanOut, long budgetNanos) {
+        long deadline = System.nanoTime() + budgetNanos;
+        long[] friends = getFriends(userId);
+        long visits = 0;
+        for (long friendId : friends) {
+            visits += Math.min(getFriends(friendId).length, fanOut);
+        }
+        Counter counter = new Counter((int) Math.min(visits, 1 << 20));
+        for (int i = 0; i < friends.length; i++) {
+            if ((i & 63) == 63 && System.nanoTime() - deadline > 0) {
+                log.debug("Подбор друзей пользователю с id = {} прерван по времени после {} из {} друзей",
+                        userId, i, friends.length);
+                break;
+            }
+            long[] next = getFriends(friends[i]);
+            if (next.length <= fanOut) {
+                for (long candidate : next) {
+                    counter.increment(candidate);
+                }
+            } else {
+                int index = (int) ((mix(userId ^ friends[i]) >>> 1) % next.length);
+                for (int j = 0; j < fanOut; j++) {
+                    counter.increment(next[index]);
+                    index = index + 1 == next.length ? 0 : index + 1;
+                }
+            }
+        }
+        return counter.top(limit, candidate -> candidate != userId && Arrays.binarySearch(friends, candidate) < 0);
+    }
+
+    private synchronized void update(long userId, long friendId, boolean add) {
+        long[] friends = getFriends(userId);
+        int index = Arrays.binarySearch(friends, friendId);
+        if (add && index < 0) {
+            int position = -index - 1;
+            long[] updated = new long[friends.length + 1];
+            System.arraycopy(friends, 0, updated, 0, position);
+            updated[position] = friendId;
+            System.arraycopy(friends, position, updated, position + 1, friends.length - position);
+            friendsByUser.put(userId, updated);
+        } else if (!add && index >= 0) {
+            if (friends.length == 1) {
+                friendsByUser.remove(userId);
+                return;
+            }
+            long[] updated = new long[friends.length - 1];
+            System.arraycopy(friends, 0, updated, 0, index);
+            System.arraycopy(friends, index + 1, updated, index, friends.length - index - 1);
+            friendsByUser.put(userId, updated);
+        }
+    }
+
+    private static long mix(long value) {
+        value *= 0x9E3779B97F4A7C15L;
+        return value ^ (value >>> 32);
+    }
+
+    /**
+     * Счетчик вхождений id на открытой адресации по примитивным массивам
+     */
+    private static final class Counter {
+        private long[] keys;
+        private int[] counts;
+        private int size;
+
+        Counter(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(expectedSize, 512) * 2 - 1) * 2;
+            keys = new long[capacity];
+            counts = new int[capacity];
+        }
+
+        void increment(long key) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            while (counts[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (counts[slot] == 0) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    counts[slot] = 1;
+                    grow();
+                    return;
+                }
+            }
+            counts[slot]++;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new long[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldCounts[i] != 0) {
+                    int slot = (int) mix(oldKeys[i]) & mask;
+                    while (counts[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        long[] top(int limit, LongPredicate filter) {
+            PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1, this::compare);
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (counts[slot] == 0 || heap.size() == limit && compare(slot, heap.peek()) <= 0
+                        || !filter.test(keys[slot])) {
+                    continue;
+                }
+                heap.add(slot);
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+            long[] result = new long[heap.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = keys[heap.poll()];
+            }
+            return result;
+        }
+
+        private int compare(int first, int second) {
+            int result = Integer.compare(counts[first], counts[second]);
+            return result != 0 ? result : Long.compare(keys[second], keys[first]);
+        }
+    }
+
+    /**
+     * Сборщик массивов друзей из строк friend_edge, упорядоченных по пользователю и другу
+     */
+    private static final class FriendListCollector implements RowCallbackHandler {
+        private final Map<Long, long[]> graph = new ConcurrentHashMap<>();
+        private long[] ids = new long[16];
+        private int size;
+        private long currentUserId;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long userId = rs.getLong("USER_ID");
+            if (size > 0 && userId != currentUserId) {
+                graph.put(currentUserId, Arrays.copyOf(ids, size));
+                size = 0;
+            }
+            currentUserId = userId;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = rs.getLong("FRIEND_ID");
+        }
+
+        Map<Long, long[]> finish() {
+            if (size > 0) {
+                graph.put(currentUserId, Arrays.copyOf(ids, size));
+            }
+            return graph;
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -2,81 +2,140 @@ package ru.yandex.practicum.filmorate.storage.friendship;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Класс, имплементирующий интерфейс для работы с таблицей friendship в БД
+ * Класс, имплементирующий интерфейс для работы с таблицей friendship в БД. Состояние дружбы пары хранится
+ * в friendship, а в friend_edge для каждого пользователя хранится по строке на каждого его друга; обе таблицы
+ * изменяются в одной транзакции. Списки друзей читаются из графа дружбы в памяти, из БД загружаются
+ * только сами пользователи
  */
 @Slf4j
 @Component
 public class FriendshipDbStorage implements FriendshipStorage {
+    /**
+     * Максимальное количество id пользователей в одном условии IN
+     */
+    private static final int BATCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final FriendGraph friendGraph;
+    private final int suggestionsFanOut;
+    private final long suggestionsBudgetNanos;
 
     @Autowired
-    public FriendshipDbStorage(JdbcTemplate jdbcTemplate) {
+    public FriendshipDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                               FriendGraph friendGraph,
+                               @Value("${filmorate.friends.suggestions.fan-out:200}") int suggestionsFanOut,
+                               @Value("${filmorate.friends.suggestions.time-budget-ms:5}") long suggestionsBudgetMs) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.friendGraph = friendGraph;
+        this.suggestionsFanOut = suggestionsFanOut;
+        this.suggestionsBudgetNanos = TimeUnit.MILLISECONDS.toNanos(suggestionsBudgetMs);
     }
 
     /**
-     * Метод добавления в друзья
+     * Метод добавления в друзья одним запросом MERGE по паре пользователей: если второй пользователь уже
+     * добавил первого, дружба подтверждается, если строки пары нет - она добавляется неподтвержденной.
+     * Уникальный индекс по паре не дает двум одновременным запросам добавить две строки; проигравший
+     * запрос получает ошибку уникальности и повторяется, попадая уже в ветку подтверждения. Id дружбы
+     * возвращается из строки friend_edge, записанной тем же запросом MERGE
      */
     @Override
-    public void addToFriends(Long userId, Long friendId) {
-        if (!checkIfFriendsAtAll(userId, friendId)) {
-            if (checkIfFriendsAtAll(friendId, userId)) {
-                if (!checkIfConfirmedFriends(friendId, userId)) {
-                    String sqlQuery = "UPDATE friendship SET CONFIRMED = true WHERE USER_ID = ? AND FRIEND_ID = ?";
-                    jdbcTemplate.update(sqlQuery, friendId, userId);
-                }
-            } else {
-                String sqlQuery = "INSERT INTO friendship (USER_ID, FRIEND_ID, CONFIRMED)  VALUES (?, ?, false)";
-                jdbcTemplate.update(sqlQuery, userId, friendId);
-            }
+    @Transactional
+    public Long addToFriends(Long userId, Long friendId) {
+        String sqlQuery = "MERGE INTO friendship f "
+                + "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT))) AS p (USER_ID, FRIEND_ID) "
+                + "ON f.USER_LOW_ID = LEAST(p.USER_ID, p.FRIEND_ID) "
+                + "AND f.USER_HIGH_ID = GREATEST(p.USER_ID, p.FRIEND_ID) "
+                + "WHEN MATCHED AND f.USER_ID = p.FRIEND_ID AND NOT f.CONFIRMED THEN UPDATE SET CONFIRMED = true "
+                + "WHEN NOT MATCHED THEN INSERT (USER_ID, FRIEND_ID, CONFIRMED) VALUES (p.USER_ID, p.FRIEND_ID, false)";
+        try {
+            jdbcTemplate.update(sqlQuery, userId, friendId);
+        } catch (DuplicateKeyException e) {
+            jdbcTemplate.update(sqlQuery, userId, friendId);
         }
+        String sqlQueryEdge = "SELECT FRIENDSHIP_ID FROM FINAL TABLE ("
+                + "MERGE INTO friend_edge (USER_ID, FRIEND_ID, FRIENDSHIP_ID) KEY (USER_ID, FRIEND_ID) "
+                + "SELECT CAST(? AS BIGINT), CAST(? AS BIGINT), FRIENDSHIP_ID FROM friendship "
+                + "WHERE USER_LOW_ID = ? AND USER_HIGH_ID = ?)";
+        List<Long> friendshipIds = jdbcTemplate.queryForList(sqlQueryEdge, Long.class, userId, friendId,
+                Math.min(userId, friendId), Math.max(userId, friendId));
+        friendGraph.addFriend(userId, friendId);
+        return friendshipIds.isEmpty() ? null : friendshipIds.get(0);
     }
 
     /**
-     * Метод для проверки являются ли пользователи обоюдными друзьями
+     * Метод для получения друзей пользователя
      */
-    private boolean checkIfConfirmedFriends(Long userId, Long friendId) {
-        String sqlQuery = "SELECT * FROM friendship WHERE USER_ID = ? AND FRIEND_ID = ?";
-        SqlRowSet row = jdbcTemplate.queryForRowSet(sqlQuery, userId, friendId);
-        row.next();
-        return row.getBoolean("CONFIRMED");
+    @Override
+    public List<User> getFriendsForUser(Long userId) {
+        return getByIds(friendGraph.getFriends(userId), 0, Integer.MAX_VALUE);
     }
 
     /**
-     * Метод для проверки являются ли пользователи неподтвержденными друзьями
+     * Метод для получения страницы друзей пользователя после друга из курсора. Позиция друга из курсора
+     * ищется бинарным поиском в отсортированном массиве друзей
      */
-    private boolean checkIfFriendsAtAll(Long userId, Long friendId) {
-        String sqlQuery = "SELECT * FROM friendship WHERE USER_ID = ? AND FRIEND_ID = ?";
-        SqlRowSet row = jdbcTemplate.queryForRowSet(sqlQuery, userId, friendId);
-        int rowCount = 0;
-        while (row.next()) {
-            rowCount++;
+    @Override
+    public List<User> getFriendsForUser(Long userId, PageCursor after, int limit) {
+        long[] friends = friendGraph.getFriends(userId);
+        int from = 0;
+        if (after != null) {
+            int index = Arrays.binarySearch(friends, after.getId());
+            from = index >= 0 ? index + 1 : -index - 1;
         }
-        return rowCount != 0;
+        return getByIds(friends, from, limit);
     }
 
     /**
-     * Метод для получения друзей пользователя
+     * Метод для загрузки не удаленных пользователей по id, начиная с позиции from, не более limit.
+     * Пользователи загружаются пакетами не больше BATCH_SIZE id и не больше недостающего до limit количества,
+     * чтобы удаленные пользователи не уменьшали страницу; порядок id сохраняется
      */
-    @Override
-    public List<User> getFriendsForUser(Long userId) {
-        String sqlQuery = "SELECT * FROM (SELECT USER_ID AS user_id FROM friendship "
-                + "WHERE FRIEND_ID = ? AND CONFIRMED = true "
-                + "UNION ALL "
-                + "SELECT FRIEND_ID AS user_id FROM friendship "
-                + "WHERE USER_ID = ?) AS users_id INNER JOIN users u "
-                + "ON u.USER_ID = users_id.user_id AND (NOT u.is_delete)";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToUser, userId, userId);
+    private List<User> getByIds(long[] ids, int from, int limit) {
+        List<User> users = new ArrayList<>();
+        String sqlQuery = "SELECT USER_ID, EMAIL, LOGIN, NAME, BIRTHDAY FROM users "
+                + "WHERE USER_ID IN (:ids) AND NOT is_delete";
+        int i = from;
+        while (i < ids.length && users.size() < limit) {
+            int to = i + Math.min(BATCH_SIZE, Math.min(limit - users.size(), ids.length - i));
+            List<Long> batch = new ArrayList<>();
+            for (; i < to; i++) {
+                batch.add(ids[i]);
+            }
+            Map<Long, User> usersById = new HashMap<>();
+            for (User user : namedJdbcTemplate.query(sqlQuery, new MapSqlParameterSource("ids", batch),
+                    this::mapRowToUser)) {
+                usersById.put(user.getId(), user);
+            }
+            for (Long id : batch) {
+                User user = usersById.get(id);
+                if (user != null) {
+                    users.add(user);
+                }
+            }
+        }
+        return users;
     }
 
     /**
@@ -93,47 +152,84 @@ public class FriendshipDbStorage implements FriendshipStorage {
     }
 
     /**
-     * Метод для получения общих друзей двух пользователей
+     * Метод для получения общих друзей двух пользователей слиянием отсортированных массивов их друзей
      */
     @Override
     public List<User> getCommonFriends(Long userId, Long otherUserId) {
+        return getByIds(friendGraph.getCommonFriends(userId, otherUserId), 0, Integer.MAX_VALUE);
+    }
 
-        String sqlQuery = "SELECT * FROM ((SELECT USER_ID AS user_id FROM friendship "
-                + "WHERE (FRIEND_ID = ?) "
-                + "UNION ALL "
-                + "SELECT FRIEND_ID AS user_id FROM friendship "
-                + "WHERE USER_ID = ?) INTERSECT (SELECT USER_ID AS user_id "
-                + "FROM friendship WHERE FRIEND_ID = ? UNION ALL "
-                + "SELECT FRIEND_ID AS user_id FROM friendship "
-                + "WHERE USER_ID = ?)) AS common_friends "
-                + "INNER JOIN users u ON u.user_id = common_friends.user_id AND (NOT u.is_delete)";
-
-        return jdbcTemplate.query(sqlQuery, this::mapRowToUser, userId, userId, otherUserId, otherUserId);
+    /**
+     * Метод для получения возможных друзей пользователя обходом друзей друзей в графе дружбы. Из графа
+     * берется вдвое больше кандидатов, чтобы удаленные пользователи не уменьшали выдачу
+     */
+    @Override
+    public List<User> getFriendSuggestions(Long userId, int limit) {
+        long[] candidates = friendGraph.getSuggestions(userId, limit * 2, suggestionsFanOut, suggestionsBudgetNanos);
+        return getByIds(candidates, 0, limit);
     }
 
     /**
-     * Метод для удаления пользователя из друзей
+     * Метод для удаления пользователя из друзей одним запросом MERGE по паре пользователей: неподтвержденная
+     * заявка первого пользователя удаляется, а подтвержденная дружба становится неподтвержденной заявкой
+     * второго пользователя - строка пары при этом не пересоздается, а переворачивается на месте. Id дружбы
+     * возвращается из удаленной строки friend_edge
      */
     @Override
-    public void deleteFromFriends(Long userId, Long friendId) {
-        if (checkIfFriendsAtAll(friendId, userId)) {
-            if (checkIfConfirmedFriends(friendId, userId)) {
-                String sqlQuery = "UPDATE friendship SET CONFIRMED = false WHERE USER_ID = ? AND FRIEND_ID = ?";
-                jdbcTemplate.update(sqlQuery, friendId, userId);
-            }
-        } else {
-            if (checkIfFriendsAtAll(userId, friendId)) {
-                if (checkIfConfirmedFriends(userId, friendId)) {
-                    String sqlQueryDelete = "DELETE FROM friendship WHERE USER_ID = ? AND FRIEND_ID = ?";
-                    jdbcTemplate.update(sqlQueryDelete, userId, friendId);
-                    String sqlQueryInsert = "INSERT INTO friendship (USER_ID, FRIEND_ID, CONFIRMED)  "
-                            + "VALUES (?, ?, false)";
-                    jdbcTemplate.update(sqlQueryInsert, friendId, userId);
-                } else {
-                    String sqlQuery = "DELETE FROM friendship WHERE USER_ID = ? AND FRIEND_ID = ?";
-                    jdbcTemplate.update(sqlQuery, userId, friendId);
-                }
-            }
+    @Transactional
+    public Long deleteFromFriends(Long userId, Long friendId) {
+        String sqlQuery = "MERGE INTO friendship f "
+                + "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT))) AS p (USER_ID, FRIEND_ID) "
+                + "ON f.USER_LOW_ID = LEAST(p.USER_ID, p.FRIEND_ID) "
+                + "AND f.USER_HIGH_ID = GREATEST(p.USER_ID, p.FRIEND_ID) "
+                + "WHEN MATCHED AND f.USER_ID = p.USER_ID AND NOT f.CONFIRMED THEN DELETE "
+                + "WHEN MATCHED AND f.CONFIRMED THEN "
+                + "UPDATE SET USER_ID = p.FRIEND_ID, FRIEND_ID = p.USER_ID, CONFIRMED = false";
+        jdbcTemplate.update(sqlQuery, userId, friendId);
+        List<Long> friendshipIds = jdbcTemplate.queryForList("SELECT FRIENDSHIP_ID FROM OLD TABLE ("
+                + "DELETE FROM friend_edge WHERE USER_ID = ? AND FRIEND_ID = ?)", Long.class, userId, friendId);
+        friendGraph.removeFriend(userId, friendId);
+        return friendshipIds.isEmpty() ? null : friendshipIds.get(0);
+    }
+
+    /**
+     * Метод для объединения повторяющихся строк пары, оставшихся от хранения дружбы двумя строками: если
+     * у пары есть встречная строка, первая строка пары становится подтвержденной, остальные удаляются.
+     * После этого создается уникальный индекс по паре. Если индекс уже есть, повторов быть не может,
+     * и таблица не просматривается
+     */
+    @Override
+    public int mergeDuplicatePairs() {
+        Integer indexes = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES "
+                + "WHERE TABLE_NAME = 'FRIENDSHIP' AND INDEX_NAME = 'FRIENDSHIP_PAIR_UINDEX'", Integer.class);
+        if (indexes != null && indexes > 0) {
+            return 0;
         }
+        jdbcTemplate.update("UPDATE friendship f SET CONFIRMED = true "
+                + "WHERE EXISTS (SELECT 1 FROM friendship d "
+                + "WHERE d.USER_ID = f.FRIEND_ID AND d.FRIEND_ID = f.USER_ID AND d.FRIENDSHIP_ID > f.FRIENDSHIP_ID)");
+        int removed = jdbcTemplate.update("DELETE FROM friendship f "
+                + "WHERE EXISTS (SELECT 1 FROM friendship d WHERE d.USER_LOW_ID = f.USER_LOW_ID "
+                + "AND d.USER_HIGH_ID = f.USER_HIGH_ID AND d.FRIENDSHIP_ID < f.FRIENDSHIP_ID)");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS friendship_pair_uindex "
+                + "ON friendship (USER_LOW_ID, USER_HIGH_ID)");
+        return removed;
+    }
+
+    /**
+     * Метод для добавления в friend_edge строк, которых не хватает по таблице friendship: строки
+     * пользователя, добавившего друга, и для подтвержденной дружбы - строки второго пользователя
+     */
+    @Override
+    public int rebuildFriendEdges() {
+        String sqlQuery = "INSERT INTO friend_edge (USER_ID, FRIEND_ID, FRIENDSHIP_ID) "
+                + "SELECT e.USER_ID, e.FRIEND_ID, e.FRIENDSHIP_ID "
+                + "FROM (SELECT USER_ID, FRIEND_ID, FRIENDSHIP_ID FROM friendship "
+                + "UNION ALL "
+                + "SELECT FRIEND_ID, USER_ID, FRIENDSHIP_ID FROM friendship WHERE CONFIRMED) e "
+                + "WHERE NOT EXISTS (SELECT 1 FROM friend_edge fe "
+                + "WHERE fe.USER_ID = e.USER_ID AND fe.FRIEND_ID = e.FRIEND_ID)";
+
+        return jdbcTemplate.update(sqlQuery);
     }
 }
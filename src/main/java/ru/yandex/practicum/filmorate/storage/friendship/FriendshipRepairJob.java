@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage.friendship;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Задача для восстановления таблиц дружбы при старте приложения. Повторяющиеся строки пар объединяются
+ * всегда, пока нет уникального индекса по паре, так как без них индекс не создать. Недостающие строки
+ * friend_edge добавляются, если это не отключено настройкой filmorate.friendship.repair-on-startup
+ */
+@Component
+@Slf4j
+public class FriendshipRepairJob implements ApplicationRunner {
+    private final FriendshipStorage friendshipStorage;
+    private final FriendGraph friendGraph;
+    private final boolean repairOnStartup;
+
+    public FriendshipRepairJob(@Qualifier("friendshipDbStorage") FriendshipStorage friendshipStorage,
+                               FriendGraph friendGraph,
+                               @Value("${filmorate.friendship.repair-on-startup:true}") boolean repairOnStartup) {
+        this.friendshipStorage = friendshipStorage;
+        this.friendGraph = friendGraph;
+        this.repairOnStartup = repairOnStartup;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int merged = friendshipStorage.mergeDuplicatePairs();
+        if (merged > 0) {
+            log.info("Объединены повторяющиеся пары дружбы, удалено строк: {}", merged);
+        }
+        if (repairOnStartup) {
+            repair();
+        }
+    }
+
+    /**
+     * Метод для добавления недостающих строк друзей. Если строки добавлены, граф дружбы перестраивается
+     */
+    public int repair() {
+        int repaired = friendshipStorage.rebuildFriendEdges();
+        if (repaired > 0) {
+            friendGraph.rebuild();
+        }
+        log.info("Восстановлены строки друзей, добавлено строк: {}", repaired);
+        return repaired;
+    }
+}
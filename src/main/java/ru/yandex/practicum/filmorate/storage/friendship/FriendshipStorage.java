@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage.friendship;
 
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
@@ -8,11 +9,39 @@ import java.util.List;
  * Интерфейс, описывающий логику работы с хранилищем для дружбы пользователей
  */
 public interface FriendshipStorage {
-    void addToFriends(Long userId, Long friendId);
+    /**
+     * Добавление friendId в друзья userId. Возвращает id дружбы пары или null, если хранилище его не ведет
+     */
+    Long addToFriends(Long userId, Long friendId);
 
     List<User> getFriendsForUser(Long userId);
 
+    /**
+     * Получение страницы друзей пользователя, упорядоченных по id, после друга из курсора
+     */
+    List<User> getFriendsForUser(Long userId, PageCursor after, int limit);
+
     List<User> getCommonFriends(Long userId, Long otherUserId);
 
-    void deleteFromFriends(Long userId, Long friendId);
+    /**
+     * Получение не более limit возможных друзей пользователя, упорядоченных по убыванию количества общих друзей
+     */
+    List<User> getFriendSuggestions(Long userId, int limit);
+
+    /**
+     * Удаление friendId из друзей userId. Возвращает id дружбы, из которой удален друг, или null,
+     * если friendId не был другом userId
+     */
+    Long deleteFromFriends(Long userId, Long friendId);
+
+    /**
+     * Объединение повторяющихся строк одной пары пользователей и создание уникального индекса по паре,
+     * если его еще нет. Возвращает количество удаленных строк
+     */
+    int mergeDuplicatePairs();
+
+    /**
+     * Добавление недостающих строк друзей по состоянию дружбы пар. Возвращает количество добавленных строк
+     */
+    int rebuildFriendEdges();
 }
@@ -2,13 +2,17 @@ package ru.yandex.practicum.filmorate.storage.friendship;
 
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Класс, имплементирующий интерфейс для работы с хранилищем друзей пользователей
@@ -25,13 +29,14 @@ public class InMemoryFriendshipStorage implements FriendshipStorage {
      * Метод для добавления пользователя в друзья
      */
     @Override
-    public void addToFriends(Long userId, Long friendId) {
+    public Long addToFriends(Long userId, Long friendId) {
         Set<Long> idFriendsForUser = new HashSet<>();
         if (userStorage.getById(userId).getFriends() != null) {
             idFriendsForUser = userStorage.getById(userId).getFriends();
         }
         idFriendsForUser.add(friendId);
         userStorage.getById(userId).setFriends(idFriendsForUser);
+        return null; // id дружбы в памяти не ведется
     }
 
     /**
@@ -48,6 +53,19 @@ public class InMemoryFriendshipStorage implements FriendshipStorage {
         return friendsList;
     }
 
+    /**
+     * Метод получения страницы друзей пользователя после друга из курсора
+     */
+    @Override
+    public List<User> getFriendsForUser(Long userId, PageCursor after, int limit) {
+        long afterId = after == null ? 0L : after.getId();
+        return getFriendsForUser(userId).stream()
+                .filter(user -> user.getId() > afterId)
+                .sorted(Comparator.comparing(User::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Метод для получения списка общий друзей двух пользователей
      */
@@ -67,16 +85,47 @@ public class InMemoryFriendshipStorage implements FriendshipStorage {
         }
     }
 
+    /**
+     * Метод для получения возможных друзей пользователя по количеству общих друзей
+     */
+    @Override
+    public List<User> getFriendSuggestions(Long userId, int limit) {
+        Set<Long> friends = userStorage.getById(userId).getFriends() == null
+                ? Set.of() : userStorage.getById(userId).getFriends();
+        Map<Long, Long> mutualFriends = friends.stream()
+                .map(userStorage::getById)
+                .filter(friend -> friend.getFriends() != null)
+                .flatMap(friend -> friend.getFriends().stream())
+                .filter(id -> !id.equals(userId) && !friends.contains(id))
+                .collect(Collectors.groupingBy(id -> id, Collectors.counting()));
+        return mutualFriends.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(entry -> userStorage.getById(entry.getKey()))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Метод для удаления пользователя из друзей
      */
     @Override
-    public void deleteFromFriends(Long userId, Long friendId) {
+    public Long deleteFromFriends(Long userId, Long friendId) {
         Set<Long> idFriendsForUser = new HashSet<>();
         if (userStorage.getById(userId).getFriends() != null) {
             idFriendsForUser = userStorage.getById(userId).getFriends();
         }
         idFriendsForUser.remove(friendId);
         userStorage.getById(userId).setFriends(idFriendsForUser);
+        return null; // id дружбы в памяти не ведется
+    }
+
+    @Override
+    public int mergeDuplicatePairs() {
+        return 0; // друзья хранятся множеством у пользователя, повторяющихся пар не бывает
+    }
+
+    @Override
+    public int rebuildFriendEdges() {
+        return 0; // отдельного списка друзей, который нужно восстанавливать, нет
     }
 }
@@ -1,39 +1,57 @@
 package ru.yandex.practicum.filmorate.storage.genre;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
- * Класс, имплементирующий интерфейс для работы с таблицей genre в БД
+ * Класс, имплементирующий интерфейс для работы с таблицей genre в БД. Справочник жанров не меняется
+ * во время работы приложения, поэтому он целиком загружается при старте и все запросы обслуживаются из памяти.
+ * Все вызывающие получают одни и те же неизменяемые экземпляры жанров. Перечитать справочник можно методом reload
  */
 @Component
+@Slf4j
 public class GenreDbStorage implements GenreStorage {
     private final JdbcTemplate jdbcTemplate;
+    private volatile Map<Integer, Genre> genres = Map.of();
+    private volatile List<Genre> genreList = List.of();
 
     @Autowired
     public GenreDbStorage(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    /**
+     * Метод для загрузки справочника жанров из таблицы
+     */
+    @PostConstruct
+    public void reload() {
+        String sqlQuery = "SELECT * FROM GENRE ORDER BY GENRE_ID";
+        Map<Integer, Genre> loaded = new LinkedHashMap<>();
+        for (Genre genre : jdbcTemplate.query(sqlQuery, this::mapRowToGenre)) {
+            loaded.put(genre.getId(), genre);
+        }
+        genreList = List.copyOf(loaded.values());
+        genres = Map.copyOf(loaded);
+        log.debug("Загружен справочник жанров, записей: {}", genres.size());
+    }
+
     /**
      * Метод для получения объекта жанра по его id
      */
     @Override
-    public Genre getById (int id) {
-        String sqlQuery = "SELECT * FROM GENRE WHERE GENRE_ID = ?";
-        SqlRowSet row = jdbcTemplate.queryForRowSet(sqlQuery, id);
-        if (row.next()) {
-            return jdbcTemplate.queryForObject(sqlQuery, this::mapRowToGenre, id);
-        } else {
-            return null;
-        }
+    public Optional<Genre> findById(int id) {
+        return Optional.ofNullable(genres.get(id));
     }
 
     /**
@@ -41,8 +59,7 @@ public class GenreDbStorage implements GenreStorage {
      */
     @Override
     public List<Genre> getAll () {
-        String sqlQuery = "SELECT * FROM GENRE";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToGenre);
+        return genreList;
     }
 
     /**
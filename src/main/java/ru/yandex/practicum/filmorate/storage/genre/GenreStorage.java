@@ -2,12 +2,23 @@ package ru.yandex.practicum.filmorate.storage.genre;
 
 import ru.yandex.practicum.filmorate.model.Genre;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Интерфейс, описывающий логику работы с хранилищем для жанров
  */
 public interface GenreStorage {
-    Genre getById(int id);
+    /**
+     * Получение жанра по id из справочника жанров
+     */
+    Optional<Genre> findById(int id);
+
+    /**
+     * Получение жанра по id или null, если такого жанра нет в справочнике
+     */
+    default Genre getById(int id) {
+        return findById(id).orElse(null);
+    }
 
     List<Genre> getAll();
 }
@@ -2,11 +2,15 @@ package ru.yandex.practicum.filmorate.storage.genrefilm;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -18,10 +22,15 @@ import java.util.stream.Collectors;
 @Component
 public class FilmGenreDbStorage implements FilmGenreStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final FilmCache filmCache;
 
     @Autowired
-    public FilmGenreDbStorage(JdbcTemplate jdbcTemplate) {
+    public FilmGenreDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                              FilmCache filmCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.filmCache = filmCache;
     }
 
     /**
@@ -31,6 +40,7 @@ public class FilmGenreDbStorage implements FilmGenreStorage {
     public void create(Long filmId, int genreId) {
         String sqlQuery = "INSERT INTO film_genre (FILM_ID, GENRE_ID) VALUES (?, ?)";
         jdbcTemplate.update(sqlQuery, filmId, genreId);
+        filmCache.invalidate(filmId);
     }
 
     /**
@@ -50,6 +60,7 @@ public class FilmGenreDbStorage implements FilmGenreStorage {
     public void deleteByFilmId(Long filmId) {
         String sqlQuery = "DELETE FROM film_genre WHERE FILM_ID = ?";
         jdbcTemplate.update(sqlQuery, filmId);
+        filmCache.invalidate(filmId);
     }
 
     @Override
@@ -63,6 +74,21 @@ public class FilmGenreDbStorage implements FilmGenreStorage {
 
     }
 
+    /**
+     * Метод для получения id не более limit самых популярных неудаленных фильмов хотя бы с одним из жанров
+     */
+    @Override
+    public List<Long> getPopularFilmIds(Collection<Integer> genreIds, int limit) {
+        if (genreIds.isEmpty()) {
+            return List.of();
+        }
+        String sqlQuery = "SELECT f.FILM_ID FROM film f WHERE (NOT f.is_delete) AND f.FILM_ID IN "
+                + "(SELECT fg.FILM_ID FROM film_genre fg WHERE fg.GENRE_ID IN (:genreIds)) "
+                + "ORDER BY f.likes_count DESC, f.FILM_ID LIMIT :limit";
+        return namedJdbcTemplate.queryForList(sqlQuery, new MapSqlParameterSource("genreIds", genreIds)
+                .addValue("limit", limit), Long.class);
+    }
+
     private Genre mapRowToGenre(ResultSet resultSet, int rowNum) throws SQLException {
         return Genre.builder()
                 .id(resultSet.getInt("genre_id"))
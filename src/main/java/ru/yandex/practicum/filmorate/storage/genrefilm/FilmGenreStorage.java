@@ -2,6 +2,8 @@ package ru.yandex.practicum.filmorate.storage.genrefilm;
 
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -15,4 +17,6 @@ public interface FilmGenreStorage {
     void deleteByFilmId(Long filmId);
 
     Set<Genre> getGenreList(Long filmId);
+
+    List<Long> getPopularFilmIds(Collection<Integer> genreIds, int limit);
 }
@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate.storage.leaderboard;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Класс, хранящий в памяти рейтинг популярности фильмов. Фильмы упорядочены по убыванию количества лайков,
+ * при равном количестве лайков - по имени, как в FilmComparator. Получение первых K фильмов стоит O(K)
+ * и не обращается к БД. Рейтинг строится при старте приложения по таблице user_film_likes и далее обновляется
+ * сервисом фильмов при каждом изменении лайков, создании, редактировании и удалении фильма.
+ * Изменения, выполненные в обход FilmService (напрямую через хранилища или SQL), в рейтинг не попадают:
+ * после них рейтинг нужно перестроить вызовом rebuild
+ */
+@Component
+@Slf4j
+public class FilmLeaderboard {
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::getLikes).reversed()
+            .thenComparing(Entry::getName)
+            .thenComparingLong(Entry::getFilmId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FilmLeaderboard(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Метод для построения рейтинга по таблицам film и user_film_likes
+     */
+    @PostConstruct
+    public void rebuild() {
+        String sqlQuery = "SELECT f.FILM_ID, f.NAME, COUNT(u.USER_ID) AS LIKES FROM film f "
+                + "LEFT OUTER JOIN user_film_likes u ON f.FILM_ID = u.FILM_ID "
+                + "WHERE NOT f.is_delete GROUP BY f.FILM_ID, f.NAME";
+
+        entries.clear();
+        ranking.clear();
+        jdbcTemplate.query(sqlQuery, rs -> {
+            put(new Entry(rs.getLong("FILM_ID"), rs.getString("NAME"), rs.getInt("LIKES")));
+        });
+        log.info("Рейтинг популярности фильмов построен, фильмов в рейтинге: {}", entries.size());
+    }
+
+    /**
+     * Метод для получения id первых count фильмов рейтинга
+     */
+    public List<Long> getTop(int count) {
+        List<Long> top = new ArrayList<>(Math.max(count, 0));
+        Set<Long> seen = new HashSet<>();
+        for (Entry entry : ranking) {
+            if (top.size() >= count) {
+                break;
+            }
+            // во время обновления фильм может кратковременно присутствовать в рейтинге дважды
+            if (entries.get(entry.getFilmId()) == entry && seen.add(entry.getFilmId())) {
+                top.add(entry.getFilmId());
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Метод для добавления в рейтинг нового фильма или изменения имени существующего
+     */
+    public void putFilm(Long filmId, String name) {
+        entries.compute(filmId, (id, old) -> {
+            return replace(old, new Entry(id, name, old == null ? 0 : old.getLikes()));
+        });
+    }
+
+    /**
+     * Метод для изменения количества лайков фильма на переданную величину
+     */
+    public void addLikes(Long filmId, int delta) {
+        entries.computeIfPresent(filmId, (id, old) -> {
+            return replace(old, new Entry(id, old.getName(), Math.max(old.getLikes() + delta, 0)));
+        });
+    }
+
+    /**
+     * Метод для удаления фильма из рейтинга
+     */
+    public void removeFilm(Long filmId) {
+        Entry old = entries.remove(filmId);
+        if (old != null) {
+            ranking.remove(old);
+        }
+    }
+
+    /**
+     * Метод для замены записи фильма в рейтинге. Если новая запись занимает в рейтинге то же место, что и старая,
+     * остается старая запись: иначе добавление новой записи не выполнится, а удаление старой уберет фильм
+     * из рейтинга
+     */
+    private Entry replace(Entry old, Entry entry) {
+        if (old != null && ORDER.compare(old, entry) == 0) {
+            return old;
+        }
+        ranking.add(entry);
+        if (old != null) {
+            ranking.remove(old);
+        }
+        return entry;
+    }
+
+    private void put(Entry entry) {
+        entries.put(entry.getFilmId(), entry);
+        ranking.add(entry);
+    }
+
+    /**
+     * Неизменяемая запись рейтинга. При изменении лайков или имени фильма запись заменяется новой
+     */
+    private static final class Entry {
+        private final long filmId;
+        private final String name;
+        private final int likes;
+
+        private Entry(long filmId, String name, int likes) {
+            this.filmId = filmId;
+            this.name = name == null ? "" : name;
+            this.likes = likes;
+        }
+
+        private long getFilmId() {
+            return filmId;
+        }
+
+        private String getName() {
+            return name;
+        }
+
+        private int getLikes() {
+            return likes;
+        }
+    }
+}
@@ -1,39 +1,56 @@
 package ru.yandex.practicum.filmorate.storage.mpa;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
- * Класс, имплементирующий интерфейс для работы с таблицей rating_mpaa в БД
+ * Класс, имплементирующий интерфейс для работы с таблицей rating_mpaa в БД. Справочник рейтингов загружается
+ * целиком при старте приложения и далее обслуживается из памяти, перечитать его можно методом reload
  */
 @Component
+@Slf4j
 public class MpaDbStorage implements MpaStorage {
     private final JdbcTemplate jdbcTemplate;
+    private volatile Map<Integer, Mpa> ratings = Map.of();
+    private volatile List<Mpa> ratingList = List.of();
 
     @Autowired
     public MpaDbStorage(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    /**
+     * Метод для загрузки справочника рейтингов из таблицы
+     */
+    @PostConstruct
+    public void reload() {
+        String sqlQuery = "SELECT * FROM RATING_MPAA ORDER BY RATING_MPAA_ID";
+        Map<Integer, Mpa> loaded = new LinkedHashMap<>();
+        for (Mpa mpa : jdbcTemplate.query(sqlQuery, this::mapRowToMpa)) {
+            loaded.put(mpa.getId(), mpa);
+        }
+        ratingList = List.copyOf(loaded.values());
+        ratings = Map.copyOf(loaded);
+        log.debug("Загружен справочник рейтингов, записей: {}", ratings.size());
+    }
+
     /**
      * Метод для получения объекта рейтинга по его id
      */
     @Override
-    public Mpa getById (int id) {
-        String sqlQuery = "SELECT * FROM RATING_MPAA WHERE RATING_MPAA_ID = ?";
-        SqlRowSet row = jdbcTemplate.queryForRowSet(sqlQuery, id);
-        if (row.next()) {
-            return jdbcTemplate.queryForObject(sqlQuery, this::mapRowToMpa, id);
-        } else {
-            return null;
-        }
+    public Optional<Mpa> findById(int id) {
+        return Optional.ofNullable(ratings.get(id));
     }
 
     /**
@@ -41,8 +58,7 @@ public class MpaDbStorage implements MpaStorage {
      */
     @Override
     public List<Mpa> getAll () {
-        String sqlQuery = "SELECT * FROM RATING_MPAA";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToMpa);
+        return ratingList;
     }
 
     /**
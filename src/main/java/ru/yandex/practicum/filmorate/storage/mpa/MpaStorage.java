@@ -3,12 +3,23 @@ package ru.yandex.practicum.filmorate.storage.mpa;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Интерфейс, описывающий логику работы с хранилищем для mpa рейтинга
  */
 public interface MpaStorage {
-    Mpa getById(int id);
+    /**
+     * Получение рейтинга mpa по id из справочника рейтингов
+     */
+    Optional<Mpa> findById(int id);
+
+    /**
+     * Получение рейтинга mpa по id или null, если такого рейтинга нет в справочнике
+     */
+    default Mpa getById(int id) {
+        return findById(id).orElse(null);
+    }
 
     List<Mpa> getAll();
 }
@@ -0,0 +1,249 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Модель матричного разложения лайков: векторы из factors чисел для каждого пользователя и фильма,
+ * скалярное произведение которых оценивает интерес пользователя к фильму. Векторы хранятся подряд
+ * в примитивных массивах в порядке возрастания id, поиск вектора по id выполняется двоичным поиском.
+ * Модель неизменяема, сохраняется в двоичный файл и загружается из него целиком
+ */
+public class AlsModel {
+    private static final int MAGIC = 0x414C5331;
+
+    private final int factors;
+    private final double regularization;
+    private final double alpha;
+    private final Instant trainedAt;
+    private final int[] userIds;
+    private final float[] userFactors;
+    private final int[] filmIds;
+    private final float[] filmFactors;
+    private final double[] filmGram;
+
+    public AlsModel(int factors, double regularization, double alpha, Instant trainedAt,
+                    int[] userIds, float[] userFactors, int[] filmIds, float[] filmFactors) {
+        if (userFactors.length != userIds.length * factors || filmFactors.length != filmIds.length * factors) {
+            throw new IllegalArgumentException("ALS factors do not match ids");
+        }
+        this.factors = factors;
+        this.regularization = regularization;
+        this.alpha = alpha;
+        this.trainedAt = trainedAt;
+        this.userIds = userIds;
+        this.userFactors = userFactors;
+        this.filmIds = filmIds;
+        this.filmFactors = filmFactors;
+        this.filmGram = gram(filmFactors, filmIds.length, factors);
+    }
+
+    public int getFactors() {
+        return factors;
+    }
+
+    public Instant getTrainedAt() {
+        return trainedAt;
+    }
+
+    public int getUserCount() {
+        return userIds.length;
+    }
+
+    public int getFilmCount() {
+        return filmIds.length;
+    }
+
+    /**
+     * Метод для проверки того, что модель обучена без пользователей или без фильмов и не может
+     * подбирать рекомендации
+     */
+    public boolean isEmpty() {
+        return userIds.length == 0 || filmIds.length == 0;
+    }
+
+    int getFilmId(int index) {
+        return filmIds[index];
+    }
+
+    float[] getFilmFactors() {
+        return filmFactors;
+    }
+
+    /**
+     * Метод для получения вектора пользователя. Для пользователя, которого не было при обучении,
+     * вектор вычисляется по его текущим лайкам при неизменных векторах фильмов. Если у такого пользователя
+     * нет лайков фильмам из модели, возвращается null
+     */
+    public float[] userVector(int userId, IdBitmap films) {
+        int index = Arrays.binarySearch(userIds, userId);
+        if (index >= 0) {
+            return Arrays.copyOfRange(userFactors, index * factors, (index + 1) * factors);
+        }
+        int[] liked = films.toArray();
+        int count = 0;
+        for (int film : liked) {
+            int filmIndex = Arrays.binarySearch(filmIds, film);
+            if (filmIndex >= 0) {
+                liked[count++] = filmIndex;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        float[] vector = new float[factors];
+        solve(filmGram, filmFactors, factors, Arrays.copyOf(liked, count), regularization, alpha, vector, 0);
+        return vector;
+    }
+
+    /**
+     * Метод для сохранения модели в файл. Модель пишется во временный файл, который затем заменяет прежний,
+     * чтобы при сбое записи не остался поврежденный файл
+     */
+    public void write(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * 4 + 8 * 3
+                + 4 * (userIds.length + filmIds.length + userFactors.length + filmFactors.length));
+        buffer.putInt(MAGIC)
+                .putInt(factors)
+                .putDouble(regularization)
+                .putDouble(alpha)
+                .putLong(trainedAt.toEpochMilli())
+                .putInt(userIds.length)
+                .putInt(filmIds.length);
+        buffer.asIntBuffer().put(userIds);
+        buffer.position(buffer.position() + 4 * userIds.length);
+        buffer.asIntBuffer().put(filmIds);
+        buffer.position(buffer.position() + 4 * filmIds.length);
+        buffer.asFloatBuffer().put(userFactors);
+        buffer.position(buffer.position() + 4 * userFactors.length);
+        buffer.asFloatBuffer().put(filmFactors);
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, buffer.array());
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Метод для загрузки модели из файла
+     */
+    public static AlsModel read(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.remaining() < 4 * 4 + 8 * 3 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not an ALS model file: " + path);
+        }
+        int factors = buffer.getInt();
+        double regularization = buffer.getDouble();
+        double alpha = buffer.getDouble();
+        Instant trainedAt = Instant.ofEpochMilli(buffer.getLong());
+        int users = buffer.getInt();
+        int films = buffer.getInt();
+        if (factors < 1 || users < 0 || films < 0
+                || buffer.remaining() != 4L * (users + films) * (1 + (long) factors)) {
+            throw new IOException("Corrupted ALS model file: " + path);
+        }
+        int[] userIds = new int[users];
+        int[] filmIds = new int[films];
+        float[] userFactors = new float[users * factors];
+        float[] filmFactors = new float[films * factors];
+        buffer.asIntBuffer().get(userIds);
+        buffer.position(buffer.position() + 4 * users);
+        buffer.asIntBuffer().get(filmIds);
+        buffer.position(buffer.position() + 4 * films);
+        buffer.asFloatBuffer().get(userFactors);
+        buffer.position(buffer.position() + 4 * userFactors.length);
+        buffer.asFloatBuffer().get(filmFactors);
+        return new AlsModel(factors, regularization, alpha, trainedAt, userIds, userFactors, filmIds, filmFactors);
+    }
+
+    /**
+     * Метод для вычисления матрицы Грама Y^T * Y по count векторам из factors чисел
+     */
+    static double[] gram(float[] vectors, int count, int factors) {
+        double[] gram = new double[factors * factors];
+        for (int row = 0; row < count; row++) {
+            int base = row * factors;
+            for (int i = 0; i < factors; i++) {
+                double value = vectors[base + i];
+                for (int j = 0; j <= i; j++) {
+                    gram[i * factors + j] += value * vectors[base + j];
+                }
+            }
+        }
+        for (int i = 0; i < factors; i++) {
+            for (int j = 0; j < i; j++) {
+                gram[j * factors + i] = gram[i * factors + j];
+            }
+        }
+        return gram;
+    }
+
+    /**
+     * Метод для вычисления вектора одной строки при неизменных векторах другой стороны по формуле
+     * неявной обратной связи: (Y^T * Y + alpha * Y_u^T * Y_u + regularization * I) * x = (1 + alpha) * Y_u^T * 1,
+     * где Y_u - векторы лайкнутых строкой элементов с индексами items. Система решается разложением Холецкого,
+     * результат записывается в target начиная с offset
+     */
+    static void solve(double[] gram, float[] vectors, int factors, int[] items, double regularization,
+                      double alpha, float[] target, int offset) {
+        double[] a = Arrays.copyOf(gram, gram.length);
+        double[] b = new double[factors];
+        for (int item : items) {
+            int base = item * factors;
+            for (int i = 0; i < factors; i++) {
+                double value = vectors[base + i];
+                b[i] += (1 + alpha) * value;
+                double weighted = alpha * value;
+                for (int j = 0; j <= i; j++) {
+                    a[i * factors + j] += weighted * vectors[base + j];
+                }
+            }
+        }
+        for (int i = 0; i < factors; i++) {
+            a[i * factors + i] += regularization;
+        }
+
+        for (int j = 0; j < factors; j++) {
+            double diagonal = a[j * factors + j];
+            for (int p = 0; p < j; p++) {
+                diagonal -= a[j * factors + p] * a[j * factors + p];
+            }
+            diagonal = Math.sqrt(diagonal);
+            a[j * factors + j] = diagonal;
+            for (int i = j + 1; i < factors; i++) {
+                double sum = a[i * factors + j];
+                for (int p = 0; p < j; p++) {
+                    sum -= a[i * factors + p] * a[j * factors + p];
+                }
+                a[i * factors + j] = sum / diagonal;
+            }
+        }
+        for (int i = 0; i < factors; i++) {
+            double sum = b[i];
+            for (int p = 0; p < i; p++) {
+                sum -= a[i * factors + p] * b[p];
+            }
+            b[i] = sum / a[i * factors + i];
+        }
+        for (int i = factors - 1; i >= 0; i--) {
+            double sum = b[i];
+            for (int p = i + 1; p < factors; p++) {
+                sum -= a[p * factors + i] * b[p];
+            }
+            b[i] = sum / a[i * factors + i];
+        }
+        for (int i = 0; i < factors; i++) {
+            target[offset + i] = (float) b[i];
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Класс, подбирающий рекомендации по модели матричного разложения лайков. Модель загружается при старте
+ * из файла filmorate.recommendations.als.model-path и заменяется после каждого обучения. Оценка каждого
+ * фильма модели - скалярное произведение вектора пользователя и вектора фильма; фильмы, которые пользователь
+ * уже лайкнул, пропускаются. Способ поиска задается настройкой filmorate.recommendations.als.search: при
+ * exact оцениваются все фильмы, которые делятся на диапазоны и проверяются в отдельном ForkJoinPool
+ * с параллелизмом из настройки filmorate.recommendations.parallelism, после чего лучшие фильмы диапазонов
+ * объединяются; при hnsw фильмы ищутся приближенно по индексу векторов фильмов, а пока он строится - полным
+ * перебором
+ */
+@Component
+@Slf4j
+public class AlsRecommendationEngine {
+    /**
+     * Количество фильмов, оцениваемых одной задачей без дальнейшего деления
+     */
+    private static final int PARTITION_SIZE = 4096;
+
+    private final LikeBitmapIndex likeBitmapIndex;
+    private final FilmEmbeddingIndex filmEmbeddingIndex;
+    private final boolean hnswSearch;
+    private final Path modelPath;
+    private final ForkJoinPool pool;
+    private volatile AlsModel model;
+
+    @Autowired
+    public AlsRecommendationEngine(LikeBitmapIndex likeBitmapIndex, FilmEmbeddingIndex filmEmbeddingIndex,
+                                   @Value("${filmorate.recommendations.als.model-path:./db/als-model.bin}")
+                                   String modelPath,
+                                   @Value("${filmorate.recommendations.als.search:exact}") String search,
+                                   @Value("${filmorate.recommendations.parallelism:0}") int parallelism) {
+        if (!search.equals("exact") && !search.equals("hnsw")) {
+            throw new IllegalStateException("Unknown ALS search: " + search);
+        }
+        this.likeBitmapIndex = likeBitmapIndex;
+        this.filmEmbeddingIndex = filmEmbeddingIndex;
+        this.hnswSearch = search.equals("hnsw");
+        this.modelPath = Paths.get(modelPath);
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    /**
+     * Метод для загрузки модели из файла, если он существует
+     */
+    @PostConstruct
+    public void load() {
+        if (!Files.exists(modelPath)) {
+            log.info("Файл модели ALS {} не найден, рекомендации ALS недоступны до обучения", modelPath);
+            return;
+        }
+        try {
+            AlsModel loaded = AlsModel.read(modelPath);
+            if (loaded.isEmpty()) {
+                log.info("Модель ALS в {} обучена без лайков, рекомендации ALS недоступны до обучения", modelPath);
+                return;
+            }
+            setModel(loaded);
+        } catch (IOException e) {
+            log.warn("Не удалось загрузить модель ALS из {}: {}", modelPath, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    public Path getModelPath() {
+        return modelPath;
+    }
+
+    /**
+     * Метод для замены модели, по которой подбираются рекомендации
+     */
+    public void setModel(AlsModel model) {
+        filmEmbeddingIndex.modelChanged(model);
+        this.model = model;
+        log.info("Модель ALS от {}: пользователей {}, фильмов {}, размерность {}", model.getTrainedAt(),
+                model.getUserCount(), model.getFilmCount(), model.getFactors());
+    }
+
+    /**
+     * Метод для получения времени обучения текущей модели. Пустой результат означает, что модели нет
+     * или она обучена без пользователей или фильмов
+     */
+    public Optional<Instant> getTrainedAt() {
+        AlsModel current = model;
+        return current == null || current.isEmpty() ? Optional.empty() : Optional.of(current.getTrainedAt());
+    }
+
+    /**
+     * Метод для получения id не более limit фильмов с наибольшей оценкой модели, которые пользователь
+     * еще не лайкнул. Если модели нет или у пользователя нет ни вектора, ни лайков фильмам модели,
+     * возвращается пустой список
+     */
+    public List<Long> recommend(Long userId, int limit) {
+        AlsModel current = model;
+        int user = IdBitmap.checkId(userId);
+        if (current == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+        return likeBitmapIndex.read(() -> {
+            IdBitmap own = likeBitmapIndex.getFilmsOfUser(user);
+            float[] vector = current.userVector(user, own);
+            if (vector == null) {
+                return new ArrayList<>();
+            }
+            int[] nearest = hnswSearch ? filmEmbeddingIndex.nearestToUser(vector, limit, own) : null;
+            if (nearest != null) {
+                List<Long> result = new ArrayList<>(nearest.length);
+                for (int film : nearest) {
+                    result.add((long) film);
+                }
+                return result;
+            }
+            return exact(current, vector, own, limit);
+        });
+    }
+
+    /**
+     * Метод для выбора limit фильмов с наибольшей оценкой полным перебором
+     */
+    private List<Long> exact(AlsModel current, float[] vector, IdBitmap own, int limit) {
+        TopTask task = new TopTask(current, vector, own, limit, 0, current.getFilmCount());
+        PriorityQueue<Long> top = pool == null || current.getFilmCount() <= PARTITION_SIZE
+                ? task.compute()
+                : pool.invoke(task);
+        long[] keys = top.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(keys);
+
+        List<Long> result = new ArrayList<>(keys.length);
+        for (int i = keys.length - 1; i >= 0; i--) {
+            result.add((long) current.getFilmId(Integer.MAX_VALUE - (int) (keys[i] & 0xFFFFFFFFL)));
+        }
+        return result;
+    }
+
+    /**
+     * Метод для упаковки оценки и индекса фильма в один long: старшие биты - оценка в виде int с тем же
+     * порядком, что и у float, включая отрицательные значения, младшие - инвертированный индекс, чтобы
+     * при равной оценке выше оказывался фильм с меньшим id
+     */
+    private static long key(int index, float score) {
+        int bits = Float.floatToIntBits(score);
+        bits ^= (bits >> 31) & Integer.MAX_VALUE;
+        return ((long) bits << 32) | (Integer.MAX_VALUE - index);
+    }
+
+    /**
+     * Задача оценки фильмов с индексами из диапазона [from, to). Возвращает не более limit лучших фильмов
+     * диапазона. Диапазоны больше PARTITION_SIZE делятся пополам
+     */
+    private static final class TopTask extends RecursiveTask<PriorityQueue<Long>> {
+        private final AlsModel model;
+        private final float[] vector;
+        private final IdBitmap own;
+        private final int limit;
+        private final int from;
+        private final int to;
+
+        private TopTask(AlsModel model, float[] vector, IdBitmap own, int limit, int from, int to) {
+            this.model = model;
+            this.vector = vector;
+            this.own = own;
+            this.limit = limit;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected PriorityQueue<Long> compute() {
+            if (to - from > PARTITION_SIZE) {
+                int middle = (from + to) >>> 1;
+                TopTask left = new TopTask(model, vector, own, limit, from, middle);
+                left.fork();
+                PriorityQueue<Long> right = new TopTask(model, vector, own, limit, middle, to).compute();
+                PriorityQueue<Long> result = left.join();
+                for (Long key : right) {
+                    offer(result, key);
+                }
+                return result;
+            }
+            PriorityQueue<Long> result = new PriorityQueue<>(limit + 1);
+            float[] films = model.getFilmFactors();
+            int factors = vector.length;
+            for (int index = from; index < to; index++) {
+                if (own.contains(model.getFilmId(index))) {
+                    continue;
+                }
+                float score = 0;
+                int base = index * factors;
+                for (int i = 0; i < factors; i++) {
+                    score += vector[i] * films[base + i];
+                }
+                offer(result, key(index, score));
+            }
+            return result;
+        }
+
+        private void offer(PriorityQueue<Long> top, long key) {
+            if (top.size() < limit) {
+                top.add(key);
+            } else if (key > top.peek()) {
+                top.poll();
+                top.add(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Класс, обучающий модель матричного разложения лайков методом чередующихся наименьших квадратов (ALS)
+ * для неявной обратной связи: лайк считается наблюдением с весом 1 + alpha, отсутствие лайка - нулем
+ * с весом 1. На каждой итерации векторы пользователей вычисляются при неизменных векторах фильмов, затем
+ * наоборот; строки одной стороны считаются параллельно. Обучение идет по снимку индекса лайков
+ */
+@Slf4j
+public class AlsTrainer {
+    private final int factors;
+    private final int iterations;
+    private final double regularization;
+    private final double alpha;
+    private final long seed;
+
+    public AlsTrainer(int factors, int iterations, double regularization, double alpha, long seed) {
+        if (factors < 1 || iterations < 1 || regularization <= 0 || alpha < 0) {
+            throw new IllegalArgumentException("Invalid ALS parameters");
+        }
+        this.factors = factors;
+        this.iterations = iterations;
+        this.regularization = regularization;
+        this.alpha = alpha;
+        this.seed = seed;
+    }
+
+    /**
+     * Метод для обучения модели по текущим лайкам индекса
+     */
+    public AlsModel train(LikeBitmapIndex likeBitmapIndex) {
+        long start = System.nanoTime();
+        Instant trainedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Snapshot snapshot = likeBitmapIndex.read(() -> snapshot(likeBitmapIndex));
+        int[] userIds = snapshot.userIds;
+        int[] filmIds = snapshot.filmIds;
+
+        float[] userFactors = new float[userIds.length * factors];
+        float[] filmFactors = new float[filmIds.length * factors];
+        SplittableRandom random = new SplittableRandom(seed);
+        double scale = 1 / Math.sqrt(factors);
+        for (int i = 0; i < filmFactors.length; i++) {
+            filmFactors[i] = (float) (random.nextDouble() * scale);
+        }
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            step(filmFactors, filmIds.length, userFactors, snapshot.filmsOfUser);
+            step(userFactors, userIds.length, filmFactors, snapshot.usersOfFilm);
+        }
+        log.info("Модель ALS обучена: пользователей {}, фильмов {}, размерность {}, итераций {}, за {} мс",
+                userIds.length, filmIds.length, factors, iterations,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new AlsModel(factors, regularization, alpha, trainedAt, userIds, userFactors, filmIds, filmFactors);
+    }
+
+    /**
+     * Метод для пересчета всех векторов одной стороны при неизменных векторах другой
+     */
+    private void step(float[] fixed, int fixedCount, float[] target, int[][] interactions) {
+        double[] gram = AlsModel.gram(fixed, fixedCount, factors);
+        IntStream.range(0, interactions.length).parallel().forEach(row ->
+                AlsModel.solve(gram, fixed, factors, interactions[row], regularization, alpha, target, row * factors));
+    }
+
+    /**
+     * Метод для копирования лайков индекса в массивы индексов строк. Вызывается только внутри read
+     */
+    private static Snapshot snapshot(LikeBitmapIndex likeBitmapIndex) {
+        int[] userIds = likeBitmapIndex.getUsers().toArray();
+        int[] filmIds = likeBitmapIndex.getFilms().toArray();
+        int[][] filmsOfUser = new int[userIds.length][];
+        for (int i = 0; i < userIds.length; i++) {
+            filmsOfUser[i] = positions(likeBitmapIndex.getFilmsOfUser(userIds[i]), filmIds);
+        }
+        int[][] usersOfFilm = new int[filmIds.length][];
+        for (int i = 0; i < filmIds.length; i++) {
+            usersOfFilm[i] = positions(likeBitmapIndex.getUsersOfFilm(filmIds[i]), userIds);
+        }
+        return new Snapshot(userIds, filmIds, filmsOfUser, usersOfFilm);
+    }
+
+    private static int[] positions(IdBitmap ids, int[] sortedIds) {
+        int[] positions = ids.toArray();
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = Arrays.binarySearch(sortedIds, positions[i]);
+        }
+        return positions;
+    }
+
+    /**
+     * Снимок лайков: отсортированные id пользователей и фильмов и для каждой строки индексы лайкнутых строк
+     * другой стороны
+     */
+    private static final class Snapshot {
+        private final int[] userIds;
+        private final int[] filmIds;
+        private final int[][] filmsOfUser;
+        private final int[][] usersOfFilm;
+
+        private Snapshot(int[] userIds, int[] filmIds, int[][] filmsOfUser, int[][] usersOfFilm) {
+            this.userIds = userIds;
+            this.filmIds = filmIds;
+            this.filmsOfUser = filmsOfUser;
+            this.usersOfFilm = usersOfFilm;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновое обучение модели ALS. Раз в filmorate.recommendations.als.train-interval-minutes модель обучается
+ * заново по индексу лайков, сохраняется в файл и передается движку рекомендаций ALS. Если при старте файла
+ * модели нет, первое обучение запускается сразу; пока лайков нет, обучение пропускается и модель не сохраняется.
+ * При нулевом интервале модель обучается только вызовом train
+ */
+@Component
+@Slf4j
+public class AlsTrainingJob {
+    private final LikeBitmapIndex likeBitmapIndex;
+    private final AlsRecommendationEngine alsRecommendationEngine;
+    private final AlsTrainer trainer;
+    private final long trainIntervalMinutes;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "als-training");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public AlsTrainingJob(LikeBitmapIndex likeBitmapIndex, AlsRecommendationEngine alsRecommendationEngine,
+                          @Value("${filmorate.recommendations.als.factors:32}") int factors,
+                          @Value("${filmorate.recommendations.als.iterations:10}") int iterations,
+                          @Value("${filmorate.recommendations.als.regularization:0.1}") double regularization,
+                          @Value("${filmorate.recommendations.als.alpha:10}") double alpha,
+                          @Value("${filmorate.recommendations.als.train-interval-minutes:0}")
+                          long trainIntervalMinutes) {
+        this.likeBitmapIndex = likeBitmapIndex;
+        this.alsRecommendationEngine = alsRecommendationEngine;
+        this.trainer = new AlsTrainer(factors, iterations, regularization, alpha, 42);
+        this.trainIntervalMinutes = trainIntervalMinutes;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (trainIntervalMinutes > 0) {
+            long initialDelay = alsRecommendationEngine.getTrainedAt().isPresent() ? trainIntervalMinutes : 0;
+            executor.scheduleWithFixedDelay(this::trainQuietly, initialDelay, trainIntervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Метод для обучения модели по текущим лайкам, ее сохранения в файл и передачи движку рекомендаций.
+     * Пока в индексе нет лайков, модель не обучается и текущая модель не заменяется
+     */
+    public synchronized Optional<AlsModel> train() throws IOException {
+        if (likeBitmapIndex.read(() -> likeBitmapIndex.getUsers().isEmpty())) {
+            log.info("Лайков пока нет, обучение модели ALS пропущено");
+            return Optional.empty();
+        }
+        AlsModel model = trainer.train(likeBitmapIndex);
+        model.write(alsRecommendationEngine.getModelPath());
+        alsRecommendationEngine.setModel(model);
+        return Optional.of(model);
+    }
+
+    private void trainQuietly() {
+        try {
+            train();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Не удалось обучить модель ALS: {}", e.getMessage());
+        }
+    }
+}
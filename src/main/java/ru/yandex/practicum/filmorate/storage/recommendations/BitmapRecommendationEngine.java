@@ -0,0 +1,191 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Класс, подбирающий рекомендации фильмов по индексу лайков в памяти. Кандидаты в похожие пользователи
+ * находятся источником из настройки filmorate.recommendations.candidates: точным (все, кто лайкнул хотя бы
+ * один фильм пользователя) или приближенным индексом LSH. Число общих лайков с каждым кандидатом
+ * считается пересечением сжатых множеств. Похожесть определяется правилом из настройки
+ * filmorate.recommendations.similarity. Рекомендуются фильмы похожих пользователей, которые пользователь
+ * еще не лайкнул, по убыванию количества лайков.
+ * Если кандидатов много, проверка похожести делится на диапазоны id пользователей и выполняется в отдельном
+ * ForkJoinPool с параллелизмом из настройки filmorate.recommendations.parallelism. Каждая задача собирает
+ * свои множества похожих пользователей и фильмов, которые затем объединяются при слиянии результатов задач
+ */
+@Component
+@Slf4j
+public class BitmapRecommendationEngine {
+    /**
+     * Количество кандидатов, проверяемых одной задачей без дальнейшего деления
+     */
+    private static final int PARTITION_SIZE = 1024;
+
+    private final LikeBitmapIndex likeBitmapIndex;
+    private final SimilarityStrategy similarityStrategy;
+    private final NeighbourCandidates neighbourCandidates;
+    private final ForkJoinPool pool;
+
+    @Autowired
+    public BitmapRecommendationEngine(LikeBitmapIndex likeBitmapIndex, List<SimilarityStrategy> strategies,
+                                      @Value("${filmorate.recommendations.similarity:majority}") String similarity,
+                                      List<NeighbourCandidates> sources,
+                                      @Value("${filmorate.recommendations.candidates:exact}") String candidates,
+                                      @Value("${filmorate.recommendations.parallelism:0}") int parallelism) {
+        this.likeBitmapIndex = likeBitmapIndex;
+        this.neighbourCandidates = sources.stream()
+                .filter(source -> source.getName().equals(candidates))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown neighbour candidates source: " + candidates));
+        this.similarityStrategy = strategies.stream()
+                .filter(strategy -> strategy.getName().equals(similarity))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown similarity strategy: " + similarity));
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        log.info("Правило похожести пользователей для рекомендаций: {}, кандидаты: {}, параллелизм: {}",
+                similarity, candidates, threads);
+    }
+
+    /**
+     * Конструктор движка с точным источником кандидатов
+     */
+    public BitmapRecommendationEngine(LikeBitmapIndex likeBitmapIndex, List<SimilarityStrategy> strategies,
+                                      String similarity, int parallelism) {
+        this(likeBitmapIndex, strategies, similarity, List.of(new ExactNeighbourCandidates(likeBitmapIndex)),
+                "exact", parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Метод для получения id не более limit рекомендованных пользователю фильмов
+     */
+    public List<Long> recommend(Long userId, int limit) {
+        return compute(userId, limit).getFilmIds();
+    }
+
+    /**
+     * Метод для подбора рекомендаций вместе с множеством пользователей, признанных похожими
+     */
+    public Recommendation compute(Long userId, int limit) {
+        int user = IdBitmap.checkId(userId);
+        return likeBitmapIndex.read(() -> {
+            IdBitmap own = likeBitmapIndex.getFilmsOfUser(user);
+            if (own.isEmpty()) {
+                return new Recommendation(new ArrayList<>(), new IdBitmap());
+            }
+
+            IdBitmap candidates = neighbourCandidates.find(user, own);
+            candidates.remove(user);
+
+            int[] neighbours = candidates.toArray();
+            ScanTask scan = new ScanTask(own, neighbours, 0, neighbours.length);
+            ScanResult result = pool == null || neighbours.length <= PARTITION_SIZE
+                    ? scan.compute()
+                    : pool.invoke(scan);
+            own.forEach(result.recommended::remove);
+            return new Recommendation(top(result.recommended, limit), result.similar);
+        });
+    }
+
+    /**
+     * Метод для выбора limit самых популярных фильмов множества. Количество лайков и id фильма упаковываются
+     * в один long, чтобы сортировать примитивный массив
+     */
+    private List<Long> top(IdBitmap films, int limit) {
+        long[] keys = new long[films.cardinality()];
+        int[] position = {0};
+        films.forEach(film -> {
+            long likes = likeBitmapIndex.getUsersOfFilm(film).cardinality();
+            keys[position[0]++] = ((Integer.MAX_VALUE - likes) << 32) | film;
+        });
+        Arrays.sort(keys);
+
+        List<Long> result = new ArrayList<>(Math.min(limit, keys.length));
+        for (int i = 0; i < keys.length && i < limit; i++) {
+            result.add(keys[i] & 0xFFFFFFFFL);
+        }
+        return result;
+    }
+
+    /**
+     * Результат подбора: id рекомендованных фильмов и id похожих пользователей
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Recommendation {
+        private final List<Long> filmIds;
+        private final IdBitmap neighbours;
+    }
+
+    /**
+     * Частичный результат проверки диапазона кандидатов: похожие пользователи и их фильмы
+     */
+    private static final class ScanResult {
+        private final IdBitmap similar = new IdBitmap();
+        private final IdBitmap recommended = new IdBitmap();
+
+        private ScanResult merge(ScanResult other) {
+            similar.addAll(other.similar);
+            recommended.addAll(other.recommended);
+            return this;
+        }
+    }
+
+    /**
+     * Задача проверки похожести кандидатов из диапазона [from, to) отсортированного массива id.
+     * Диапазоны больше PARTITION_SIZE делятся пополам
+     */
+    private final class ScanTask extends RecursiveTask<ScanResult> {
+        private final IdBitmap own;
+        private final int[] neighbours;
+        private final int from;
+        private final int to;
+
+        private ScanTask(IdBitmap own, int[] neighbours, int from, int to) {
+            this.own = own;
+            this.neighbours = neighbours;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ScanResult compute() {
+            if (to - from > PARTITION_SIZE) {
+                int middle = (from + to) >>> 1;
+                ScanTask left = new ScanTask(own, neighbours, from, middle);
+                left.fork();
+                ScanResult right = new ScanTask(own, neighbours, middle, to).compute();
+                return left.join().merge(right);
+            }
+            ScanResult result = new ScanResult();
+            int ownLikes = own.cardinality();
+            for (int i = from; i < to; i++) {
+                IdBitmap other = likeBitmapIndex.getFilmsOfUser(neighbours[i]);
+                if (similarityStrategy.isSimilar(ownLikes, other.cardinality(), own.andCardinality(other))) {
+                    result.similar.add(neighbours[i]);
+                    result.recommended.addAll(other);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Правило рекомендаций по косинусной мере: число общих лайков, деленное на среднее геометрическое
+ * количеств лайков пользователей. В отличие от правила большинства учитывает и размер множества лайков
+ * другого пользователя, поэтому пользователи, лайкнувшие почти все фильмы, не считаются похожими на всех
+ */
+@Component
+public class CosineSimilarity implements SimilarityStrategy {
+    private final double threshold;
+
+    @Autowired
+    public CosineSimilarity(@Value("${filmorate.recommendations.cosine-threshold:0.5}") double threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public String getName() {
+        return "cosine";
+    }
+
+    @Override
+    public double similarity(int ownLikes, int otherLikes, int commonLikes) {
+        if (ownLikes == 0 || otherLikes == 0) {
+            return 0;
+        }
+        return commonLikes / Math.sqrt((double) ownLikes * otherLikes);
+    }
+
+    @Override
+    public boolean isSimilar(int ownLikes, int otherLikes, int commonLikes) {
+        return commonLikes > 0 && similarity(ownLikes, otherLikes, commonLikes) >= threshold;
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Точный источник кандидатов: все пользователи, лайкнувшие хотя бы один фильм пользователя
+ */
+@Component
+public class ExactNeighbourCandidates implements NeighbourCandidates {
+    private final LikeBitmapIndex likeBitmapIndex;
+
+    @Autowired
+    public ExactNeighbourCandidates(LikeBitmapIndex likeBitmapIndex) {
+        this.likeBitmapIndex = likeBitmapIndex;
+    }
+
+    @Override
+    public String getName() {
+        return "exact";
+    }
+
+    @Override
+    public IdBitmap find(int userId, IdBitmap ownFilms) {
+        IdBitmap candidates = new IdBitmap();
+        ownFilms.forEach(film -> candidates.addAll(likeBitmapIndex.getUsersOfFilm(film)));
+        return candidates;
+    }
+}
@@ -0,0 +1,301 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Индекс HNSW по векторам фильмов из модели ALS для быстрого поиска фильмов с наибольшим скалярным
+ * произведением с вектором пользователя и фильмов, похожих на фильм. Граф строится по косинусному расстоянию:
+ * для пользователя из графа берутся ef ближайших по направлению фильмов, которые затем упорядочиваются
+ * по точному скалярному произведению, так что норма вектора (популярность фильма) учитывается при отборе
+ * из кандидатов. Индекс сохраняется в файл filmorate.recommendations.hnsw.path вместе со временем обучения модели
+ * и загружается из него, если модель не менялась; иначе строится заново в фоновом потоке, а до конца
+ * построения поиск недоступен. Новым фильмам вектор назначается как среднее векторов популярных фильмов
+ * тех же жанров, такие векторы переносятся в индекс следующей модели, пока у фильма не появится свой
+ */
+@Component
+@Slf4j
+public class FilmEmbeddingIndex {
+    private static final int MAGIC = 0x46454D42;
+
+    private final Path path;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final Set<Integer> coldStartFilms = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "film-embeddings");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Snapshot snapshot;
+    private volatile AlsModel latestModel;
+
+    @Autowired
+    public FilmEmbeddingIndex(@Value("${filmorate.recommendations.hnsw.path:./db/als-model.hnsw}") String path,
+                              @Value("${filmorate.recommendations.hnsw.m:16}") int m,
+                              @Value("${filmorate.recommendations.hnsw.ef-construction:100}") int efConstruction,
+                              @Value("${filmorate.recommendations.hnsw.ef-search:512}") int efSearch) {
+        this.path = Paths.get(path);
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+    }
+
+    /**
+     * Метод для остановки индекса. Если после сохранения в индекс добавлялись новые фильмы, индекс
+     * сохраняется заново
+     */
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        Snapshot current = snapshot;
+        if (current != null && current.changed) {
+            write(current);
+        }
+    }
+
+    /**
+     * Метод для получения признака того, что индекс построен по текущей модели
+     */
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Метод для перехода на новую модель. Если файл индекса построен по этой же модели, индекс загружается
+     * из него, иначе ставится в очередь на построение. Возвращает задачу построения или загрузки
+     */
+    public Future<?> modelChanged(AlsModel model) {
+        Snapshot previous = snapshot;
+        latestModel = model;
+        snapshot = null;
+        try {
+            return executor.submit(() -> {
+                if (latestModel != model) {
+                    return;
+                }
+                Snapshot loaded = load(model);
+                if (loaded == null) {
+                    loaded = build(model, previous);
+                    write(loaded);
+                }
+                if (latestModel == model) {
+                    snapshot = loaded;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Индекс векторов фильмов остановлен, модель не принята");
+            return null;
+        }
+    }
+
+    /**
+     * Метод для поиска не более k id фильмов с наибольшим скалярным произведением с вектором пользователя
+     * среди фильмов, которых нет в excluded. Из графа берутся ef ближайших по направлению фильмов, которые
+     * упорядочиваются по скалярному произведению; чтобы исключенные фильмы не вытеснили остальные, ef
+     * увеличивается на их число. Если индекс не построен, возвращается null
+     */
+    public int[] nearestToUser(float[] userVector, int k, IdBitmap excluded) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        int ef = Math.max(efSearch, k + excluded.cardinality());
+        int[] candidates = current.index.search(userVector, ef, ef, film -> !excluded.contains(film));
+        long[] keys = new long[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            keys[i] = key(current.index.innerProduct(candidates[i], userVector), i);
+        }
+        Arrays.sort(keys);
+        int[] result = new int[Math.min(k, keys.length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = candidates[(int) keys[keys.length - 1 - i]];
+        }
+        return result;
+    }
+
+    /**
+     * Метод для поиска не более count id фильмов, ближайших к фильму по векторам. Если индекс не построен,
+     * у фильма нет вектора или count меньше единицы, возвращается пустой список
+     */
+    public List<Long> getSimilar(Long filmId, int count) {
+        Snapshot current = snapshot;
+        int film = IdBitmap.checkId(filmId);
+        List<Long> result = new ArrayList<>();
+        float[] vector = current == null || count < 1 ? null : current.index.getVector(film);
+        if (vector == null) {
+            return result;
+        }
+        for (int id : current.index.search(vector, count + 1, Math.max(efSearch, count + 1), id -> id != film)) {
+            if (result.size() < count) {
+                result.add((long) id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Метод для добавления в индекс нового фильма с вектором, равным среднему векторов похожих фильмов.
+     * Фильм не добавляется, если индекс не построен или ни у одного из похожих фильмов нет вектора
+     */
+    public boolean addFilm(Long filmId, Collection<Long> similarFilms) {
+        Snapshot current = snapshot;
+        int film = IdBitmap.checkId(filmId);
+        if (current == null || current.index.contains(film)) {
+            return false;
+        }
+        int dimension = current.index.getDimension();
+        float[] centroid = new float[dimension];
+        int count = 0;
+        for (Long similar : similarFilms) {
+            float[] vector = current.index.getVector(IdBitmap.checkId(similar));
+            if (vector != null) {
+                for (int i = 0; i < dimension; i++) {
+                    centroid[i] += vector[i];
+                }
+                count++;
+            }
+        }
+        if (count == 0) {
+            return false;
+        }
+        for (int i = 0; i < dimension; i++) {
+            centroid[i] /= count;
+        }
+        current.index.add(film, centroid);
+        coldStartFilms.add(film);
+        current.changed = true;
+        return true;
+    }
+
+    /**
+     * Метод для построения индекса по векторам фильмов модели. Фильмы, добавленные с усредненным вектором,
+     * которых нет в модели, переносятся из прежнего индекса
+     */
+    private Snapshot build(AlsModel model, Snapshot previous) {
+        long start = System.nanoTime();
+        int factors = model.getFactors();
+        float[] vectors = model.getFilmFactors();
+        HnswIndex index = new HnswIndex(factors, m, efConstruction);
+        float[] vector = new float[factors];
+        for (int film = 0; film < model.getFilmCount(); film++) {
+            System.arraycopy(vectors, film * factors, vector, 0, factors);
+            index.add(model.getFilmId(film), vector);
+            coldStartFilms.remove(model.getFilmId(film));
+        }
+        if (previous != null) {
+            for (int film : coldStartFilms) {
+                float[] coldStart = previous.index.getVector(film);
+                if (coldStart != null && coldStart.length == factors) {
+                    index.add(film, coldStart);
+                }
+            }
+        }
+        log.info("Индекс HNSW векторов фильмов построен: фильмов {}, за {} мс", index.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new Snapshot(model.getTrainedAt().toEpochMilli(), index);
+    }
+
+    /**
+     * Метод для загрузки индекса из файла, если он построен по этой же модели
+     */
+    private Snapshot load(AlsModel model) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readLong() != model.getTrainedAt().toEpochMilli()) {
+                return null;
+            }
+            int coldStart = in.readInt();
+            for (int i = 0; i < coldStart; i++) {
+                coldStartFilms.add(in.readInt());
+            }
+            HnswIndex index = HnswIndex.read(in);
+            log.info("Индекс HNSW векторов фильмов загружен из {}: фильмов {}", path, index.size());
+            return new Snapshot(model.getTrainedAt().toEpochMilli(), index);
+        } catch (IOException e) {
+            log.warn("Не удалось загрузить индекс HNSW из {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Метод для сохранения индекса в файл. Индекс пишется во временный файл, который затем заменяет прежний
+     */
+    private void write(Snapshot snapshot) {
+        snapshot.changed = false;
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                    out.writeInt(MAGIC);
+                    out.writeLong(snapshot.trainedAt);
+                    List<Integer> coldStart = new ArrayList<>(coldStartFilms);
+                    out.writeInt(coldStart.size());
+                    for (int film : coldStart) {
+                        out.writeInt(film);
+                    }
+                    snapshot.index.write(out);
+                }
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось сохранить индекс HNSW в {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Метод для упаковки скалярного произведения и позиции кандидата в один long с тем же порядком,
+     * что и у произведения, включая отрицательные значения
+     */
+    private static long key(float score, int position) {
+        int bits = Float.floatToIntBits(score);
+        bits ^= (bits >> 31) & Integer.MAX_VALUE;
+        return ((long) bits << 32) | position;
+    }
+
+    /**
+     * Индекс, построенный по одной модели
+     */
+    private static final class Snapshot {
+        private final long trainedAt;
+        private final HnswIndex index;
+        private volatile boolean changed;
+
+        private Snapshot(long trainedAt, HnswIndex index) {
+            this.trainedAt = trainedAt;
+            this.index = index;
+        }
+    }
+}
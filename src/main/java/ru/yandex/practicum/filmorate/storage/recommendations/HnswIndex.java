@@ -0,0 +1,457 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Иерархический граф близости (HNSW) для приближенного поиска ближайших векторов по косинусному расстоянию
+ * 1 - cos(a, b).
+ * Каждый вектор попадает на случайное число уровней с экспоненциально убывающей вероятностью и на каждом
+ * уровне связывается не более чем с m (на нижнем уровне - 2 * m) близкими векторами, отобранными так, чтобы
+ * связи вели в разные стороны. Поиск жадно спускается по верхним уровням от точки входа, а на нижнем уровне
+ * просматривает ef ближайших кандидатов. Добавление выполняется под блокировкой на запись, поиск - под
+ * блокировкой на чтение, поэтому поиски идут параллельно
+ */
+public class HnswIndex {
+    private static final int MAGIC = 0x484E5357;
+
+    private final int dimension;
+    private final int m;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Integer> nodesById = new HashMap<>();
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+    private int[] ids = new int[16];
+    private float[] vectors;
+    private float[] inverseNorms = new float[16];
+    private int[][][] links = new int[16][][];
+    private int size;
+    private int entry = -1;
+    private int maxLevel = -1;
+
+    public HnswIndex(int dimension, int m, int efConstruction) {
+        if (dimension < 1 || m < 2 || efConstruction < 1) {
+            throw new IllegalArgumentException("Invalid HNSW parameters");
+        }
+        this.dimension = dimension;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.vectors = new float[16 * dimension];
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(int id) {
+        lock.readLock().lock();
+        try {
+            return nodesById.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод для получения копии вектора по id. Если вектора нет, возвращается null
+     */
+    public float[] getVector(int id) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodesById.get(id);
+            return node == null ? null : Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод для вычисления скалярного произведения вектора с id и запроса. Если вектора нет, возвращается NaN
+     */
+    public float innerProduct(int id, float[] query) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodesById.get(id);
+            if (node == null) {
+                return Float.NaN;
+            }
+            float sum = 0;
+            int base = node * dimension;
+            for (int i = 0; i < dimension; i++) {
+                sum += query[i] * vectors[base + i];
+            }
+            return sum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод для добавления вектора. Повторное добавление id игнорируется
+     */
+    public void add(int id, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Vector dimension " + vector.length + " != " + dimension);
+        }
+        lock.writeLock().lock();
+        try {
+            if (nodesById.containsKey(id)) {
+                return;
+            }
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            int node = allocate(id, vector, level);
+            if (entry < 0) {
+                entry = node;
+                maxLevel = level;
+                return;
+            }
+            float inverseNorm = inverseNorm(vector);
+            int current = entry;
+            float distance = distance(vector, inverseNorm, current);
+            for (int l = maxLevel; l > level; l--) {
+                long closest = greedy(vector, inverseNorm, current, distance, l);
+                current = (int) closest;
+                distance = Float.intBitsToFloat((int) (closest >>> 32));
+            }
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                List<Long> candidates = searchLayer(vector, inverseNorm, current, efConstruction, l);
+                int[] selected = selectNeighbours(candidates, maxLinks(l));
+                setLinks(node, l, selected);
+                for (int neighbour : selected) {
+                    connect(neighbour, node, l);
+                }
+                current = (int) (long) candidates.get(0);
+            }
+            if (level > maxLevel) {
+                entry = node;
+                maxLevel = level;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Метод для поиска не более k id ближайших к запросу векторов, которые принимает фильтр accept,
+     * в порядке возрастания расстояния. Параметр ef задает количество просматриваемых на нижнем уровне
+     * кандидатов: чем он больше, тем выше полнота и медленнее поиск
+     */
+    public int[] search(float[] query, int k, int ef, IntPredicate accept) {
+        lock.readLock().lock();
+        try {
+            if (entry < 0 || k <= 0) {
+                return new int[0];
+            }
+            float inverseNorm = inverseNorm(query);
+            int current = entry;
+            float distance = distance(query, inverseNorm, current);
+            for (int l = maxLevel; l > 0; l--) {
+                long closest = greedy(query, inverseNorm, current, distance, l);
+                current = (int) closest;
+                distance = Float.intBitsToFloat((int) (closest >>> 32));
+            }
+            List<Long> candidates = searchLayer(query, inverseNorm, current, Math.max(ef, k), 0);
+            int[] result = new int[Math.min(k, candidates.size())];
+            int count = 0;
+            for (int i = 0; i < candidates.size() && count < result.length; i++) {
+                int id = ids[(int) (long) candidates.get(i)];
+                if (accept.test(id)) {
+                    result[count++] = id;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод для сохранения графа и векторов в поток
+     */
+    public void write(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(dimension);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(size);
+            out.writeInt(entry);
+            out.writeInt(maxLevel);
+            for (int node = 0; node < size; node++) {
+                out.writeInt(ids[node]);
+                for (int i = 0; i < dimension; i++) {
+                    out.writeFloat(vectors[node * dimension + i]);
+                }
+                out.writeInt(links[node].length);
+                for (int[] level : links[node]) {
+                    out.writeInt(level[0]);
+                    for (int i = 1; i <= level[0]; i++) {
+                        out.writeInt(level[i]);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод для загрузки графа и векторов из потока
+     */
+    public static HnswIndex read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an HNSW index");
+        }
+        HnswIndex index = new HnswIndex(in.readInt(), in.readInt(), in.readInt());
+        int size = in.readInt();
+        int entry = in.readInt();
+        int maxLevel = in.readInt();
+        float[] vector = new float[index.dimension];
+        for (int node = 0; node < size; node++) {
+            int id = in.readInt();
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = in.readFloat();
+            }
+            int levels = in.readInt();
+            index.allocate(id, vector, levels - 1);
+            for (int l = 0; l < levels; l++) {
+                int count = in.readInt();
+                int[] neighbours = new int[count];
+                for (int i = 0; i < count; i++) {
+                    neighbours[i] = in.readInt();
+                }
+                index.setLinks(node, l, neighbours);
+            }
+        }
+        index.entry = entry;
+        index.maxLevel = maxLevel;
+        return index;
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    private int allocate(int id, float[] vector, int level) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            links = Arrays.copyOf(links, capacity);
+            vectors = Arrays.copyOf(vectors, capacity * dimension);
+            inverseNorms = Arrays.copyOf(inverseNorms, capacity);
+        }
+        int node = size++;
+        ids[node] = id;
+        System.arraycopy(vector, 0, vectors, node * dimension, dimension);
+        inverseNorms[node] = inverseNorm(vector);
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[maxLinks(l) + 1];
+        }
+        nodesById.put(id, node);
+        return node;
+    }
+
+    /**
+     * Метод для записи связей узла на уровне. Первый элемент массива связей - их количество
+     */
+    private void setLinks(int node, int level, int[] neighbours) {
+        int[] target = links[node][level];
+        target[0] = neighbours.length;
+        System.arraycopy(neighbours, 0, target, 1, neighbours.length);
+    }
+
+    /**
+     * Метод для добавления обратной связи. Если у соседа уже максимум связей, они отбираются заново
+     * вместе с новой
+     */
+    private void connect(int node, int neighbour, int level) {
+        int[] current = links[node][level];
+        if (current[0] < current.length - 1) {
+            current[++current[0]] = neighbour;
+            return;
+        }
+        List<Long> candidates = new ArrayList<>(current[0] + 1);
+        candidates.add(key(distance(node, neighbour), neighbour));
+        for (int i = 1; i <= current[0]; i++) {
+            candidates.add(key(distance(node, current[i]), current[i]));
+        }
+        Collections.sort(candidates);
+        setLinks(node, level, selectNeighbours(candidates, maxLinks(level)));
+    }
+
+    /**
+     * Метод для отбора не более count соседей из кандидатов, отсортированных по возрастанию расстояния.
+     * Кандидат берется, только если он ближе к узлу, чем к любому уже отобранному соседу
+     */
+    private int[] selectNeighbours(List<Long> candidates, int count) {
+        int[] selected = new int[Math.min(count, candidates.size())];
+        int size = 0;
+        for (int i = 0; i < candidates.size() && size < selected.length; i++) {
+            long candidate = candidates.get(i);
+            int node = (int) candidate;
+            float distance = Float.intBitsToFloat((int) (candidate >>> 32));
+            boolean diverse = true;
+            for (int j = 0; j < size && diverse; j++) {
+                diverse = distance(node, selected[j]) >= distance;
+            }
+            if (diverse) {
+                selected[size++] = node;
+            }
+        }
+        return Arrays.copyOf(selected, size);
+    }
+
+    /**
+     * Метод для жадного перехода к ближайшему к запросу узлу уровня. Возвращает узел и расстояние до него
+     */
+    private long greedy(float[] query, float inverseNorm, int start, float startDistance, int level) {
+        int current = start;
+        float distance = startDistance;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] neighbours = links[current][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float candidate = distance(query, inverseNorm, neighbours[i]);
+                if (candidate < distance) {
+                    distance = candidate;
+                    current = neighbours[i];
+                    changed = true;
+                }
+            }
+        }
+        return key(distance, current);
+    }
+
+    /**
+     * Метод для поиска ef ближайших к запросу узлов уровня от стартового узла. Возвращает ключи узлов
+     * в порядке возрастания расстояния
+     */
+    private List<Long> searchLayer(float[] query, float inverseNorm, int start, int ef, int level) {
+        Visited seen = visited.get();
+        seen.reset(size);
+        seen.mark(start);
+        long startKey = key(distance(query, inverseNorm, start), start);
+        PriorityQueue<Long> candidates = new PriorityQueue<>();
+        PriorityQueue<Long> nearest = new PriorityQueue<>(Collections.reverseOrder());
+        candidates.add(startKey);
+        nearest.add(startKey);
+        while (!candidates.isEmpty()) {
+            long closest = candidates.poll();
+            if (nearest.size() >= ef && closest > nearest.peek()) {
+                break;
+            }
+            int[] neighbours = links[(int) closest][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (seen.mark(neighbour)) {
+                    long neighbourKey = key(distance(query, inverseNorm, neighbour), neighbour);
+                    if (nearest.size() < ef || neighbourKey < nearest.peek()) {
+                        candidates.add(neighbourKey);
+                        nearest.add(neighbourKey);
+                        if (nearest.size() > ef) {
+                            nearest.poll();
+                        }
+                    }
+                }
+            }
+        }
+        List<Long> result = new ArrayList<>(nearest);
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Метод для упаковки неотрицательного расстояния и номера узла в один long с тем же порядком,
+     * что и у расстояний
+     */
+    private static long key(float distance, int node) {
+        return ((long) Float.floatToIntBits(distance) << 32) | node;
+    }
+
+    /**
+     * Метод для вычисления косинусного расстояния от запроса до узла. Из-за погрешности округления
+     * расстояние может оказаться чуть меньше нуля, поэтому оно ограничивается снизу нулем
+     */
+    private float distance(float[] query, float inverseNorm, int node) {
+        float sum = 0;
+        int base = node * dimension;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * vectors[base + i];
+        }
+        return Math.max(0, 1 - sum * inverseNorm * inverseNorms[node]);
+    }
+
+    private float distance(int first, int second) {
+        float sum = 0;
+        int a = first * dimension;
+        int b = second * dimension;
+        for (int i = 0; i < dimension; i++) {
+            sum += vectors[a + i] * vectors[b + i];
+        }
+        return Math.max(0, 1 - sum * inverseNorms[first] * inverseNorms[second]);
+    }
+
+    /**
+     * Метод для вычисления величины, обратной норме вектора. Для нулевого вектора возвращается 0,
+     * и он оказывается на расстоянии 1 от любого вектора
+     */
+    private float inverseNorm(float[] vector) {
+        double sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += vector[i] * vector[i];
+        }
+        return sum == 0 ? 0 : (float) (1 / Math.sqrt(sum));
+    }
+
+    /**
+     * Отметки посещенных узлов одного потока. Вместо очистки массива перед каждым поиском увеличивается
+     * номер поиска
+     */
+    private static final class Visited {
+        private int[] marks = new int[0];
+        private int epoch;
+
+        private void reset(int size) {
+            if (marks.length < size || epoch == Integer.MAX_VALUE) {
+                marks = new int[Math.max(size, marks.length)];
+                epoch = 0;
+            }
+            epoch++;
+        }
+
+        private boolean mark(int node) {
+            if (marks[node] == epoch) {
+                return false;
+            }
+            marks[node] = epoch;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Сжатое множество неотрицательных целых id. Устроено по схеме Roaring: id делятся на блоки по старшим
+ * 16 битам, и каждый блок хранится либо отсортированным массивом младших 16 бит (пока в нем не больше
+ * 4096 значений), либо битовой картой на 65536 бит. Разреженные множества лайков занимают по 2 байта
+ * на значение, а пересечение двух множеств считается без создания промежуточных коллекций.
+ * Класс не потокобезопасен
+ */
+public final class IdBitmap {
+    private static final int ARRAY_MAX_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[0];
+    private Container[] containers = new Container[0];
+    private int size;
+    private int cardinality;
+
+    /**
+     * Метод для проверки, что id можно хранить в множестве
+     */
+    public static int checkId(long id) {
+        if (id < 0 || id > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Id " + id + " is out of bitmap range");
+        }
+        return (int) id;
+    }
+
+    /**
+     * Метод для добавления id. Возвращает true, если id не было в множестве
+     */
+    public boolean add(int id) {
+        char key = (char) (id >>> 16);
+        int index = indexOf(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new ArrayContainer());
+        }
+        Container container = containers[index];
+        if (!container.add((char) id)) {
+            return false;
+        }
+        if (container instanceof ArrayContainer && container.cardinality() > ARRAY_MAX_SIZE) {
+            containers[index] = ((ArrayContainer) container).toBitmap();
+        }
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * Метод для удаления id. Возвращает true, если id был в множестве
+     */
+    public boolean remove(int id) {
+        int index = indexOf((char) (id >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        Container container = containers[index];
+        if (!container.remove((char) id)) {
+            return false;
+        }
+        if (container.cardinality() == 0) {
+            removeContainer(index);
+        } else if (container instanceof BitmapContainer && container.cardinality() <= ARRAY_MAX_SIZE / 2) {
+            containers[index] = ((BitmapContainer) container).toArray();
+        }
+        cardinality--;
+        return true;
+    }
+
+    public boolean contains(int id) {
+        int index = indexOf((char) (id >>> 16));
+        return index >= 0 && containers[index].contains((char) id);
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * Метод для подсчета размера пересечения с другим множеством
+     */
+    public int andCardinality(IdBitmap other) {
+        int result = 0;
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result += containers[i].andCardinality(other.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Метод для получения id, которые входят хотя бы в min из переданных множеств. Множества обходятся
+     * по блокам старших 16 бит: блок, который есть меньше чем в min множествах, пропускается целиком,
+     * для остальных вхождения младших 16 бит считаются в массиве счетчиков, так что время пропорционально
+     * суммарному размеру блоков, которые могут дать результат
+     */
+    public static IdBitmap threshold(List<IdBitmap> sets, int min) {
+        IdBitmap result = new IdBitmap();
+        if (min < 1 || min > sets.size()) {
+            return result;
+        }
+        int[] setsWithKey = new int[1 << 16];
+        for (IdBitmap set : sets) {
+            for (int i = 0; i < set.size; i++) {
+                setsWithKey[set.keys[i]]++;
+            }
+        }
+        int[] counts = new int[1 << 16];
+        for (int key = 0; key < setsWithKey.length; key++) {
+            if (setsWithKey[key] < min) {
+                continue;
+            }
+            Arrays.fill(counts, 0);
+            for (IdBitmap set : sets) {
+                int index = set.indexOf((char) key);
+                if (index >= 0) {
+                    set.containers[index].forEach(0, low -> counts[low]++);
+                }
+            }
+            for (int low = 0; low < counts.length; low++) {
+                if (counts[low] >= min) {
+                    result.add(key << 16 | low);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Метод для добавления в множество всех id другого множества. Блоки объединяются целиком,
+     * пары битовых карт - пословным ИЛИ
+     */
+    public void addAll(IdBitmap other) {
+        for (int j = 0; j < other.size; j++) {
+            char key = other.keys[j];
+            int index = indexOf(key);
+            if (index < 0) {
+                insertContainer(-index - 1, key, other.containers[j].copy());
+                cardinality += other.containers[j].cardinality();
+            } else {
+                Container container = containers[index];
+                int before = container.cardinality();
+                container = container.or(other.containers[j]);
+                containers[index] = container;
+                cardinality += container.cardinality() - before;
+            }
+        }
+    }
+
+    /**
+     * Метод для обхода id в порядке возрастания
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    public int[] toArray() {
+        int[] result = new int[cardinality];
+        int[] position = {0};
+        forEach(id -> result[position[0]++] = id);
+        return result;
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        size--;
+        containers[size] = null;
+    }
+
+    private interface Container {
+        boolean add(char value);
+
+        boolean remove(char value);
+
+        boolean contains(char value);
+
+        int cardinality();
+
+        int andCardinality(Container other);
+
+        void forEach(int high, IntConsumer action);
+
+        /**
+         * Метод для объединения с другим блоком. Возвращает этот блок или новый, если тип блока изменился
+         */
+        Container or(Container other);
+
+        Container copy();
+    }
+
+    /**
+     * Блок, хранящий младшие 16 бит id отсортированным массивом
+     */
+    private static final class ArrayContainer implements Container {
+        private char[] values = new char[4];
+        private int cardinality;
+
+        @Override
+        public boolean add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return false;
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_MAX_SIZE + 1));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return true;
+        }
+
+        @Override
+        public boolean remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public int andCardinality(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.andCardinality(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            int result = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < array.cardinality) {
+                if (values[i] < array.values[j]) {
+                    i++;
+                } else if (values[i] > array.values[j]) {
+                    j++;
+                } else {
+                    result++;
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(high | values[i]);
+            }
+        }
+
+        @Override
+        public Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.copy().or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            if (cardinality + array.cardinality > ARRAY_MAX_SIZE) {
+                return toBitmap().or(array);
+            }
+            for (int i = 0; i < array.cardinality; i++) {
+                add(array.values[i]);
+            }
+            return this;
+        }
+
+        @Override
+        public Container copy() {
+            ArrayContainer copy = new ArrayContainer();
+            copy.values = Arrays.copyOf(values, Math.max(cardinality, 4));
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    /**
+     * Блок, хранящий младшие 16 бит id битовой картой
+     */
+    private static final class BitmapContainer implements Container {
+        private final long[] words = new long[BITMAP_WORDS];
+        private int cardinality;
+
+        @Override
+        public boolean add(char value) {
+            long mask = 1L << value;
+            int index = value >>> 6;
+            if ((words[index] & mask) != 0) {
+                return false;
+            }
+            words[index] |= mask;
+            cardinality++;
+            return true;
+        }
+
+        @Override
+        public boolean remove(char value) {
+            long mask = 1L << value;
+            int index = value >>> 6;
+            if ((words[index] & mask) == 0) {
+                return false;
+            }
+            words[index] &= ~mask;
+            cardinality--;
+            return true;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public int andCardinality(Container other) {
+            int result = 0;
+            if (other instanceof BitmapContainer) {
+                long[] otherWords = ((BitmapContainer) other).words;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    result += Long.bitCount(words[i] & otherWords[i]);
+                }
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    if (contains(array.values[i])) {
+                        result++;
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void forEach(int high, IntConsumer action) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    action.accept(high | (i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        public Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                long[] otherWords = ((BitmapContainer) other).words;
+                cardinality = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    words[i] |= otherWords[i];
+                    cardinality += Long.bitCount(words[i]);
+                }
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    add(array.values[i]);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public Container copy() {
+            BitmapContainer copy = new BitmapContainer();
+            System.arraycopy(words, 0, copy.words, 0, BITMAP_WORDS);
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        private ArrayContainer toArray() {
+            ArrayContainer array = new ArrayContainer();
+            forEach(0, value -> array.add((char) value));
+            return array;
+        }
+    }
+}
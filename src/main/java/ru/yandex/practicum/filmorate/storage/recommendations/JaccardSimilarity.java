@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Правило рекомендаций по коэффициенту Жаккара: отношение числа общих лайков к числу фильмов,
+ * которые лайкнул хотя бы один из пользователей
+ */
+@Component
+public class JaccardSimilarity implements SimilarityStrategy {
+    private final double threshold;
+
+    @Autowired
+    public JaccardSimilarity(@Value("${filmorate.recommendations.jaccard-threshold:0.3}") double threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public String getName() {
+        return "jaccard";
+    }
+
+    @Override
+    public double similarity(int ownLikes, int otherLikes, int commonLikes) {
+        int union = ownLikes + otherLikes - commonLikes;
+        return union == 0 ? 0 : (double) commonLikes / union;
+    }
+
+    @Override
+    public boolean isSimilar(int ownLikes, int otherLikes, int commonLikes) {
+        return commonLikes > 0 && similarity(ownLikes, otherLikes, commonLikes) >= threshold;
+    }
+}
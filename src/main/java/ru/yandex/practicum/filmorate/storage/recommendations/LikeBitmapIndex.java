@@ -0,0 +1,237 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Класс, хранящий в памяти лайки в виде сжатых множеств: фильмы, которые лайкнул каждый пользователь,
+ * и пользователи, которые лайкнули каждый фильм. Индекс строится при старте приложения по таблице
+ * user_film_likes и далее обновляется при каждом сохранении и удалении лайка. Если лайк изменяется внутри
+ * транзакции, индекс обновляется только после ее фиксации. После каждого изменения индекса вызываются
+ * зарегистрированные слушатели
+ */
+@Component
+@Slf4j
+public class LikeBitmapIndex {
+    private static final IdBitmap EMPTY = new IdBitmap();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Integer, IdBitmap> filmsByUser = new HashMap<>();
+    private Map<Integer, IdBitmap> usersByFilm = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public LikeBitmapIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Метод для построения индекса по лайкам неудаленных пользователей неудаленным фильмам
+     */
+    @PostConstruct
+    public void rebuild() {
+        String sqlQuery = "SELECT l.USER_ID, l.FILM_ID FROM user_film_likes l "
+                + "INNER JOIN film f ON f.FILM_ID = l.FILM_ID AND (NOT f.is_delete) "
+                + "INNER JOIN users u ON u.USER_ID = l.USER_ID AND (NOT u.is_delete)";
+
+        Map<Integer, IdBitmap> users = new HashMap<>();
+        Map<Integer, IdBitmap> films = new HashMap<>();
+        jdbcTemplate.query(sqlQuery, rs -> {
+            int userId = IdBitmap.checkId(rs.getLong("USER_ID"));
+            int filmId = IdBitmap.checkId(rs.getLong("FILM_ID"));
+            users.computeIfAbsent(userId, id -> new IdBitmap()).add(filmId);
+            films.computeIfAbsent(filmId, id -> new IdBitmap()).add(userId);
+        });
+        lock.writeLock().lock();
+        try {
+            filmsByUser = users;
+            usersByFilm = films;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс лайков построен, пользователей с лайками: {}, фильмов с лайками: {}",
+                users.size(), films.size());
+        for (Listener listener : listeners) {
+            listener.indexRebuilt();
+        }
+    }
+
+    /**
+     * Метод для добавления лайка в индекс
+     */
+    public void addLike(Long filmId, Long userId) {
+        int film = IdBitmap.checkId(filmId);
+        int user = IdBitmap.checkId(userId);
+        afterCommit(() -> {
+            write(() -> {
+                filmsByUser.computeIfAbsent(user, id -> new IdBitmap()).add(film);
+                usersByFilm.computeIfAbsent(film, id -> new IdBitmap()).add(user);
+            });
+            notifyListeners(user, film);
+        });
+    }
+
+    /**
+     * Метод для удаления лайка из индекса
+     */
+    public void removeLike(Long filmId, Long userId) {
+        int film = IdBitmap.checkId(filmId);
+        int user = IdBitmap.checkId(userId);
+        afterCommit(() -> {
+            write(() -> {
+                remove(filmsByUser, user, film);
+                remove(usersByFilm, film, user);
+            });
+            notifyListeners(user, film);
+        });
+    }
+
+    /**
+     * Метод для удаления из индекса всех лайков фильма
+     */
+    public void removeFilm(Long filmId) {
+        int film = IdBitmap.checkId(filmId);
+        afterCommit(() -> {
+            IdBitmap users = new IdBitmap();
+            write(() -> {
+                IdBitmap removed = usersByFilm.remove(film);
+                if (removed != null) {
+                    removed.forEach(user -> remove(filmsByUser, user, film));
+                    users.addAll(removed);
+                }
+            });
+            users.forEach(user -> notifyListeners(user, film));
+        });
+    }
+
+    /**
+     * Метод для удаления из индекса всех лайков пользователя
+     */
+    public void removeUser(Long userId) {
+        int user = IdBitmap.checkId(userId);
+        afterCommit(() -> {
+            IdBitmap films = new IdBitmap();
+            write(() -> {
+                IdBitmap removed = filmsByUser.remove(user);
+                if (removed != null) {
+                    removed.forEach(film -> remove(usersByFilm, film, user));
+                    films.addAll(removed);
+                }
+            });
+            films.forEach(film -> notifyListeners(user, film));
+        });
+    }
+
+    /**
+     * Метод для получения фильмов, которые лайкнул пользователь. Возвращаемое множество можно читать
+     * только внутри read
+     */
+    public IdBitmap getFilmsOfUser(int userId) {
+        return filmsByUser.getOrDefault(userId, EMPTY);
+    }
+
+    /**
+     * Метод для получения пользователей, которые лайкнули фильм. Возвращаемое множество можно читать
+     * только внутри read
+     */
+    public IdBitmap getUsersOfFilm(int filmId) {
+        return usersByFilm.getOrDefault(filmId, EMPTY);
+    }
+
+    /**
+     * Метод для получения id всех пользователей, у которых есть лайки. Вызывается только внутри read
+     */
+    public IdBitmap getUsers() {
+        IdBitmap users = new IdBitmap();
+        filmsByUser.keySet().forEach(users::add);
+        return users;
+    }
+
+    /**
+     * Метод для получения id всех фильмов, у которых есть лайки. Вызывается только внутри read
+     */
+    public IdBitmap getFilms() {
+        IdBitmap films = new IdBitmap();
+        usersByFilm.keySet().forEach(films::add);
+        return films;
+    }
+
+    /**
+     * Метод для чтения индекса под блокировкой на чтение, исключающей одновременное изменение индекса
+     */
+    public <T> T read(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод для регистрации слушателя изменений лайков
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    private void notifyListeners(int userId, int filmId) {
+        for (Listener listener : listeners) {
+            listener.likeChanged(userId, filmId);
+        }
+    }
+
+    private void write(Runnable writer) {
+        lock.writeLock().lock();
+        try {
+            writer.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void remove(Map<Integer, IdBitmap> bitmaps, int key, int value) {
+        IdBitmap bitmap = bitmaps.get(key);
+        if (bitmap != null && bitmap.remove(value) && bitmap.isEmpty()) {
+            bitmaps.remove(key);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Слушатель изменений индекса. Вызывается вне блокировки индекса для каждого добавленного или удаленного лайка
+     * и после полного перестроения индекса
+     */
+    public interface Listener {
+        void likeChanged(int userId, int filmId);
+
+        default void indexRebuilt() {
+        }
+    }
+}
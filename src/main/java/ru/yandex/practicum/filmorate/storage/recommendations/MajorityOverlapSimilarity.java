@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Исходное правило рекомендаций: другой пользователь похож, если он лайкнул больше половины фильмов,
+ * которые лайкнул пользователь
+ */
+@Component
+public class MajorityOverlapSimilarity implements SimilarityStrategy {
+    @Override
+    public String getName() {
+        return "majority";
+    }
+
+    @Override
+    public double similarity(int ownLikes, int otherLikes, int commonLikes) {
+        return ownLikes == 0 ? 0 : (double) commonLikes / ownLikes;
+    }
+
+    @Override
+    public boolean isSimilar(int ownLikes, int otherLikes, int commonLikes) {
+        return commonLikes > ownLikes / 2;
+    }
+}
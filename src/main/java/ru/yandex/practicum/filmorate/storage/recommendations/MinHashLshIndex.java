@@ -0,0 +1,191 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Приближенный источник кандидатов в похожие пользователи на основе MinHash и LSH. Для множества лайков
+ * каждого пользователя считается сигнатура MinHash из bands * rows значений, которая делится на bands полос
+ * по rows значений. Пользователи с совпадающей полосой попадают в одну корзину, и кандидатами становятся
+ * только пользователи, хотя бы раз оказавшиеся в одной корзине с пользователем. Вероятность попасть
+ * в кандидаты для пользователей с коэффициентом Жаккара s равна 1 - (1 - s^rows)^bands: чем больше полос
+ * и меньше значений в полосе, тем выше полнота и тем больше кандидатов проверяется.
+ * Индекс используется, если в настройке filmorate.recommendations.candidates указано lsh, строится
+ * по индексу лайков при старте и обновляется при каждом изменении лайков
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.recommendations.candidates", havingValue = "lsh")
+@Slf4j
+public class MinHashLshIndex implements NeighbourCandidates, LikeBitmapIndex.Listener {
+    private static final int LOCK_STRIPES = 64;
+
+    private final LikeBitmapIndex likeBitmapIndex;
+    private final int bands;
+    private final int rows;
+    private final long[] seeds;
+    private final Object[] stripes = new Object[LOCK_STRIPES];
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, long[]> bandKeysByUser = new HashMap<>();
+    private final Map<Long, IdBitmap> buckets = new HashMap<>();
+
+    @Autowired
+    public MinHashLshIndex(LikeBitmapIndex likeBitmapIndex,
+                           @Value("${filmorate.recommendations.lsh.bands:32}") int bands,
+                           @Value("${filmorate.recommendations.lsh.rows:2}") int rows) {
+        if (bands < 1 || rows < 1) {
+            throw new IllegalArgumentException("LSH bands and rows must be positive");
+        }
+        this.likeBitmapIndex = likeBitmapIndex;
+        this.bands = bands;
+        this.rows = rows;
+        this.seeds = new SplittableRandom(42).longs(bands * rows).toArray();
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        likeBitmapIndex.addListener(this);
+    }
+
+    @Override
+    public String getName() {
+        return "lsh";
+    }
+
+    /**
+     * Метод для построения индекса по всем пользователям индекса лайков
+     */
+    @PostConstruct
+    public void rebuild() {
+        Map<Integer, long[]> keys = likeBitmapIndex.read(() -> {
+            Map<Integer, long[]> result = new HashMap<>();
+            likeBitmapIndex.getUsers().forEach(user ->
+                    result.put(user, bandKeys(likeBitmapIndex.getFilmsOfUser(user))));
+            return result;
+        });
+        lock.writeLock().lock();
+        try {
+            bandKeysByUser.clear();
+            buckets.clear();
+            keys.forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс LSH построен: пользователей {}, корзин {}, полос {}, значений в полосе {}",
+                keys.size(), buckets.size(), bands, rows);
+    }
+
+    @Override
+    public void indexRebuilt() {
+        rebuild();
+    }
+
+    /**
+     * Метод для пересчета сигнатуры пользователя, изменившего лайк. Сигнатура считается заново по всему
+     * множеству лайков, так как при удалении лайка минимум может сместиться на другой фильм
+     */
+    @Override
+    public void likeChanged(int userId, int filmId) {
+        synchronized (stripes[userId % LOCK_STRIPES]) {
+            long[] keys = likeBitmapIndex.read(() -> bandKeys(likeBitmapIndex.getFilmsOfUser(userId)));
+            lock.writeLock().lock();
+            try {
+                remove(userId);
+                put(userId, keys);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public IdBitmap find(int userId, IdBitmap ownFilms) {
+        IdBitmap candidates = new IdBitmap();
+        long[] keys = bandKeys(ownFilms);
+        if (keys == null) {
+            return candidates;
+        }
+        lock.readLock().lock();
+        try {
+            for (long key : keys) {
+                IdBitmap bucket = buckets.get(key);
+                if (bucket != null) {
+                    candidates.addAll(bucket);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return candidates;
+    }
+
+    private void put(int userId, long[] keys) {
+        if (keys == null) {
+            return;
+        }
+        bandKeysByUser.put(userId, keys);
+        for (long key : keys) {
+            buckets.computeIfAbsent(key, k -> new IdBitmap()).add(userId);
+        }
+    }
+
+    private void remove(int userId) {
+        long[] keys = bandKeysByUser.remove(userId);
+        if (keys == null) {
+            return;
+        }
+        for (long key : keys) {
+            IdBitmap bucket = buckets.get(key);
+            if (bucket != null && bucket.remove(userId) && bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Метод для вычисления ключей корзин по сигнатуре MinHash множества фильмов. Для пустого множества
+     * возвращает null
+     */
+    private long[] bandKeys(IdBitmap films) {
+        if (films.isEmpty()) {
+            return null;
+        }
+        long[] signature = new long[seeds.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        films.forEach(film -> {
+            for (int i = 0; i < seeds.length; i++) {
+                signature[i] = Math.min(signature[i], mix(film ^ seeds[i]) >>> 1);
+            }
+        });
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long key = band;
+            for (int row = 0; row < rows; row++) {
+                key = mix(key * 31 + signature[band * rows + row]);
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    /**
+     * Перемешивающая функция из MurmurHash3
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB93FE1A85EC5L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
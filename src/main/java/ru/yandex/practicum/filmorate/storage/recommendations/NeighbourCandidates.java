@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+/**
+ * Интерфейс источника кандидатов в похожие пользователи. Похожесть проверяется только для найденных кандидатов,
+ * поэтому источник определяет баланс между полнотой рекомендаций и временем их подбора
+ */
+public interface NeighbourCandidates {
+    /**
+     * Метод для получения имени источника, по которому он выбирается в настройке
+     * filmorate.recommendations.candidates
+     */
+    String getName();
+
+    /**
+     * Метод для поиска кандидатов в похожие для пользователя с переданным множеством лайков.
+     * Вызывается под блокировкой индекса лайков на чтение. Результат может содержать самого пользователя
+     */
+    IdBitmap find(int userId, IdBitmap ownFilms);
+}
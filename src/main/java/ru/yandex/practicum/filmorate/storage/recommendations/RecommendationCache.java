@@ -0,0 +1,399 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограниченный по размеру кэш заранее подобранных рекомендаций. Запрос рекомендаций сразу получает
+ * сохраненный список, а пересчет выполняется фоновым потоком. Запись помечается устаревшей и ставится
+ * в очередь на пересчет, когда меняются лайки самого пользователя или одного из пользователей, признанных
+ * похожими при последнем подборе, а также когда с момента подбора прошло больше max-age.
+ * Только при первом запросе пользователя, которого нет в кэше, рекомендации подбираются синхронно
+ */
+@Component
+@Slf4j
+public class RecommendationCache implements LikeBitmapIndex.Listener {
+    /**
+     * Количество рекомендованных фильмов, хранимых для пользователя
+     */
+    public static final int LIMIT = 10;
+
+    private final BitmapRecommendationEngine engine;
+    private final int maximumSize;
+    private final int queueCapacity;
+    private final long refreshIntervalMillis;
+    private final Duration maxAge;
+    private final Clock clock = Clock.systemUTC();
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, IdBitmap> dependents = new HashMap<>();
+    private final Map<Integer, Long> changedDuringRefresh = new HashMap<>();
+    private final ConcurrentLinkedQueue<Integer> queue = new ConcurrentLinkedQueue<>();
+    private final Set<Integer> queued = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshMillis = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private ScheduledExecutorService executor;
+    private int refreshesInFlight;
+
+    @Autowired
+    public RecommendationCache(BitmapRecommendationEngine engine, LikeBitmapIndex likeBitmapIndex,
+                               @Value("${filmorate.recommendations.cache.maximum-size:10000}") int maximumSize,
+                               @Value("${filmorate.recommendations.cache.queue-capacity:10000}") int queueCapacity,
+                               @Value("${filmorate.recommendations.cache.refresh-interval-ms:1000}")
+                               long refreshIntervalMillis,
+                               @Value("${filmorate.recommendations.cache.max-age-seconds:3600}") long maxAgeSeconds) {
+        this.engine = engine;
+        this.maximumSize = Math.max(maximumSize, 0);
+        this.queueCapacity = Math.max(queueCapacity, 1);
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.maxAge = Duration.ofSeconds(maxAgeSeconds);
+        likeBitmapIndex.addListener(this);
+    }
+
+    /**
+     * Метод для запуска фонового пересчета рекомендаций. При нулевом интервале фоновый поток не запускается,
+     * и очередь обрабатывается только вызовами refreshPending
+     */
+    @PostConstruct
+    public void start() {
+        if (maximumSize == 0 || refreshIntervalMillis <= 0) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recommendation-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::refreshPendingSafely, refreshIntervalMillis, refreshIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        log.info("Статистика кэша рекомендаций: {}", getStats());
+    }
+
+    /**
+     * Метод для получения рекомендаций пользователя из кэша. Устаревшая запись возвращается как есть
+     * и ставится в очередь на пересчет
+     */
+    public Snapshot get(Long userId) {
+        int user = IdBitmap.checkId(userId);
+        if (maximumSize == 0) {
+            return new Snapshot(engine.recommend(userId, LIMIT), Duration.ZERO, false);
+        }
+        Instant now = clock.instant();
+        synchronized (this) {
+            Entry entry = entries.get(user);
+            if (entry != null) {
+                boolean stale = entry.isDirty() || entry.computedAt.plus(maxAge).isBefore(now);
+                if (stale) {
+                    staleHits.increment();
+                    enqueue(user);
+                } else {
+                    hits.increment();
+                }
+                return new Snapshot(entry.filmIds, Duration.between(entry.computedAt, now), stale);
+            }
+            misses.increment();
+        }
+        Entry entry = refresh(user);
+        return new Snapshot(entry.filmIds, Duration.ZERO, false);
+    }
+
+    /**
+     * Метод для пересчета всех записей из очереди в вызывающем потоке. Возвращает количество пересчитанных записей
+     */
+    public int refreshPending() {
+        int refreshed = 0;
+        Integer user;
+        while ((user = queue.poll()) != null) {
+            queueSize.decrementAndGet();
+            queued.remove(user);
+            boolean cached;
+            synchronized (this) {
+                cached = entries.containsKey(user);
+            }
+            if (cached) {
+                refresh(user);
+                refreshed++;
+            }
+        }
+        return refreshed;
+    }
+
+    /**
+     * Метод для пометки устаревшими рекомендаций пользователя, изменившего лайк, и пользователей,
+     * для которых он был признан похожим
+     */
+    @Override
+    public void likeChanged(int userId, int filmId) {
+        if (maximumSize == 0) {
+            return;
+        }
+        synchronized (this) {
+            if (refreshesInFlight > 0) {
+                changedDuringRefresh.put(userId, sequence.incrementAndGet());
+            }
+            markDirty(userId);
+            IdBitmap users = dependents.get(userId);
+            if (users != null) {
+                users.forEach(this::markDirty);
+            }
+        }
+    }
+
+    /**
+     * Метод для очистки кэша после перестроения индекса лайков
+     */
+    @Override
+    public void indexRebuilt() {
+        invalidateAll();
+    }
+
+    /**
+     * Метод для очистки кэша и очереди пересчета
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        dependents.clear();
+        queue.clear();
+        queued.clear();
+        queueSize.set(0);
+    }
+
+    /**
+     * Метод для получения статистики кэша и очереди пересчета
+     */
+    public synchronized Stats getStats() {
+        Instant now = clock.instant();
+        long dirty = 0;
+        Duration oldest = Duration.ZERO;
+        for (Entry entry : entries.values()) {
+            if (entry.isDirty()) {
+                dirty++;
+            }
+            Duration age = Duration.between(entry.computedAt, now);
+            if (age.compareTo(oldest) > 0) {
+                oldest = age;
+            }
+        }
+        long refreshCount = refreshes.sum();
+        return Stats.builder()
+                .maximumSize(maximumSize)
+                .size(entries.size())
+                .dirty(dirty)
+                .oldestEntryAgeMillis(oldest.toMillis())
+                .queueSize(queueSize.get())
+                .queueCapacity(queueCapacity)
+                .hits(hits.sum())
+                .staleHits(staleHits.sum())
+                .misses(misses.sum())
+                .refreshes(refreshCount)
+                .averageRefreshMillis(refreshCount == 0 ? 0 : (double) refreshMillis.sum() / refreshCount)
+                .dropped(dropped.sum())
+                .build();
+    }
+
+    private void refreshPendingSafely() {
+        try {
+            refreshPending();
+        } catch (RuntimeException e) {
+            log.error("Ошибка фонового пересчета рекомендаций", e);
+        }
+    }
+
+    /**
+     * Метод для подбора рекомендаций и сохранения их в кэш. Если во время подбора запись снова пометили
+     * устаревшей или изменились лайки самого пользователя либо пользователей, признанных похожими при этом
+     * подборе, запись сохраняется устаревшей и повторно ставится в очередь
+     */
+    private Entry refresh(int user) {
+        long startSequence;
+        synchronized (this) {
+            startSequence = sequence.get();
+            refreshesInFlight++;
+        }
+        BitmapRecommendationEngine.Recommendation recommendation;
+        try {
+            long start = System.nanoTime();
+            recommendation = engine.compute((long) user, LIMIT);
+            refreshMillis.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            refreshes.increment();
+        } catch (RuntimeException e) {
+            finishRefresh();
+            throw e;
+        }
+
+        synchronized (this) {
+            Entry old = entries.get(user);
+            long dirtySequence = Math.max(old == null ? 0 : old.dirtySequence,
+                    changedSince(user, recommendation.getNeighbours(), startSequence));
+            Entry entry = new Entry(List.copyOf(recommendation.getFilmIds()), recommendation.getNeighbours(),
+                    clock.instant(), startSequence, dirtySequence);
+            if (old != null) {
+                removeDependent(user, old.neighbours);
+            }
+            entries.put(user, entry);
+            entry.neighbours.forEach(neighbour -> dependents.computeIfAbsent(neighbour, id -> new IdBitmap())
+                    .add(user));
+            if (entry.isDirty()) {
+                enqueue(user);
+            }
+            evictOverflow();
+            finishRefresh();
+            return entry;
+        }
+    }
+
+    /**
+     * Метод для получения последнего номера изменения лайков пользователя или его похожих пользователей,
+     * сделанного после начала подбора, или 0, если таких изменений не было
+     */
+    private long changedSince(int user, IdBitmap neighbours, long startSequence) {
+        long[] last = {changedDuringRefresh.getOrDefault(user, 0L)};
+        neighbours.forEach(neighbour -> last[0] = Math.max(last[0],
+                changedDuringRefresh.getOrDefault(neighbour, 0L)));
+        return last[0] > startSequence ? last[0] : 0;
+    }
+
+    /**
+     * Метод для завершения подбора. Изменения лайков хранятся, только пока выполняется хотя бы один подбор
+     */
+    private synchronized void finishRefresh() {
+        if (--refreshesInFlight == 0) {
+            changedDuringRefresh.clear();
+        }
+    }
+
+    private void markDirty(int user) {
+        Entry entry = entries.get(user);
+        if (entry != null) {
+            entry.dirtySequence = sequence.incrementAndGet();
+            enqueue(user);
+        }
+    }
+
+    private void enqueue(int user) {
+        if (!queued.add(user)) {
+            return;
+        }
+        if (queueSize.incrementAndGet() > queueCapacity) {
+            queueSize.decrementAndGet();
+            queued.remove(user);
+            dropped.increment();
+            return;
+        }
+        queue.add(user);
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<Integer, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maximumSize && iterator.hasNext()) {
+            Map.Entry<Integer, Entry> eldest = iterator.next();
+            iterator.remove();
+            removeDependent(eldest.getKey(), eldest.getValue().neighbours);
+        }
+    }
+
+    private void removeDependent(int user, IdBitmap neighbours) {
+        neighbours.forEach(neighbour -> {
+            IdBitmap users = dependents.get(neighbour);
+            if (users != null && users.remove(user) && users.isEmpty()) {
+                dependents.remove(neighbour);
+            }
+        });
+    }
+
+    /**
+     * Сохраненные рекомендации пользователя. Запись устарела, если после начала ее подбора лайки пользователя
+     * или его похожих пользователей изменились
+     */
+    private static final class Entry {
+        private final List<Long> filmIds;
+        private final IdBitmap neighbours;
+        private final Instant computedAt;
+        private final long computedSequence;
+        private long dirtySequence;
+
+        private Entry(List<Long> filmIds, IdBitmap neighbours, Instant computedAt, long computedSequence,
+                      long dirtySequence) {
+            this.filmIds = filmIds;
+            this.neighbours = neighbours;
+            this.computedAt = computedAt;
+            this.computedSequence = computedSequence;
+            this.dirtySequence = dirtySequence;
+        }
+
+        private boolean isDirty() {
+            return dirtySequence > computedSequence;
+        }
+    }
+
+    /**
+     * Рекомендации из кэша: id фильмов, время с момента подбора и признак того, что запись устарела
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Snapshot {
+        private final List<Long> filmIds;
+        private final Duration age;
+        private final boolean stale;
+    }
+
+    /**
+     * Статистика кэша рекомендаций: staleHits - выдачи устаревших записей, dropped - пересчеты, не попавшие
+     * в переполненную очередь (такая запись будет поставлена в очередь при следующем запросе)
+     */
+    @Getter
+    @Builder
+    @ToString
+    public static class Stats {
+        private final int maximumSize;
+        private final int size;
+        private final long dirty;
+        private final long oldestEntryAgeMillis;
+        private final int queueSize;
+        private final int queueCapacity;
+        private final long hits;
+        private final long staleHits;
+        private final long misses;
+        private final long refreshes;
+        private final double averageRefreshMillis;
+        private final long dropped;
+    }
+}
@@ -0,0 +1,258 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс, хранящий в памяти для каждого фильма до top-n самых похожих фильмов по совместным лайкам.
+ * Похожесть двух фильмов считается правилом из настройки filmorate.similar-films.similarity по количествам
+ * лайков фильмов и количеству пользователей, лайкнувших оба фильма. Модель полностью строится при старте
+ * и раз в rebuild-interval-minutes, а при каждом изменении лайка пересчитываются соседи фильма и его
+ * оценка в списках фильмов, которые лайкнул пользователь. Все изменения модели выполняются одним фоновым
+ * потоком, а чтение списка соседей не требует блокировок
+ */
+@Component
+@Slf4j
+public class SimilarFilmsIndex implements LikeBitmapIndex.Listener {
+    private static final int[] NO_FILMS = new int[0];
+
+    private final LikeBitmapIndex likeBitmapIndex;
+    private final SimilarityStrategy similarityStrategy;
+    private final int topN;
+    private final long rebuildIntervalMinutes;
+    private final Map<Integer, int[]> neighbours = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "similar-films");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int[] coLikes = new int[0];
+
+    @Autowired
+    public SimilarFilmsIndex(LikeBitmapIndex likeBitmapIndex, List<SimilarityStrategy> strategies,
+                             @Value("${filmorate.similar-films.similarity:cosine}") String similarity,
+                             @Value("${filmorate.similar-films.top-n:20}") int topN,
+                             @Value("${filmorate.similar-films.rebuild-interval-minutes:60}")
+                             long rebuildIntervalMinutes) {
+        this.likeBitmapIndex = likeBitmapIndex;
+        this.similarityStrategy = strategies.stream()
+                .filter(strategy -> strategy.getName().equals(similarity))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown similarity strategy: " + similarity));
+        this.topN = Math.max(topN, 1);
+        this.rebuildIntervalMinutes = rebuildIntervalMinutes;
+        likeBitmapIndex.addListener(this);
+    }
+
+    @PostConstruct
+    public void start() {
+        rebuild();
+        if (rebuildIntervalMinutes > 0) {
+            executor.scheduleWithFixedDelay(this::build, rebuildIntervalMinutes, rebuildIntervalMinutes,
+                    TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Метод для полного построения модели. Ожидает завершения построения в фоновом потоке
+     */
+    public void rebuild() {
+        await(() -> build());
+    }
+
+    /**
+     * Метод для ожидания завершения всех уже поставленных в очередь изменений модели
+     */
+    public void awaitPending() {
+        await(() -> { });
+    }
+
+    /**
+     * Метод для получения id не более count фильмов, самых похожих на фильм, в порядке убывания похожести.
+     * При count меньше единицы возвращается пустой список
+     */
+    public List<Long> getSimilar(Long filmId, int count) {
+        int[] films = neighbours.getOrDefault(IdBitmap.checkId(filmId), NO_FILMS);
+        int size = Math.max(0, Math.min(count, films.length));
+        List<Long> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add((long) films[i]);
+        }
+        return result;
+    }
+
+    public int getTopN() {
+        return topN;
+    }
+
+    @Override
+    public void likeChanged(int userId, int filmId) {
+        execute(() -> patch(userId, filmId));
+    }
+
+    @Override
+    public void indexRebuilt() {
+        execute(this::build);
+    }
+
+    private void build() {
+        long start = System.nanoTime();
+        IdBitmap films = likeBitmapIndex.read(likeBitmapIndex::getFilms);
+        films.forEach(film -> store(film, likeBitmapIndex.read(() -> computeNeighbours(film))));
+        neighbours.keySet().removeIf(film -> !films.contains(film));
+        log.info("Модель похожих фильмов построена: фильмов {}, за {} мс", films.cardinality(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Метод для обновления модели после изменения лайка: соседи фильма считаются заново, а в списках
+     * соседей фильмов пользователя обновляется оценка этого фильма. Если оценка фильма в чужом списке
+     * уменьшилась, на его место может претендовать фильм, не вошедший в список, - такие случаи исправляются
+     * при следующем полном построении
+     */
+    private void patch(int userId, int filmId) {
+        likeBitmapIndex.read(() -> {
+            store(filmId, computeNeighbours(filmId));
+            IdBitmap likers = likeBitmapIndex.getUsersOfFilm(filmId);
+            likeBitmapIndex.getFilmsOfUser(userId).forEach(other -> {
+                if (other != filmId) {
+                    IdBitmap otherLikers = likeBitmapIndex.getUsersOfFilm(other);
+                    int common = likers.andCardinality(otherLikers);
+                    double score = common == 0 ? 0
+                            : similarityStrategy.similarity(otherLikers.cardinality(), likers.cardinality(), common);
+                    store(other, update(other, neighbours.getOrDefault(other, NO_FILMS), filmId, score));
+                }
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Метод для подсчета top-n соседей фильма: для каждого пользователя, лайкнувшего фильм, учитываются
+     * все его лайки. Вызывается только внутри read фоновым потоком
+     */
+    private int[] computeNeighbours(int film) {
+        IdBitmap likers = likeBitmapIndex.getUsersOfFilm(film);
+        if (likers.isEmpty()) {
+            return NO_FILMS;
+        }
+        IdBitmap touched = new IdBitmap();
+        likers.forEach(user -> likeBitmapIndex.getFilmsOfUser(user).forEach(other -> {
+            if (other != film) {
+                ensureCapacity(other);
+                coLikes[other]++;
+                touched.add(other);
+            }
+        }));
+
+        PriorityQueue<Long> top = new PriorityQueue<>(topN + 1);
+        int likes = likers.cardinality();
+        touched.forEach(other -> {
+            double score = similarityStrategy.similarity(likes, likeBitmapIndex.getUsersOfFilm(other).cardinality(),
+                    coLikes[other]);
+            coLikes[other] = 0;
+            top.add(key(other, score));
+            if (top.size() > topN) {
+                top.poll();
+            }
+        });
+        return films(top.toArray(new Long[0]));
+    }
+
+    /**
+     * Метод для замены оценки одного фильма в списке соседей
+     */
+    private int[] update(int film, int[] current, int changed, double score) {
+        PriorityQueue<Long> top = new PriorityQueue<>(topN + 2);
+        IdBitmap likers = likeBitmapIndex.getUsersOfFilm(film);
+        for (int other : current) {
+            if (other != changed) {
+                IdBitmap otherLikers = likeBitmapIndex.getUsersOfFilm(other);
+                top.add(key(other, similarityStrategy.similarity(likers.cardinality(), otherLikers.cardinality(),
+                        likers.andCardinality(otherLikers))));
+            }
+        }
+        if (score > 0) {
+            top.add(key(changed, score));
+        }
+        while (top.size() > topN) {
+            top.poll();
+        }
+        return films(top.toArray(new Long[0]));
+    }
+
+    private void store(int film, int[] films) {
+        if (films.length == 0) {
+            neighbours.remove(film);
+        } else {
+            neighbours.put(film, films);
+        }
+    }
+
+    private void ensureCapacity(int film) {
+        if (film >= coLikes.length) {
+            coLikes = Arrays.copyOf(coLikes, Math.max(film + 1, coLikes.length * 2));
+        }
+    }
+
+    /**
+     * Метод для упаковки оценки и id фильма в один long: старшие биты - оценка, младшие - инвертированный id,
+     * чтобы при равной оценке выше оказывался фильм с меньшим id
+     */
+    private static long key(int film, double score) {
+        return ((long) Float.floatToIntBits((float) score) << 32) | (Integer.MAX_VALUE - film);
+    }
+
+    private static int[] films(Long[] keys) {
+        Arrays.sort(keys, (a, b) -> Long.compare(b, a));
+        int[] films = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            films[i] = Integer.MAX_VALUE - (int) (keys[i] & 0xFFFFFFFFL);
+        }
+        return films;
+    }
+
+    /**
+     * Метод для постановки изменения модели в очередь. После остановки модели изменения не принимаются
+     */
+    private void execute(Runnable task) {
+        if (!executor.isShutdown()) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                log.debug("Модель похожих фильмов остановлена, изменение пропущено");
+            }
+        }
+    }
+
+    private void await(Runnable task) {
+        try {
+            executor.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.storage.recommendations;
+
+/**
+ * Интерфейс правила, по которому другой пользователь считается похожим на пользователя, для которого
+ * подбираются рекомендации. Правило получает размеры множеств лайков обоих пользователей и их пересечения
+ */
+public interface SimilarityStrategy {
+    /**
+     * Метод для получения имени правила, по которому оно выбирается в настройке
+     * filmorate.recommendations.similarity
+     */
+    String getName();
+
+    /**
+     * Метод для вычисления степени похожести пользователей от 0 до 1
+     */
+    double similarity(int ownLikes, int otherLikes, int commonLikes);
+
+    /**
+     * Метод для проверки, что пользователи достаточно похожи, чтобы рекомендовать фильмы другого пользователя
+     */
+    boolean isSimilar(int ownLikes, int otherLikes, int commonLikes);
+}
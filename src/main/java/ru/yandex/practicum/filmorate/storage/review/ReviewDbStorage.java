@@ -4,14 +4,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.model.Review;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Класс, имплементирующий интерфейс для работы с таблицей review в БД
@@ -50,17 +52,10 @@ public class ReviewDbStorage implements ReviewStorage {
      * Метод для получения отзыва по его id из таблицы
      */
     @Override
-    public Review getById(Long id) {
-        String sqlQuery = "SELECT REVIEW_ID, CONTENT, IS_POSITIVE, USER_ID, FILM_ID, "
-                + "(SELECT SUM(DECODE(IS_LIKE, true, 1, -1)) FROM review_likes rl "
-                + "WHERE rl.REVIEW_ID = r.REVIEW_ID AND rl.IS_DELETE = false) USEFUL FROM review r "
-                + "WHERE r.REVIEW_ID = ? AND (NOT r.IS_DELETE)";
-        SqlRowSet row = jdbcTemplate.queryForRowSet(sqlQuery, id);
-        if (row.next()) {
-            return jdbcTemplate.queryForObject(sqlQuery, this::mapRowToReview, id);
-        } else {
-            return null;
-        }
+    public Optional<Review> findById(Long id) {
+        String sqlQuery = "SELECT REVIEW_ID, CONTENT, IS_POSITIVE, USER_ID, FILM_ID, USEFUL FROM review "
+                + "WHERE REVIEW_ID = ? AND (NOT IS_DELETE)";
+        return jdbcTemplate.query(sqlQuery, this::mapRowToReview, id).stream().findFirst();
     }
 
     /**
@@ -78,26 +73,29 @@ public class ReviewDbStorage implements ReviewStorage {
     }
 
     /**
-     * Метод для получения списка всех отзывов для фильма по его id из таблицы
+     * Метод для получения страницы отзывов после отзыва из курсора. Отзывы упорядочены по убыванию полезности,
+     * при равной полезности - по id; курсор хранит полезность и id последнего отзыва страницы. Полезность
+     * хранится в столбце useful, поэтому страница читается по индексу без пересчета оценок всех отзывов
      */
     @Override
-    public List<Review> getReviewsForFilm(Long id, int count) {
-        String sqlQuery = "SELECT REVIEW_ID, CONTENT, IS_POSITIVE, USER_ID, FILM_ID, "
-                + "(SELECT SUM(DECODE(IS_LIKE, true, 1, -1)) FROM review_likes rl "
-                + "WHERE rl.REVIEW_ID = r.REVIEW_ID) useful FROM review r WHERE r.FILM_ID = ? "
-                + "AND (NOT IS_DELETE) LIMIT ?";
-
-        return jdbcTemplate.query(sqlQuery, this::mapRowToReview, id, count);
-    }
-
-    @Override
-    public List<Review> getAllReviews(int count) {
-        String sqlQuery = "SELECT REVIEW_ID, CONTENT, IS_POSITIVE, USER_ID, FILM_ID, "
-                + "(SELECT SUM(DECODE(IS_LIKE, true, 1, -1)) FROM review_likes rl "
-                + "WHERE rl.REVIEW_ID = r.REVIEW_ID) useful FROM review r WHERE "
-                + "(NOT IS_DELETE) LIMIT ?";
+    public List<Review> getReviewsPage(Long filmId, PageCursor after, int limit) {
+        StringBuilder sqlQuery = new StringBuilder("SELECT REVIEW_ID, CONTENT, IS_POSITIVE, USER_ID, FILM_ID, USEFUL "
+                + "FROM review WHERE (NOT IS_DELETE)");
+        List<Object> args = new ArrayList<>();
+        if (filmId != null) {
+            sqlQuery.append(" AND FILM_ID = ?");
+            args.add(filmId);
+        }
+        if (after != null) {
+            sqlQuery.append(" AND (USEFUL < ? OR (USEFUL = ? AND REVIEW_ID > ?))");
+            args.add(after.getSortValue());
+            args.add(after.getSortValue());
+            args.add(after.getId());
+        }
+        sqlQuery.append(" ORDER BY USEFUL DESC, REVIEW_ID LIMIT ?");
+        args.add(limit);
 
-        return jdbcTemplate.query(sqlQuery, this::mapRowToReview, count);
+        return jdbcTemplate.query(sqlQuery.toString(), this::mapRowToReview, args.toArray());
     }
 
     /**
@@ -1,8 +1,10 @@
 package ru.yandex.practicum.filmorate.storage.review;
 
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.model.Review;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Интерфейс, описывающий логику работы с хранилищем для отзывов
@@ -10,13 +12,25 @@ import java.util.List;
 public interface ReviewStorage {
     Review create(Review review);
 
-    Review getById(Long id);
+    /**
+     * Получение отзыва по id вместе с его рейтингом полезности. Удаленный отзыв не возвращается
+     */
+    Optional<Review> findById(Long id);
 
-    Review update(Review review);
+    /**
+     * Получение отзыва по id или null, если отзыва нет или он удален
+     */
+    default Review getById(Long id) {
+        return findById(id).orElse(null);
+    }
 
-    List<Review> getReviewsForFilm(Long id, int count);
+    Review update(Review review);
 
-    List<Review> getAllReviews(int count);
+    /**
+     * Получение страницы отзывов, упорядоченных по убыванию полезности и по id, после отзыва из курсора.
+     * Если id фильма не передан, возвращаются отзывы на все фильмы
+     */
+    List<Review> getReviewsPage(Long filmId, PageCursor after, int limit);
 
     void deleteById(Long reviewId);
 }
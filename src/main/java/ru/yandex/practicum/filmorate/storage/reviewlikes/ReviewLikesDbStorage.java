@@ -4,9 +4,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
- * Класс, имплементирующий интерфейс для работы с таблицей review_likes в БД
+ * Класс, имплементирующий интерфейс для работы с таблицей review_likes в БД. Вместе с каждой оценкой
+ * в той же транзакции изменяется счетчик полезности отзыва в столбце review.useful
  */
 @Component
 public class ReviewLikesDbStorage implements ReviewLikesStorage {
@@ -20,36 +22,40 @@ public class ReviewLikesDbStorage implements ReviewLikesStorage {
      * Метод для добавления лайка для отзыва в таблицу
      */
     @Override
+    @Transactional
     public void insertLikeToReview(Long reviewId, Long userId) {
         String sqlQuery = "INSERT INTO review_likes (REVIEW_ID, USER_ID, IS_LIKE) VALUES (?, ?, true)";
         jdbcTemplate.update(sqlQuery, reviewId, userId);
+        updateUseful(reviewId, 1);
     }
 
     /**
      * Метод для удаления лайка для отзыва из таблицы. Реализовано через проставление флага is_delete
      */
     @Override
+    @Transactional
     public void removeLikeFromReview (Long reviewId, Long userId) {
-        String sqlQuery = "UPDATE review_likes SET IS_DELETE = true WHERE REVIEW_ID = ? AND USER_ID = ?";
-        jdbcTemplate.update(sqlQuery, reviewId, userId);
+        removeRating(reviewId, userId);
     }
 
     /**
      * Метод для добавления дизлайка для отзыва в таблицу
      */
     @Override
+    @Transactional
     public void insertDislikeToReview (Long reviewId, Long userId) {
         String sqlQuery = "INSERT INTO review_likes (REVIEW_ID, USER_ID, IS_LIKE) VALUES (?, ?, false)";
         jdbcTemplate.update(sqlQuery, reviewId, userId);
+        updateUseful(reviewId, -1);
     }
 
     /**
      * Метод для удаления дизлайка для отзыва из таблицы. Реализовано через проставление флага is_delete
      */
     @Override
+    @Transactional
     public void removeDislikeFromReview (Long reviewId, Long userId) {
-        String sqlQuery = "UPDATE review_likes SET IS_DELETE = true WHERE REVIEW_ID = ? AND USER_ID = ? ";
-        jdbcTemplate.update(sqlQuery, reviewId, userId);
+        removeRating(reviewId, userId);
     }
 
     /**
@@ -66,4 +72,44 @@ public class ReviewLikesDbStorage implements ReviewLikesStorage {
         System.out.println("rowCount = " + rowCount);
         return rowCount != 0;
     }
+
+    /**
+     * Метод для пересчета полезности всех отзывов по таблице review_likes.
+     * Обновляются только отзывы, у которых счетчик разошелся с суммой оценок
+     */
+    @Override
+    @Transactional
+    public int rebuildUseful() {
+        String sqlQuery = "UPDATE review r SET USEFUL = (SELECT COALESCE(SUM(DECODE(IS_LIKE, true, 1, -1)), 0) "
+                + "FROM review_likes rl WHERE rl.REVIEW_ID = r.REVIEW_ID AND rl.IS_DELETE = false) "
+                + "WHERE USEFUL <> (SELECT COALESCE(SUM(DECODE(IS_LIKE, true, 1, -1)), 0) "
+                + "FROM review_likes rl WHERE rl.REVIEW_ID = r.REVIEW_ID AND rl.IS_DELETE = false)";
+
+        return jdbcTemplate.update(sqlQuery);
+    }
+
+    /**
+     * Метод для снятия оценки пользователя с отзыва. Полезность отзыва уменьшается на сумму снятых оценок
+     */
+    private void removeRating(Long reviewId, Long userId) {
+        String sumQuery = "SELECT COALESCE(SUM(DECODE(IS_LIKE, true, 1, -1)), 0) FROM review_likes "
+                + "WHERE REVIEW_ID = ? AND USER_ID = ? AND IS_DELETE = false";
+        String sqlQuery = "UPDATE review_likes SET IS_DELETE = true "
+                + "WHERE REVIEW_ID = ? AND USER_ID = ? AND IS_DELETE = false";
+
+        Integer removed = jdbcTemplate.queryForObject(sumQuery, Integer.class, reviewId, userId);
+        jdbcTemplate.update(sqlQuery, reviewId, userId);
+        if (removed != null && removed != 0) {
+            updateUseful(reviewId, -removed);
+        }
+    }
+
+    /**
+     * Метод для изменения полезности отзыва на переданную величину
+     */
+    private void updateUseful(Long reviewId, int delta) {
+        String sqlQuery = "UPDATE review SET USEFUL = USEFUL + ? WHERE REVIEW_ID = ?";
+
+        jdbcTemplate.update(sqlQuery, delta, reviewId);
+    }
 }
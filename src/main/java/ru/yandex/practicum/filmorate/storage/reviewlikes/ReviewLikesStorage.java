@@ -13,4 +13,9 @@ public interface ReviewLikesStorage {
     void removeDislikeFromReview(Long reviewId, Long userId);
 
     boolean checkIfRecordExists(Long reviewId, Long userId);
+
+    /**
+     * Пересчет полезности всех отзывов по таблице оценок. Возвращает количество исправленных отзывов
+     */
+    int rebuildUseful();
 }
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.storage.reviewlikes;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Задача для восстановления полезности отзывов в таблице review по таблице review_likes.
+ * Выполняется при старте приложения, если не отключена настройкой filmorate.review-useful.repair-on-startup
+ */
+@Component
+@Slf4j
+public class ReviewUsefulRepairJob implements ApplicationRunner {
+    private final ReviewLikesStorage reviewLikesStorage;
+    private final boolean repairOnStartup;
+
+    public ReviewUsefulRepairJob(@Qualifier("reviewLikesDbStorage") ReviewLikesStorage reviewLikesStorage,
+                                 @Value("${filmorate.review-useful.repair-on-startup:true}") boolean repairOnStartup) {
+        this.reviewLikesStorage = reviewLikesStorage;
+        this.repairOnStartup = repairOnStartup;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (repairOnStartup) {
+            repair();
+        }
+    }
+
+    /**
+     * Метод для пересчета полезности всех отзывов
+     */
+    public int repair() {
+        int repaired = reviewLikesStorage.rebuildUseful();
+        log.info("Пересчитана полезность отзывов, исправлено отзывов: {}", repaired);
+        return repaired;
+    }
+}
@@ -1,6 +1,8 @@
 package ru.yandex.practicum.filmorate.storage.search;
 
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 
 import java.util.List;
 
@@ -10,4 +12,11 @@ import java.util.List;
  */
 public interface Search {
     List<Film> searchFilmByParam(String query, KindOfSearchFilm by);
+
+    /**
+     * Получение страницы результатов поиска после фильма из курсора. Результаты упорядочены
+     * по убыванию количества лайков, затем по id фильма; курсор последнего фильма строится по тому же
+     * количеству лайков, по которому упорядочен запрос
+     */
+    CursorPage<Film> searchFilmByParam(String query, KindOfSearchFilm by, PageCursor after, int limit);
 }
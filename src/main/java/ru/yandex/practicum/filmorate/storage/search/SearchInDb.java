@@ -4,7 +4,9 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.CursorPage;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
 
 import java.util.List;
@@ -13,29 +15,75 @@ import java.util.List;
 @RequiredArgsConstructor
 @Slf4j
 public class SearchInDb implements Search {
-    private final JdbcTemplate jdbcTemplate;
     private final FilmDbStorage filmDbStorage;
+    private final JdbcTemplate jdbcTemplate;
+
     @Override
     public List<Film> searchFilmByParam(String query, KindOfSearchFilm by) {
-        if (by != KindOfSearchFilm.TITLE) {
-            throw new UnsupportedOperationException(
-                    String.format("Поиск по %s на текущий момент не поддерживается", by));
-        }
+        checkKindOfSearch(by);
 
         String sql = "SELECT f.FILM_ID,\n" +
                 "       f.NAME,\n" +
                 "       f.DESCRIPTION,\n" +
                 "       f.RELEASE_DATE,\n" +
                 "       f.DURATION,\n" +
-                "       f.RATING_MPAA_ID,\n" +
-                "       COUNT(u.USER_ID) AS likes_count\n" +
+                "       f.RATING_MPAA_ID\n" +
+                "FROM film f\n" +
+                "WHERE f.IS_DELETE = false AND LOWER(f.NAME) LIKE ?\n" +
+                "ORDER BY f.LIKES_COUNT DESC, f.FILM_ID";
+
+        return filmDbStorage.queryFilms(sql, toLikePattern(query));
+    }
+
+    @Override
+    public CursorPage<Film> searchFilmByParam(String query, KindOfSearchFilm by, PageCursor after, int limit) {
+        checkKindOfSearch(by);
+        if (after == null) {
+            String sql = "SELECT f.FILM_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, f.RATING_MPAA_ID, " +
+                    "f.LIKES_COUNT\n" +
+                    "FROM film f\n" +
+                    "WHERE f.IS_DELETE = false AND LOWER(f.NAME) LIKE ?\n" +
+                    "ORDER BY f.LIKES_COUNT DESC, f.FILM_ID\n" +
+                    "LIMIT ?";
+            return queryPage(sql, toLikePattern(query), limit);
+        }
+
+        String sql = "SELECT f.FILM_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, f.RATING_MPAA_ID, " +
+                "f.LIKES_COUNT\n" +
                 "FROM film f\n" +
-                "         LEFT OUTER JOIN user_film_likes u ON f.FILM_ID = u.FILM_ID\n" +
                 "WHERE f.IS_DELETE = false AND LOWER(f.NAME) LIKE ?\n" +
-                "GROUP BY f.FILM_ID\n" +
-                "ORDER BY likes_count DESC";
+                "  AND (f.LIKES_COUNT < ? OR (f.LIKES_COUNT = ? AND f.FILM_ID > ?))\n" +
+                "ORDER BY f.LIKES_COUNT DESC, f.FILM_ID\n" +
+                "LIMIT ?";
+        return queryPage(sql, toLikePattern(query), after.getSortValue(), after.getSortValue(), after.getId(), limit);
+    }
+
+    /**
+     * Метод для выполнения запроса страницы поиска. Курсор последнего фильма строится по столбцу LIKES_COUNT
+     * из той же строки, по которому запрос упорядочивает и отбирает фильмы
+     */
+    private CursorPage<Film> queryPage(String sql, Object... args) {
+        long[] lastLikes = new long[1];
+        List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) -> {
+            lastLikes[0] = rs.getLong("LIKES_COUNT");
+            return filmDbStorage.mapRowToFilm(rs, rowNum);
+        }, args);
+        filmDbStorage.hydrate(films);
+        PageCursor lastCursor = films.isEmpty() ? null : PageCursor.builder()
+                .id(films.get(films.size() - 1).getId())
+                .sortValue(lastLikes[0])
+                .build();
+        return new CursorPage<>(films, lastCursor);
+    }
+
+    private void checkKindOfSearch(KindOfSearchFilm by) {
+        if (by != KindOfSearchFilm.TITLE) {
+            throw new UnsupportedOperationException(
+                    String.format("Поиск по %s на текущий момент не поддерживается", by));
+        }
+    }
 
-        return jdbcTemplate.query(sql,
-                filmDbStorage::mapRowToFilm, String.format("%%%s%%", query.toLowerCase()));
+    private String toLikePattern(String query) {
+        return String.format("%%%s%%", query.toLowerCase());
     }
 }
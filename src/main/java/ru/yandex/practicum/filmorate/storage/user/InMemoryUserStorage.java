@@ -3,11 +3,15 @@ package ru.yandex.practicum.filmorate.storage.user;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Класс, имплементирующий интерфейс для работы с хранилищем пользователей. Пользователи сохранаются в мапу
@@ -45,8 +49,8 @@ public class InMemoryUserStorage implements UserStorage {
      * Метод для получения пользователя по его id
      */
     @Override
-    public User getById(Long id) {
-        return users.get(id);
+    public Optional<User> findById(Long id) {
+        return Optional.ofNullable(users.get(id));
     }
 
     /**
@@ -57,6 +61,19 @@ public class InMemoryUserStorage implements UserStorage {
         return new ArrayList<>(users.values());
     }
 
+    /**
+     * Метод для получения страницы пользователей после пользователя из курсора
+     */
+    @Override
+    public List<User> getPage(PageCursor after, int limit) {
+        long afterId = after == null ? 0L : after.getId();
+        return users.values().stream()
+                .filter(user -> user.getId() > afterId)
+                .sorted(Comparator.comparing(User::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Метод для удаления всех пользователей
      */
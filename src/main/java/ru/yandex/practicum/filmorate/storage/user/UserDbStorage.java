@@ -2,21 +2,27 @@ package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.storage.friendship.FriendshipStorage;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -25,14 +31,18 @@ import java.util.Set;
 @Component
 @Slf4j
 public class UserDbStorage implements UserStorage {
+    /**
+     * Максимальное количество id пользователей в одном условии IN
+     */
+    private static final int BATCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
-    private final FriendshipStorage friendshipStorage;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
 
     @Autowired
-    public UserDbStorage(JdbcTemplate jdbcTemplate,
-                         @Qualifier("friendshipDbStorage") FriendshipStorage friendshipStorage) {
+    public UserDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
-        this.friendshipStorage = friendshipStorage;
+        this.namedJdbcTemplate = namedJdbcTemplate;
     }
 
     /**
@@ -71,18 +81,54 @@ public class UserDbStorage implements UserStorage {
     }
 
     /**
-     * Метод для получения пользователя по его id
+     * Метод для получения пользователя по его id вместе с id его друзей одним запросом
      */
     @Override
-    public User getById(Long id) {
-        String sqlQuery = "SELECT USER_ID, EMAIL, LOGIN, NAME, BIRTHDAY " +
-                "FROM users WHERE (NOT is_delete) AND (USER_ID = ?)";
-        SqlRowSet row = jdbcTemplate.queryForRowSet(sqlQuery, id);
-        if (row.next()) {
-            return jdbcTemplate.queryForObject(sqlQuery, this::mapRowToUser, id);
-        } else {
-            return null;
+    public Optional<User> findById(Long id) {
+        String sqlQuery = "SELECT u.USER_ID, u.EMAIL, u.LOGIN, u.NAME, u.BIRTHDAY, "
+                + "ARRAY(SELECT fu.USER_ID FROM friend_edge fe "
+                + "INNER JOIN users fu ON fu.USER_ID = fe.FRIEND_ID AND (NOT fu.is_delete) "
+                + "WHERE fe.USER_ID = ?) AS FRIEND_IDS "
+                + "FROM users u WHERE (NOT u.is_delete) AND (u.USER_ID = ?)";
+        List<User> users = jdbcTemplate.query(sqlQuery, (rs, rowNum) -> {
+            Set<Long> friendIds = new HashSet<>();
+            for (Object friendId : (Object[]) rs.getArray("FRIEND_IDS").getArray()) {
+                friendIds.add(((Number) friendId).longValue());
+            }
+            return User.builder()
+                    .id(rs.getLong("USER_ID"))
+                    .email(rs.getString("EMAIL"))
+                    .login(rs.getString("LOGIN"))
+                    .name(rs.getString("NAME"))
+                    .birthday(rs.getDate("BIRTHDAY").toLocalDate())
+                    .friends(friendIds)
+                    .build();
+        }, id, id);
+        return users.stream().findFirst();
+    }
+
+    /**
+     * Метод для проверки существования пользователя по его id. Список друзей не загружается
+     */
+    @Override
+    public boolean existsById(Long id) {
+        String sqlQuery = "SELECT EXISTS(SELECT 1 FROM users WHERE USER_ID = ? AND NOT is_delete)";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sqlQuery, Boolean.class, id));
+    }
+
+    /**
+     * Метод для получения id из переданных, для которых нет пользователя, одним запросом
+     */
+    @Override
+    public Set<Long> findMissingIds(Collection<Long> ids) {
+        Set<Long> missing = new LinkedHashSet<>(ids);
+        if (missing.isEmpty()) {
+            return missing;
         }
+        String sqlQuery = "SELECT USER_ID FROM users WHERE USER_ID IN (:ids) AND NOT is_delete";
+        missing.removeAll(namedJdbcTemplate.queryForList(sqlQuery, new MapSqlParameterSource("ids", missing),
+                Long.class));
+        return missing;
     }
 
     /**
@@ -92,7 +138,17 @@ public class UserDbStorage implements UserStorage {
     public List<User> getAll() {
         String sqlQuery = "SELECT USER_ID, EMAIL, LOGIN, NAME, BIRTHDAY FROM users " +
                 "WHERE NOT is_delete";
-        return jdbcTemplate.query(sqlQuery, this::mapRowToUser);
+        return queryUsers(sqlQuery);
+    }
+
+    /**
+     * Метод для получения страницы пользователей после пользователя из курсора
+     */
+    @Override
+    public List<User> getPage(PageCursor after, int limit) {
+        String sqlQuery = "SELECT USER_ID, EMAIL, LOGIN, NAME, BIRTHDAY FROM users " +
+                "WHERE USER_ID > ? AND NOT is_delete ORDER BY USER_ID LIMIT ?";
+        return queryUsers(sqlQuery, after == null ? 0L : after.getId(), limit);
     }
 
     /**
@@ -111,20 +167,52 @@ public class UserDbStorage implements UserStorage {
     }
 
     /**
-     * Метод для маппинга полей пользователя из таблрицы в объект
+     * Метод для выполнения запроса, возвращающего строки таблицы users, с пакетной подгрузкой id друзей
      */
-    private User mapRowToUser(ResultSet resultSet, int rowNum) throws SQLException {
-        Set<Long> idList = new HashSet<>();
-        for (User user : friendshipStorage.getFriendsForUser(resultSet.getLong("USER_ID"))) {
-            idList.add(user.getId());
+    private List<User> queryUsers(String sqlQuery, Object... args) {
+        List<User> users = jdbcTemplate.query(sqlQuery, this::mapRowToUser, args);
+        fillFriends(users);
+        return users;
+    }
+
+    /**
+     * Метод для заполнения множеств id друзей у всех переданных пользователей. Друзьями считаются пользователи,
+     * которых добавил сам пользователь, и пользователи, подтвердившие дружбу с ним, - именно они хранятся
+     * в friend_edge. Для каждой пачки пользователей выполняется один запрос
+     */
+    private void fillFriends(List<User> users) {
+        Map<Long, Set<Long>> friendsByUser = new HashMap<>();
+        for (User user : users) {
+            friendsByUser.put(user.getId(), new HashSet<>());
+        }
+
+        String sqlQuery = "SELECT fe.USER_ID AS OWNER_ID, fe.FRIEND_ID FROM friend_edge fe "
+                + "INNER JOIN users u ON u.USER_ID = fe.FRIEND_ID AND (NOT u.is_delete) "
+                + "WHERE fe.USER_ID IN (:ids)";
+        List<Long> ids = new ArrayList<>(friendsByUser.keySet());
+        for (int i = 0; i < ids.size(); i += BATCH_SIZE) {
+            List<Long> batch = ids.subList(i, Math.min(i + BATCH_SIZE, ids.size()));
+            namedJdbcTemplate.query(sqlQuery, new MapSqlParameterSource("ids", batch), rs -> {
+                friendsByUser.get(rs.getLong("OWNER_ID")).add(rs.getLong("FRIEND_ID"));
+            });
+        }
+
+        for (User user : users) {
+            user.setFriends(friendsByUser.get(user.getId()));
         }
+    }
+
+    /**
+     * Метод для маппинга полей пользователя из таблрицы в объект. Множество id друзей заполняется
+     * пакетно через метод fillFriends
+     */
+    private User mapRowToUser(ResultSet resultSet, int rowNum) throws SQLException {
         return User.builder()
                 .id(resultSet.getLong("USER_ID"))
                 .email(resultSet.getString("EMAIL"))
                 .login(resultSet.getString("LOGIN"))
                 .name(resultSet.getString("NAME"))
                 .birthday(resultSet.getDate("BIRTHDAY").toLocalDate())
-                .friends(idList)
                 .build();
     }
 }
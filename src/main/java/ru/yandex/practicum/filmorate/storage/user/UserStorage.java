@@ -1,8 +1,13 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Интерфейс, описывающий логику работы с хранилищем для пользователей
@@ -13,10 +18,45 @@ public interface UserStorage {
 
     User update(User user);
 
-    User getById(Long id);
+    /**
+     * Получение пользователя по id вместе с id его друзей. Удаленный пользователь не возвращается
+     */
+    Optional<User> findById(Long id);
+
+    /**
+     * Получение пользователя по id или null, если пользователя нет или он удален
+     */
+    default User getById(Long id) {
+        return findById(id).orElse(null);
+    }
+
+    /**
+     * Проверка существования пользователя без загрузки его данных
+     */
+    default boolean existsById(Long id) {
+        return findById(id).isPresent();
+    }
+
+    /**
+     * Получение id из переданных, для которых нет пользователя
+     */
+    default Set<Long> findMissingIds(Collection<Long> ids) {
+        Set<Long> missing = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (!existsById(id)) {
+                missing.add(id);
+            }
+        }
+        return missing;
+    }
 
     List<User> getAll();
 
+    /**
+     * Получение страницы пользователей, упорядоченных по id, после пользователя из курсора
+     */
+    List<User> getPage(PageCursor after, int limit);
+
     void deleteAll();
 
     void delete(Long id);
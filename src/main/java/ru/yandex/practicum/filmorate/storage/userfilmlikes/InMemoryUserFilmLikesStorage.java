@@ -7,6 +7,7 @@ import ru.yandex.practicum.filmorate.service.FilmComparator;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -41,14 +42,15 @@ public class InMemoryUserFilmLikesStorage implements UserFilmLikesStorage {
      * Метод для удаления лайка для фильма от пользователя
      */
     @Override
-    public void removeLike(Long filmId, Long userId) {
+    public boolean removeLike(Long filmId, Long userId) {
         Set<Long> idLikesFilm = new HashSet<>();
 
         if (filmStorage.getById(filmId).getLikesFromUsers() != null) {
             idLikesFilm = filmStorage.getById(filmId).getLikesFromUsers();
         }
-        idLikesFilm.remove(userId);
+        boolean removed = idLikesFilm.remove(userId);
         filmStorage.getById(filmId).setLikesFromUsers(idLikesFilm);
+        return removed;
     }
 
     /**
@@ -61,8 +63,26 @@ public class InMemoryUserFilmLikesStorage implements UserFilmLikesStorage {
         return films.stream().limit(count).collect(Collectors.toList());
     }
 
+    /**
+     * Метод для получения фильмов по списку id
+     */
+    @Override
+    public List<Film> getByIds(List<Long> filmIds) {
+        return filmStorage.getByIds(filmIds);
+    }
+
+    @Override
+    public int rebuildLikesCount() {
+        return 0; // количество лайков вычисляется по множеству likesFromUsers, пересчет не требуется
+    }
+
     @Override
     public List<Film> getCommonFilms(long userId, long friendId) {
         return new ArrayList<>(); // Заглушка
     }
+
+    @Override
+    public List<Film> getCommonFilms(Collection<Long> userIds, int min) {
+        return new ArrayList<>(); // Заглушка
+    }
 }
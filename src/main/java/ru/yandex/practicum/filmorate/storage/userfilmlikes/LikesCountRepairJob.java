@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.storage.userfilmlikes;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Задача для восстановления счетчиков лайков в таблице film по таблице user_film_likes.
+ * Выполняется при старте приложения, если не отключена настройкой filmorate.likes-count.repair-on-startup
+ */
+@Component
+@Slf4j
+public class LikesCountRepairJob implements ApplicationRunner {
+    private final UserFilmLikesStorage userFilmLikesStorage;
+    private final boolean repairOnStartup;
+
+    public LikesCountRepairJob(@Qualifier("userFilmLikesDbStorage") UserFilmLikesStorage userFilmLikesStorage,
+                               @Value("${filmorate.likes-count.repair-on-startup:true}") boolean repairOnStartup) {
+        this.userFilmLikesStorage = userFilmLikesStorage;
+        this.repairOnStartup = repairOnStartup;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (repairOnStartup) {
+            repair();
+        }
+    }
+
+    /**
+     * Метод для пересчета счетчиков лайков всех фильмов
+     */
+    public int repair() {
+        int repaired = userFilmLikesStorage.rebuildLikesCount();
+        log.info("Пересчитаны счетчики лайков, исправлено фильмов: {}", repaired);
+        return repaired;
+    }
+}
@@ -2,16 +2,27 @@ package ru.yandex.practicum.filmorate.storage.userfilmlikes;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
-import ru.yandex.practicum.filmorate.storage.genrefilm.FilmGenreStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
+import ru.yandex.practicum.filmorate.storage.film.FilmHydrator;
+import ru.yandex.practicum.filmorate.storage.recommendations.IdBitmap;
+import ru.yandex.practicum.filmorate.storage.recommendations.LikeBitmapIndex;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.LinkedHashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * Класс, имплементирующий интерфейс для работы с таблицей friendship в БД
@@ -20,32 +31,73 @@ import java.util.List;
 public class UserFilmLikesDbStorage implements UserFilmLikesStorage {
 
     private final JdbcTemplate jdbcTemplate;
-    private final FilmGenreStorage filmGenreStorage;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final FilmHydrator filmHydrator;
+    private final FilmCache filmCache;
+    private final LikeBitmapIndex likeBitmapIndex;
 
     @Autowired
-    public UserFilmLikesDbStorage(JdbcTemplate jdbcTemplate, FilmGenreStorage filmGenreStorage) {
+    public UserFilmLikesDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                                  FilmHydrator filmHydrator, FilmCache filmCache, LikeBitmapIndex likeBitmapIndex) {
         this.jdbcTemplate = jdbcTemplate;
-        this.filmGenreStorage = filmGenreStorage;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.filmHydrator = filmHydrator;
+        this.filmCache = filmCache;
+        this.likeBitmapIndex = likeBitmapIndex;
     }
 
     /**
      * Метод для сохранения лайка для фильма от пользователя
      */
     @Override
+    @Transactional
     public void saveLike(Long filmId, Long userId) {
         String sqlQuery = "INSERT INTO user_film_likes (USER_ID, FILM_ID) values (?, ?)";
 
         jdbcTemplate.update(sqlQuery, userId, filmId);
+        updateLikesCount(filmId, 1);
+        filmCache.invalidate(filmId);
+        likeBitmapIndex.addLike(filmId, userId);
     }
 
     /**
      * Метод для удаления лайка для фильма от пользователя
      */
     @Override
-    public void removeLike(Long filmId, Long userId) {
+    @Transactional
+    public boolean removeLike(Long filmId, Long userId) {
         String sqlQuery = "DELETE FROM user_film_likes WHERE USER_ID = ? AND FILM_ID = ?";
 
-        jdbcTemplate.update(sqlQuery, userId, filmId);
+        if (jdbcTemplate.update(sqlQuery, userId, filmId) > 0) {
+            updateLikesCount(filmId, -1);
+            filmCache.invalidate(filmId);
+            likeBitmapIndex.removeLike(filmId, userId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Метод для пересчета счетчика лайков у всех фильмов по таблице user_film_likes.
+     * Обновляются только фильмы, у которых счетчик разошелся с фактическим количеством лайков
+     */
+    @Override
+    @Transactional
+    public int rebuildLikesCount() {
+        String sqlQuery = "UPDATE film f SET LIKES_COUNT = "
+                + "(SELECT COUNT(*) FROM user_film_likes u WHERE u.FILM_ID = f.FILM_ID) "
+                + "WHERE LIKES_COUNT <> (SELECT COUNT(*) FROM user_film_likes u WHERE u.FILM_ID = f.FILM_ID)";
+
+        return jdbcTemplate.update(sqlQuery);
+    }
+
+    /**
+     * Метод для изменения счетчика лайков фильма на переданную величину
+     */
+    private void updateLikesCount(Long filmId, int delta) {
+        String sqlQuery = "UPDATE film SET LIKES_COUNT = LIKES_COUNT + ? WHERE FILM_ID = ?";
+
+        jdbcTemplate.update(sqlQuery, delta, filmId);
     }
 
     /**
@@ -54,62 +106,130 @@ public class UserFilmLikesDbStorage implements UserFilmLikesStorage {
     @Override
     public List<Film> getCount(int count) {
         String sqlQuery = "SELECT f.FILM_ID, f.NAME, f.DESCRIPTION, f.RELEASE_DATE, f.DURATION, "
-                + "f.RATING_MPAA_ID, COUNT(u.USER_ID) AS likes_count FROM film f "
-                + "LEFT OUTER JOIN user_film_likes u ON f.FILM_ID = u.FILM_ID "
+                + "f.RATING_MPAA_ID FROM film f "
                 + "WHERE NOT f.is_delete "
-                + "GROUP BY f.FILM_ID ORDER BY likes_count DESC LIMIT ?";
+                + "ORDER BY f.LIKES_COUNT DESC, f.NAME LIMIT ?";
 
-        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm, count);
+        return queryFilms(sqlQuery, count);
+    }
+
+    /**
+     * Метод для получения фильмов по списку id в порядке переданных id
+     */
+    @Override
+    public List<Film> getByIds(List<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sqlQuery = "SELECT FILM_ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, RATING_MPAA_ID "
+                + "FROM film WHERE (NOT is_delete) AND (FILM_ID IN (:ids))";
+
+        Map<Long, Film> filmsById = new HashMap<>();
+        for (Film film : namedJdbcTemplate.query(sqlQuery, new MapSqlParameterSource("ids", filmIds),
+                this::mapRowToFilm)) {
+            filmsById.put(film.getId(), film);
+        }
+        List<Film> films = filmIds.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        filmHydrator.fillMpa(films);
+        filmHydrator.fillGenres(films);
+        return films;
     }
 
     /**
-     * Вывод общих с другом фильмов с сортировкой по их популярности
+     * Вывод общих с другом фильмов с сортировкой по их популярности. Общие фильмы находятся слиянием
+     * отсортированных id фильмов, которые лайкнули пользователи, из индекса лайков и упорядочиваются
+     * по количеству лайков из того же индекса, после чего загружаются одним запросом
      */
     @Override
     public List<Film> getCommonFilms(long userId, long friendId) {
+        int user = IdBitmap.checkId(userId);
+        int friend = IdBitmap.checkId(friendId);
+        List<Long> filmIds = likeBitmapIndex.read(() -> byPopularity(intersect(
+                likeBitmapIndex.getFilmsOfUser(user).toArray(), likeBitmapIndex.getFilmsOfUser(friend).toArray())));
+        return getByIds(filmIds);
+    }
 
-        String sqlQuery =
-            "SELECT f.* FROM film f "
-          + "INNER JOIN user_film_likes ufl1 ON ufl1.film_id = f.film_id "
-          + "INNER JOIN user_film_likes ufl2 ON ufl2.film_id = f.film_id "
-          + "WHERE ufl1.USER_ID = ? AND ufl2.USER_ID = ? "
-          + "AND NOT f.is_delete "
-          + "ORDER BY (SELECT COUNT(*) FROM user_film_likes ul WHERE ul.film_id = f.film_id) DESC";
+    /**
+     * Вывод фильмов, которые лайкнули не менее min из переданных пользователей, с сортировкой по их
+     * популярности. Фильмы отбираются по множествам лайков пользователей из индекса лайков
+     * и загружаются одним запросом
+     */
+    @Override
+    public List<Film> getCommonFilms(Collection<Long> userIds, int min) {
+        List<Long> filmIds = likeBitmapIndex.read(() -> {
+            List<IdBitmap> likes = new ArrayList<>(userIds.size());
+            for (Long userId : userIds) {
+                likes.add(likeBitmapIndex.getFilmsOfUser(IdBitmap.checkId(userId)));
+            }
+            return byPopularity(IdBitmap.threshold(likes, min).toArray());
+        });
+        return getByIds(filmIds);
+    }
 
-        return jdbcTemplate.query(sqlQuery, this::mapRowToFilm, userId, friendId);
+    /**
+     * Метод для пересечения двух отсортированных массивов id за один проход по обоим
+     */
+    private static int[] intersect(int[] first, int[] second) {
+        int[] result = new int[Math.min(first.length, second.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
 
+    /**
+     * Метод для упорядочивания фильмов по убыванию количества лайков, при равенстве - по возрастанию id.
+     * Вызывается только внутри read индекса лайков
+     */
+    private List<Long> byPopularity(int[] films) {
+        long[] keys = new long[films.length];
+        for (int i = 0; i < films.length; i++) {
+            keys[i] = ((long) likeBitmapIndex.getUsersOfFilm(films[i]).cardinality() << 32)
+                    | (Integer.MAX_VALUE - films[i]);
+        }
+        Arrays.sort(keys);
+        List<Long> filmIds = new ArrayList<>(keys.length);
+        for (int i = keys.length - 1; i >= 0; i--) {
+            filmIds.add((long) (Integer.MAX_VALUE - (int) (keys[i] & 0xFFFFFFFFL)));
+        }
+        return filmIds;
+    }
+
+    /**
+     * Метод для выполнения запроса по фильмам с пакетной подгрузкой рейтинга и жанров
+     */
+    private List<Film> queryFilms(String sqlQuery, Object... args) {
+        List<Film> films = jdbcTemplate.query(sqlQuery, this::mapRowToFilm, args);
+        filmHydrator.fillMpa(films);
+        filmHydrator.fillGenres(films);
+        return films;
     }
 
     /**
      * Метод для маппинга полей фильма из таблицы в объект
      */
     private Film mapRowToFilm(ResultSet resultSet, int rowNum) throws SQLException {
-        int mpaId = resultSet.getInt("RATING_MPAA_ID");
-        String sqlFindName = "SELECT RATING_MPAA_ID, NAME FROM rating_mpaa WHERE RATING_MPAA_ID = ?";
-        Mpa mpa = jdbcTemplate.queryForObject(sqlFindName, this::mapRowToMpa, mpaId);
-
-        LinkedHashSet<Genre> setGenre = new LinkedHashSet<>();
-        filmGenreStorage.getGenreList(resultSet.getLong("FILM_ID")).stream()
-                .forEach(g -> setGenre.add(g));
-
         return Film.builder()
                 .id(resultSet.getLong("FILM_ID"))
                 .name(resultSet.getString("NAME"))
                 .description(resultSet.getString("DESCRIPTION"))
                 .releaseDate(resultSet.getDate("RELEASE_DATE").toLocalDate())
                 .duration(resultSet.getLong("DURATION"))
-                .genres(setGenre)
-                .mpa(mpa)
-                .build();
-    }
-
-    /**
-     * Метод для маппинга полей рейтинга фильма из таблицы в объект
-     */
-    private Mpa mapRowToMpa(ResultSet resultSet, int rowNum) throws SQLException {
-        return Mpa.builder()
-                .id(resultSet.getInt("RATING_MPAA_ID"))
-                .name(resultSet.getString("NAME"))
+                .mpa(Mpa.builder().id(resultSet.getInt("RATING_MPAA_ID")).build())
                 .build();
     }
 }
@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.storage.userfilmlikes;
 
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -10,13 +11,32 @@ import java.util.List;
 public interface UserFilmLikesStorage {
     void saveLike(Long filmId, Long userId);
 
-    void removeLike(Long filmId, Long userId);
+    /**
+     * Удаление лайка, возвращает true, если лайк был удален
+     */
+    boolean removeLike(Long filmId, Long userId);
 
     List<Film> getCount(int count);
 
+    /**
+     * Получение фильмов в том же виде, что и в getCount, в порядке переданных id
+     */
+    List<Film> getByIds(List<Long> filmIds);
+
+    /**
+     * Пересчет счетчиков лайков фильмов, возвращает количество исправленных фильмов
+     */
+    int rebuildLikesCount();
+
     /**
      * Вывод общих с другом фильмов с сортировкой по их популярности
      */
     List<Film> getCommonFilms(long userId, long friendId);
 
+    /**
+     * Вывод фильмов, которые лайкнули не менее min из переданных пользователей, с сортировкой
+     * по их популярности
+     */
+    List<Film> getCommonFilms(Collection<Long> userIds, int min);
+
 }
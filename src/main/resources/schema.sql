@@ -51,6 +51,23 @@ create table if not exists friendship
     confirmed boolean
 );
 
+alter table friendship add column if not exists user_low_id long generated always as (least(user_id, friend_id));
+
+alter table friendship add column if not exists user_high_id long generated always as (greatest(user_id, friend_id));
+
+create table if not exists friend_edge
+(
+    user_id       long not null references users (user_id),
+    friend_id     long not null references users (user_id),
+    friendship_id long not null,
+    primary key (user_id, friend_id)
+);
+
+drop index if exists friend_edge_friendship_index;
+
+create index if not exists friend_edge_friend_index
+    on friend_edge (friend_id, user_id);
+
 create unique index if not exists user_film_likes_uindex
     on user_film_likes (user_id, film_id);
 
@@ -60,6 +77,11 @@ create unique index if not exists film_genre_uindex
 create index if not exists film_index_name
     on film (name);
 
+alter table film add column if not exists likes_count integer default 0 not null;
+
+create index if not exists film_index_likes_count
+    on film (likes_count desc, name);
+
 create table if not exists review
 (
     review_id long generated by default as identity primary key,
@@ -79,6 +101,17 @@ create table if not exists review_likes
     is_delete boolean default false
 );
 
+alter table review add column if not exists useful integer default 0 not null;
+
+create index if not exists review_film_useful_index
+    on review (film_id, useful desc, review_id);
+
+create index if not exists review_useful_index
+    on review (useful desc, review_id);
+
+create index if not exists review_likes_review_user_index
+    on review_likes (review_id, user_id);
+
 create table if not exists feed
 (
     event_id   long generated by default as identity primary key,
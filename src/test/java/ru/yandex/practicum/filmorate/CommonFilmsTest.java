@@ -16,7 +16,9 @@ import ru.yandex.practicum.filmorate.storage.userfilmlikes.UserFilmLikesDbStorag
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -246,4 +248,54 @@ public class CommonFilmsTest {
 
     }
 
+    @Test
+    public void check_group_common_films() {
+
+        List<Long> users = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            users.add(userDbStorage.create(User.builder()
+                    .name("user" + i)
+                    .email("user" + i + "@bbb.ru")
+                    .login("user" + i)
+                    .birthday(LocalDate.of(1990, 6, 9))
+                    .build()).getId());
+        }
+
+        List<Long> films = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            films.add(filmDbStorage.create(Film.builder()
+                    .name("Name" + i)
+                    .description("Description")
+                    .releaseDate(LocalDate.of(1995, 12, 27)).duration(120L)
+                    .mpa(Mpa.builder().id(3).build())
+                    .build()).getId());
+        }
+
+        // фильм 1 лайкнули трое, фильм 2 - все четверо, фильм 3 - двое, фильм 4 - трое из группы и еще один
+        // пользователь вне группы
+        int[][] likes = {{0, 0}, {0, 1}, {0, 2}, {1, 0}, {1, 1}, {1, 2}, {1, 3}, {2, 0}, {2, 1},
+                {3, 0}, {3, 1}, {3, 3}};
+        for (int[] like : likes) {
+            likesDbStorage.saveLike(films.get(like[0]), users.get(like[1]));
+        }
+        Long outsider = userDbStorage.create(User.builder()
+                .name("user5")
+                .email("user5@bbb.ru")
+                .login("user5")
+                .birthday(LocalDate.of(1990, 6, 9))
+                .build()).getId();
+        likesDbStorage.saveLike(films.get(3), outsider);
+
+        assertEquals(List.of(films.get(1)), ids(likesDbStorage.getCommonFilms(users, 4)));
+        assertEquals(List.of(films.get(1), films.get(3), films.get(0)), ids(likesDbStorage.getCommonFilms(users, 3)));
+        assertEquals(List.of(films.get(1), films.get(3), films.get(0), films.get(2)),
+                ids(likesDbStorage.getCommonFilms(users, 2)));
+        assertEquals(List.of(films.get(1), films.get(0)), ids(likesDbStorage.getCommonFilms(users.subList(0, 3), 3)));
+
+    }
+
+    private static List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+
 }
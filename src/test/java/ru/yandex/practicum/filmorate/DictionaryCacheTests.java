@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка справочников жанров и рейтингов, которые обслуживаются из памяти
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class DictionaryCacheTests {
+    @Autowired
+    private GenreDbStorage genreStorage;
+    @Autowired
+    private MpaDbStorage mpaStorage;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void checkGenreLookupsReturnCachedInstance() {
+        Genre genre = genreStorage.getById(1);
+
+        assertSame(genre, genreStorage.getById(1));
+        assertSame(genre, genreStorage.getAll().get(0));
+        assertEquals(genreName(1), genre.getName());
+        assertTrue(genreStorage.findById(100).isEmpty());
+    }
+
+    @Test
+    public void checkMpaLookupsReturnCachedInstance() {
+        Mpa mpa = mpaStorage.getById(3);
+
+        assertSame(mpa, mpaStorage.getById(3));
+        assertSame(mpa, mpaStorage.getAll().get(2));
+        assertEquals("PG-13", mpa.getName());
+        assertTrue(mpaStorage.findById(100).isEmpty());
+    }
+
+    @Test
+    public void checkFilmsShareDictionaryInstances() throws ValidationException, FilmNotFoundException {
+        Film film = filmService.create(Film.builder()
+                .name("Film")
+                .description("Description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100L)
+                .mpa(Mpa.builder().id(3).build())
+                .genres(new LinkedHashSet<>(List.of(Genre.builder().id(1).build())))
+                .build());
+
+        Film found = filmService.getById(film.getId());
+
+        assertSame(mpaStorage.getById(3), found.getMpa());
+        assertSame(genreStorage.getById(1), found.getGenres().iterator().next());
+    }
+
+    @Test
+    public void checkReloadReplacesCachedInstances() {
+        Genre genre = genreStorage.getById(1);
+        Mpa mpa = mpaStorage.getById(1);
+        String genreName = genre.getName();
+        jdbcTemplate.update("UPDATE GENRE SET NAME = ? WHERE GENRE_ID = ?", "Comedy", 1);
+        jdbcTemplate.update("UPDATE RATING_MPAA SET NAME = ? WHERE RATING_MPAA_ID = ?", "General", 1);
+
+        assertSame(genre, genreStorage.getById(1));
+        assertSame(mpa, mpaStorage.getById(1));
+
+        genreStorage.reload();
+        mpaStorage.reload();
+
+        assertEquals("Comedy", genreStorage.getById(1).getName());
+        assertEquals("General", mpaStorage.getById(1).getName());
+        assertSame(genreStorage.getById(1), genreStorage.getAll().get(0));
+        assertEquals(genreName, genre.getName());
+        assertEquals("G", mpa.getName());
+    }
+
+    private String genreName(int id) {
+        return jdbcTemplate.queryForObject("SELECT NAME FROM GENRE WHERE GENRE_ID = ?", String.class, id);
+    }
+}
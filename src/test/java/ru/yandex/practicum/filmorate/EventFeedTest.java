@@ -9,13 +9,16 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ReviewNotFoundException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Feed;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ReviewService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.time.LocalDate;
@@ -30,6 +33,8 @@ public class EventFeedTest {
     private final UserService userService;
     @Autowired
     private final FilmService filmService;
+    @Autowired
+    private final ReviewService reviewService;
 
     private User user;
     private User otherUser;
@@ -100,4 +105,39 @@ public class EventFeedTest {
                 && resultFeed.get(0).getEventType().equals("LIKE")
                 && resultFeed.get(1).getOperation().equals("REMOVE"));
     }
+
+    @Test
+    void test4_shouldGetFriendshipIdWhenFriendshipEventByDelete() throws ValidationException, UserNotFoundException {
+        userService.create(user);
+        userService.create(otherUser);
+        userService.addToFriends(1L, 2L);
+        userService.deleteFromFriends(1L, 2L);
+        userService.deleteFromFriends(1L, 2L);
+
+        List<Feed> resultFeed = userService.getEventFeedById(1L);
+        Assertions.assertEquals(2, resultFeed.size());
+        Assertions.assertEquals("REMOVE", resultFeed.get(1).getOperation());
+        Assertions.assertEquals(resultFeed.get(0).getEntityId(), resultFeed.get(1).getEntityId());
+    }
+
+    @Test
+    void test5_shouldGetReviewIdWhenReviewEvents() throws ValidationException, UserNotFoundException,
+            FilmNotFoundException, ReviewNotFoundException {
+        userService.create(user);
+        filmService.create(film);
+        Review review = reviewService.create(Review.builder()
+                .content("Review")
+                .isPositive(true)
+                .userId(1L)
+                .filmId(1L)
+                .build());
+        reviewService.deleteById(review.getId());
+
+        List<Feed> resultFeed = userService.getEventFeedById(1L);
+        Assertions.assertEquals(2, resultFeed.size());
+        Assertions.assertEquals("ADD", resultFeed.get(0).getOperation());
+        Assertions.assertEquals("REMOVE", resultFeed.get(1).getOperation());
+        Assertions.assertEquals(review.getId(), resultFeed.get(0).getEntityId());
+        Assertions.assertEquals(review.getId(), resultFeed.get(1).getEntityId());
+    }
 }
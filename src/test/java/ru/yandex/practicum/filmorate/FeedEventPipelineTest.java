@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Feed;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.feed.FeedDbStorage;
+import ru.yandex.practicum.filmorate.storage.feed.FeedEventPipeline;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка асинхронной записи ленты событий: события из многих потоков записываются пачками и все
+ * оказываются в БД после flush и после остановки, в том числе опубликованные во время остановки,
+ * а при заполненном буфере с политикой drop лишние события отбрасываются
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class FeedEventPipelineTest {
+    private static final int THREADS = 16;
+    private static final int EVENTS_PER_THREAD = 500;
+
+    private final UserDbStorage userDbStorage;
+    private final FeedDbStorage feedDbStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void publishedEventsArePersistedInBatchesAndOnStop() throws Exception {
+        long userId = createUser();
+        FeedEventPipeline pipeline = new FeedEventPipeline(feedDbStorage, true, 1024, 64, 5, 5000, "block");
+        pipeline.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < EVENTS_PER_THREAD; j++) {
+                        pipeline.publish(event(userId));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(pipeline.flush());
+        assertEquals(THREADS * EVENTS_PER_THREAD, countEvents(userId));
+
+        for (int i = 0; i < 10; i++) {
+            pipeline.publish(event(userId));
+        }
+        pipeline.stop();
+        assertEquals(THREADS * EVENTS_PER_THREAD + 10, countEvents(userId));
+        assertTrue(pipeline.getStats().getBatches() < THREADS * EVENTS_PER_THREAD / 2);
+        assertEquals(0, pipeline.getStats().getDropped());
+    }
+
+    @Test
+    public void eventsPublishedDuringStopAreNotLost() throws Exception {
+        long userId = createUser();
+        FeedEventPipeline pipeline = new FeedEventPipeline(feedDbStorage, true, 64, 8, 5, 5000, "block");
+        pipeline.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch started = new CountDownLatch(THREADS);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    started.countDown();
+                    for (int j = 0; j < EVENTS_PER_THREAD / 10; j++) {
+                        pipeline.publish(event(userId));
+                    }
+                    return null;
+                }));
+            }
+            started.await();
+            pipeline.stop();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(THREADS * EVENTS_PER_THREAD / 10, countEvents(userId));
+    }
+
+    @Test
+    public void eventsAreDroppedWhenQueueIsFull() {
+        long userId = createUser();
+        CountDownLatch release = new CountDownLatch(1);
+        FeedDbStorage stalledStorage = new FeedDbStorage(jdbcTemplate) {
+            @Override
+            public void createEvents(List<Feed> feeds) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.createEvents(feeds);
+            }
+        };
+        FeedEventPipeline pipeline = new FeedEventPipeline(stalledStorage, true, 4, 1, 1, 5000, "drop");
+        pipeline.start();
+        for (int i = 0; i < 20; i++) {
+            pipeline.publish(event(userId));
+        }
+        long dropped = pipeline.getStats().getDropped();
+        assertTrue(dropped > 0);
+
+        release.countDown();
+        pipeline.stop();
+        assertEquals(20 - dropped, countEvents(userId));
+    }
+
+    private long createUser() {
+        return userDbStorage.create(User.builder().email("feed@gmail.com").login("FeedLogin").name("FeedName")
+                .birthday(LocalDate.of(1990, 6, 9)).build()).getId();
+    }
+
+    private int countEvents(long userId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FEED WHERE USER_ID = ?", Integer.class, userId);
+    }
+
+    private static Feed event(long userId) {
+        return Feed.builder()
+                .timestamp(0)
+                .userId(userId)
+                .eventType("LIKE")
+                .operation("ADD")
+                .entityId(userId)
+                .build();
+    }
+}
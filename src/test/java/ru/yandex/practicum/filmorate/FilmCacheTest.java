@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверка кэша фильмов: фильм, удаленный из кэша во время своей загрузки, не попадает в кэш,
+ * а удаление других фильмов во время загрузки кэшированию не мешает
+ */
+public class FilmCacheTest {
+    private FilmCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void init() {
+        cache = new FilmCache(100);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void evictOfOtherFilmDuringLoadDoesNotPreventCaching() {
+        cache.get(1L, loader(() -> cache.invalidate(2L)));
+        cache.get(1L, loader(() -> { }));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getStats().getHits());
+    }
+
+    @Test
+    public void evictOfSameFilmDuringLoadPreventsCaching() {
+        cache.get(1L, loader(() -> cache.invalidate(1L)));
+        cache.get(1L, loader(() -> { }));
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getStats().getHits());
+    }
+
+    @Test
+    public void invalidateAllDuringLoadPreventsCaching() {
+        cache.get(1L, loader(() -> cache.invalidateAll()));
+        cache.get(1L, loader(() -> { }));
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void failedLoadDoesNotBlockLaterCaching() {
+        try {
+            cache.get(1L, id -> {
+                throw new IllegalStateException();
+            });
+        } catch (IllegalStateException ignored) {
+            // загрузка завершилась ошибкой, метка загрузки должна быть снята
+        }
+        cache.get(1L, loader(() -> { }));
+        cache.get(1L, loader(() -> { }));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getStats().getHits());
+    }
+
+    /**
+     * Функция загрузки фильма, которая во время загрузки выполняет переданное действие
+     */
+    private Function<Long, Film> loader(Runnable duringLoad) {
+        return id -> {
+            loads.incrementAndGet();
+            duringLoad.run();
+            return Film.builder().id(id).name("Film" + id).build();
+        };
+    }
+}
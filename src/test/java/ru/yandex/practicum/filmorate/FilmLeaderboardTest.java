@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.leaderboard.FilmLeaderboard;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверка рейтинга популярности фильмов в памяти: изменение порядка при добавлении и удалении лайков,
+ * порядок фильмов с равным количеством лайков и границы выдачи первых фильмов
+ */
+public class FilmLeaderboardTest {
+    private FilmLeaderboard leaderboard;
+
+    @BeforeEach
+    public void init() {
+        leaderboard = new FilmLeaderboard(null);
+        leaderboard.putFilm(1L, "Film");
+        leaderboard.putFilm(2L, "Film");
+        leaderboard.putFilm(3L, "Film");
+    }
+
+    @Test
+    public void likeAndUnlikeChangeOrder() {
+        leaderboard.addLikes(3L, 1);
+        leaderboard.addLikes(3L, 1);
+        leaderboard.addLikes(2L, 1);
+        assertEquals(List.of(3L, 2L, 1L), leaderboard.getTop(3));
+
+        leaderboard.addLikes(3L, -1);
+        leaderboard.addLikes(3L, -1);
+        assertEquals(List.of(2L, 1L, 3L), leaderboard.getTop(3));
+    }
+
+    @Test
+    public void unlikeDoesNotMakeLikesNegative() {
+        leaderboard.addLikes(1L, -1);
+        leaderboard.addLikes(2L, 1);
+        leaderboard.addLikes(2L, -1);
+        assertEquals(List.of(1L, 2L, 3L), leaderboard.getTop(3));
+    }
+
+    @Test
+    public void equalLikesAreOrderedByNameThenById() {
+        leaderboard.putFilm(4L, "Another film");
+        assertEquals(List.of(4L, 1L, 2L, 3L), leaderboard.getTop(4));
+
+        leaderboard.addLikes(3L, 1);
+        leaderboard.addLikes(1L, 1);
+        assertEquals(List.of(1L, 3L, 4L, 2L), leaderboard.getTop(4));
+    }
+
+    @Test
+    public void topIsLimitedByCountAndFilmCount() {
+        assertEquals(List.of(), leaderboard.getTop(0));
+        assertEquals(List.of(), leaderboard.getTop(-1));
+        assertEquals(List.of(1L), leaderboard.getTop(1));
+        assertEquals(List.of(1L, 2L), leaderboard.getTop(2));
+        assertEquals(List.of(1L, 2L, 3L), leaderboard.getTop(3));
+        assertEquals(List.of(1L, 2L, 3L), leaderboard.getTop(10));
+    }
+
+    @Test
+    public void renamedAndRemovedFilmsAreUpdated() {
+        leaderboard.addLikes(2L, 1);
+        leaderboard.putFilm(2L, "Renamed");
+        leaderboard.putFilm(3L, "Film");
+        assertEquals(List.of(2L, 1L, 3L), leaderboard.getTop(3));
+
+        leaderboard.removeFilm(2L);
+        leaderboard.addLikes(2L, 1);
+        assertEquals(List.of(1L, 3L), leaderboard.getTop(3));
+    }
+}
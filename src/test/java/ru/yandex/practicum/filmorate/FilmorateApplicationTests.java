@@ -1,6 +1,5 @@
 package ru.yandex.practicum.filmorate;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,18 +7,25 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.InvalidCursorException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ExportService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
 import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
 import ru.yandex.practicum.filmorate.storage.recommendations.UserRecommendationStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 import ru.yandex.practicum.filmorate.storage.userfilmlikes.UserFilmLikesDbStorage;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -33,15 +39,23 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @SpringBootTest
 @AutoConfigureTestDatabase
-@RequiredArgsConstructor(onConstructor_ = @Autowired)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
 @Slf4j
 class FilmorateApplicationTests {
-	private final UserDbStorage userDbStorage;
-	private final FilmDbStorage filmDbStorage;
-	private final FriendshipDbStorage friendshipDbStorage;
-	private final UserFilmLikesDbStorage userFilmLikesDbStorage;
-	private final UserService userService;
+	@Autowired
+	private UserDbStorage userDbStorage;
+	@Autowired
+	private FilmDbStorage filmDbStorage;
+	@Autowired
+	private FriendshipDbStorage friendshipDbStorage;
+	@Autowired
+	private UserFilmLikesDbStorage userFilmLikesDbStorage;
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private ExportService exportService;
+	@Autowired
+	private FilmCache filmCache;
 
 	@Test
 	public void checkCreatedUserFindUserById() {
@@ -200,6 +214,25 @@ class FilmorateApplicationTests {
 		assertThat(friendshipDbStorage.getCommonFriends(1L, 3L), is(equalTo(listToCompare)));
 	}
 
+	@Test
+	public void getFriendSuggestionsByMutualFriends() {
+		for (int i = 1; i <= 5; i++) {
+			userDbStorage.create(User.builder().email("user" + i + "@gmail.com").name("UserName" + i)
+					.birthday(LocalDate.of(1990, 6, 9)).login("UserLogin" + i).build());
+		}
+		friendshipDbStorage.addToFriends(1L, 2L);
+		friendshipDbStorage.addToFriends(1L, 3L);
+		friendshipDbStorage.addToFriends(2L, 4L);
+		friendshipDbStorage.addToFriends(3L, 4L);
+		friendshipDbStorage.addToFriends(3L, 5L);
+		friendshipDbStorage.addToFriends(2L, 3L);
+		List<Long> suggestions = new ArrayList<>();
+		for (User user : friendshipDbStorage.getFriendSuggestions(1L, 10)) {
+			suggestions.add(user.getId());
+		}
+		assertThat(suggestions, is(equalTo(List.of(4L, 5L))));
+	}
+
 	@Test
 	public void deleteFromFriendsCheckFriendList() {
 		User user1 = User.builder().email("qwe@gmail.com").name("UserName1")
@@ -275,6 +308,86 @@ class FilmorateApplicationTests {
 		assertThat(filmDbStorage.getById(1L), is(equalTo(filmToCompare)));
 	}
 
+	@Test
+	public void likesCountFollowsSaveAndRemoveLike() {
+		User user1 = User.builder().email("qwe@gmail.com").name("UserName1")
+				.birthday(LocalDate.of(1990, 6, 9)).login("UserLogin").build();
+		userDbStorage.create(user1);
+		User user2 = User.builder().email("asd@gmail.com").name("UserName2")
+				.birthday(LocalDate.of(1986, 1, 2)).login("UserLogin2").build();
+		userDbStorage.create(user2);
+		Film film1 = Film.builder().name("Name1").description("Description")
+				.releaseDate(LocalDate.of(1995, 12, 27)).duration(120L)
+				.mpa(Mpa.builder().id(3).build()).build();
+		filmDbStorage.create(film1);
+		Film film2 = Film.builder().name("Name2").description("Description2")
+				.releaseDate(LocalDate.of(1990, 11, 14)).duration(110L)
+				.mpa(Mpa.builder().id(1).build()).build();
+		filmDbStorage.create(film2);
+		userFilmLikesDbStorage.saveLike(2L, 1L);
+		userFilmLikesDbStorage.saveLike(2L, 2L);
+		userFilmLikesDbStorage.saveLike(1L, 1L);
+		assertEquals(2L, userFilmLikesDbStorage.getCount(1).get(0).getId());
+
+		userFilmLikesDbStorage.removeLike(2L, 1L);
+		userFilmLikesDbStorage.removeLike(2L, 2L);
+		userFilmLikesDbStorage.removeLike(2L, 2L);
+		assertEquals(1L, userFilmLikesDbStorage.getCount(1).get(0).getId());
+		assertEquals(0, userFilmLikesDbStorage.rebuildLikesCount());
+	}
+
+	@Test
+	public void filmCacheServesRepeatedReadsAndInvalidatesOnLike() {
+		User user = User.builder().email("qwe@gmail.com").name("UserName")
+				.birthday(LocalDate.of(1990, 6, 9)).login("UserLogin").build();
+		userDbStorage.create(user);
+		Film film = Film.builder().name("Name1").description("Description")
+				.releaseDate(LocalDate.of(1995, 12, 27)).duration(120L)
+				.mpa(Mpa.builder().id(3).build()).build();
+		filmDbStorage.create(film);
+		long hitsBefore = filmCache.getStats().getHits();
+		filmDbStorage.getById(1L).getLikesFromUsers().add(100L);
+		assertEquals(Set.of(), filmDbStorage.getById(1L).getLikesFromUsers());
+		assertEquals(hitsBefore + 2, filmCache.getStats().getHits());
+
+		userFilmLikesDbStorage.saveLike(1L, 1L);
+		assertEquals(Set.of(1L), filmDbStorage.getById(1L).getLikesFromUsers());
+		filmDbStorage.delete(1L);
+		assertEquals(null, filmDbStorage.getById(1L));
+	}
+
+	@Test
+	public void getUsersPageByCursor() throws InvalidCursorException {
+		for (int i = 1; i <= 3; i++) {
+			userDbStorage.create(User.builder().email("user" + i + "@gmail.com").name("UserName" + i)
+					.birthday(LocalDate.of(1990, 6, 9)).login("UserLogin" + i).build());
+		}
+		List<User> firstPage = userDbStorage.getPage(null, 2);
+		assertEquals(List.of(1L, 2L), List.of(firstPage.get(0).getId(), firstPage.get(1).getId()));
+
+		String cursor = PageCursor.builder().id(firstPage.get(1).getId()).build().encode();
+		List<User> secondPage = userDbStorage.getPage(PageCursor.decode(cursor), 2);
+		assertEquals(1, secondPage.size());
+		assertEquals(3L, secondPage.get(0).getId());
+	}
+
+	@Test
+	public void exportFilmsWritesOneJsonObjectPerLine() throws IOException {
+		filmDbStorage.create(Film.builder().name("Name1").description("Description1")
+				.releaseDate(LocalDate.of(1995, 12, 27)).duration(120L)
+				.mpa(Mpa.builder().id(3).build()).build());
+		filmDbStorage.create(Film.builder().name("Name2").description("Description2")
+				.releaseDate(LocalDate.of(1990, 11, 14)).duration(110L)
+				.mpa(Mpa.builder().id(1).build()).build());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exportService.exportFilms(out);
+
+		String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+		assertEquals(2, lines.length);
+		assertThat(lines[0].startsWith("{\"id\":1,\"name\":\"Name1\""), is(true));
+		assertThat(lines[1].contains("\"mpa\":{\"id\":1,\"name\":\"G\"}"), is(true));
+	}
+
 	@Test
 	public void getRecommendation() throws ValidationException, UserNotFoundException, FilmNotFoundException {
 		User user1 = User.builder().id(1L).email("qwerty@gmail.com").name("UserName")
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверка переходов дружбы под нагрузкой: 64 потока одновременно добавляют друг друга в друзья
+ * и удаляют из друзей парами, после каждого шага у каждой пары должна остаться ровно одна подтвержденная
+ * строка friendship и две строки friend_edge или не остаться ни одной
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class FriendshipConcurrencyTest {
+    private static final int THREADS = 64;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private UserDbStorage userDbStorage;
+    @Autowired
+    private FriendshipDbStorage friendshipDbStorage;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void concurrentMutualAddAndDeleteKeepOneEdgePerPair() throws Exception {
+        for (int i = 1; i <= THREADS; i++) {
+            userDbStorage.create(User.builder().email("user" + i + "@gmail.com").name("UserName" + i)
+                    .birthday(LocalDate.of(1990, 6, 9)).login("UserLogin" + i).build());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                runConcurrently(executor, (userId, friendId) -> friendshipDbStorage.addToFriends(userId, friendId));
+                assertEquals(THREADS / 2, jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM friendship WHERE CONFIRMED", Integer.class));
+                assertEquals(THREADS / 2, jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM friendship", Integer.class));
+                assertEquals(THREADS, jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM friend_edge", Integer.class));
+                for (long userId = 1; userId <= THREADS; userId++) {
+                    assertEquals(List.of(pairOf(userId)), friendshipDbStorage.getFriendsForUser(userId).stream()
+                            .map(User::getId).collect(Collectors.toList()));
+                }
+
+                runConcurrently(executor, (userId, friendId) -> friendshipDbStorage.deleteFromFriends(userId, friendId));
+                assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friendship", Integer.class));
+                assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friend_edge", Integer.class));
+                for (long userId = 1; userId <= THREADS; userId++) {
+                    assertEquals(List.of(), friendshipDbStorage.getFriendsForUser(userId));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Метод для одновременного выполнения перехода каждым пользователем над его парой: пользователи
+     * 1 и 2, 3 и 4 и т.д. выполняют переход навстречу друг другу
+     */
+    private void runConcurrently(ExecutorService executor, Transition transition) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (long userId = 1; userId <= THREADS; userId++) {
+            long id = userId;
+            Callable<Void> task = () -> {
+                start.await();
+                transition.apply(id, pairOf(id));
+                return null;
+            };
+            futures.add(executor.submit(task));
+        }
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+    }
+
+    private static long pairOf(long userId) {
+        return userId % 2 == 1 ? userId + 1 : userId - 1;
+    }
+
+    private interface Transition {
+        void apply(Long userId, Long friendId);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipRepairJob;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверка восстановления таблиц дружбы: объединения повторяющихся пар и добавления недостающих
+ * строк friend_edge в частично заполненную таблицу
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class FriendshipRepairTest {
+    @Autowired
+    private UserDbStorage userDbStorage;
+    @Autowired
+    private FriendshipDbStorage friendshipDbStorage;
+    @Autowired
+    private FriendshipRepairJob friendshipRepairJob;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void missingEdgesAreAddedToPartiallyFilledTable() {
+        createUsers(3);
+        friendshipDbStorage.addToFriends(1L, 2L);
+        jdbcTemplate.update("INSERT INTO friendship (USER_ID, FRIEND_ID, CONFIRMED) VALUES (3, 1, true)");
+
+        assertEquals(2, friendshipRepairJob.repair());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friend_edge", Integer.class));
+        assertEquals(List.of(2L, 3L), friendIds(1L));
+        assertEquals(List.of(1L), friendIds(3L));
+        assertEquals(0, friendshipRepairJob.repair());
+    }
+
+    @Test
+    public void duplicatePairsAreMergedBeforeUniqueIndex() {
+        createUsers(2);
+        jdbcTemplate.execute("DROP INDEX friendship_pair_uindex");
+        jdbcTemplate.update("INSERT INTO friendship (USER_ID, FRIEND_ID, CONFIRMED) VALUES (1, 2, false)");
+        jdbcTemplate.update("INSERT INTO friendship (USER_ID, FRIEND_ID, CONFIRMED) VALUES (2, 1, false)");
+
+        assertEquals(1, friendshipDbStorage.mergeDuplicatePairs());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friendship WHERE USER_ID = 1 "
+                + "AND FRIEND_ID = 2 AND CONFIRMED", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friendship", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES "
+                + "WHERE INDEX_NAME = 'FRIENDSHIP_PAIR_UINDEX'", Integer.class));
+        assertEquals(0, friendshipDbStorage.mergeDuplicatePairs());
+    }
+
+    private void createUsers(int count) {
+        for (int i = 1; i <= count; i++) {
+            userDbStorage.create(User.builder().email("user" + i + "@gmail.com").name("UserName" + i)
+                    .birthday(LocalDate.of(1990, 6, 9)).login("UserLogin" + i).build());
+        }
+    }
+
+    private List<Long> friendIds(Long userId) {
+        return friendshipDbStorage.getFriendsForUser(userId).stream().map(User::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,418 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.InvalidCountException;
+import ru.yandex.practicum.filmorate.exception.UnknownRecommendationAlgorithmException;
+import ru.yandex.practicum.filmorate.exception.UnknownSimilarFilmsSourceException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.RecommendationAlgorithm;
+import ru.yandex.practicum.filmorate.model.Recommendations;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.recommendations.AlsModel;
+import ru.yandex.practicum.filmorate.storage.recommendations.AlsRecommendationEngine;
+import ru.yandex.practicum.filmorate.storage.recommendations.AlsTrainer;
+import ru.yandex.practicum.filmorate.storage.recommendations.AlsTrainingJob;
+import ru.yandex.practicum.filmorate.storage.recommendations.BitmapRecommendationEngine;
+import ru.yandex.practicum.filmorate.storage.recommendations.FilmEmbeddingIndex;
+import ru.yandex.practicum.filmorate.storage.recommendations.HnswIndex;
+import ru.yandex.practicum.filmorate.storage.recommendations.IdBitmap;
+import ru.yandex.practicum.filmorate.storage.recommendations.LikeBitmapIndex;
+import ru.yandex.practicum.filmorate.storage.recommendations.MajorityOverlapSimilarity;
+import ru.yandex.practicum.filmorate.storage.recommendations.MinHashLshIndex;
+import ru.yandex.practicum.filmorate.storage.recommendations.RecommendationCache;
+import ru.yandex.practicum.filmorate.storage.recommendations.SimilarFilmsIndex;
+import ru.yandex.practicum.filmorate.storage.recommendations.SimilarityStrategy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверка рекомендаций фильмов по индексу лайков в памяти. Фоновый пересчет кэша рекомендаций и фоновое
+ * обучение модели ALS отключены, очередь пересчета обрабатывается и модель обучается в тестах явно
+ */
+@SpringBootTest(properties = {"filmorate.recommendations.cache.refresh-interval-ms=0",
+        "filmorate.recommendations.als.train-interval-minutes=0",
+        "filmorate.recommendations.als.model-path=target/als-test-model.bin",
+        "filmorate.recommendations.hnsw.path=target/als-test-model.hnsw"})
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class RecommendationTests {
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private BitmapRecommendationEngine recommendationEngine;
+    @Autowired
+    private LikeBitmapIndex likeBitmapIndex;
+    @Autowired
+    private RecommendationCache recommendationCache;
+    @Autowired
+    private SimilarFilmsIndex similarFilmsIndex;
+    @Autowired
+    private AlsTrainingJob alsTrainingJob;
+    @Autowired
+    private AlsRecommendationEngine alsRecommendationEngine;
+    @Autowired
+    private FilmEmbeddingIndex filmEmbeddingIndex;
+    @Autowired
+    private List<SimilarityStrategy> similarityStrategies;
+
+    @Test
+    public void bitmapKeepsValuesAcrossContainerConversions() {
+        IdBitmap bitmap = new IdBitmap();
+        IdBitmap odd = new IdBitmap();
+        for (int i = 0; i < 10_000; i++) {
+            bitmap.add(i);
+            if (i % 2 == 1) {
+                odd.add(i);
+            }
+        }
+        bitmap.add(70_000);
+        assertEquals(10_001, bitmap.cardinality());
+        assertEquals(5_000, bitmap.andCardinality(odd));
+        for (int i = 0; i < 10_000; i += 2) {
+            bitmap.remove(i);
+        }
+        assertEquals(5_001, bitmap.cardinality());
+        assertEquals(5_000, bitmap.andCardinality(odd));
+        assertFalse(bitmap.contains(2));
+        assertTrue(bitmap.contains(70_000));
+    }
+
+    @Test
+    public void parallelScanMatchesSequentialScan() {
+        LikeBitmapIndex index = new LikeBitmapIndex(null);
+        Random random = new Random(11);
+        for (long user = 1; user <= 20_000; user++) {
+            for (int i = 0; i < 5; i++) {
+                index.addLike((long) random.nextInt(200) + 1, user);
+            }
+        }
+        BitmapRecommendationEngine sequential = new BitmapRecommendationEngine(index,
+                List.of(new MajorityOverlapSimilarity()), "majority", 1);
+        BitmapRecommendationEngine parallel = new BitmapRecommendationEngine(index,
+                List.of(new MajorityOverlapSimilarity()), "majority", 4);
+        try {
+            for (long user = 1; user <= 20; user++) {
+                BitmapRecommendationEngine.Recommendation expected = sequential.compute(user, 300);
+                BitmapRecommendationEngine.Recommendation actual = parallel.compute(user, 300);
+                assertEquals(expected.getFilmIds(), actual.getFilmIds());
+                assertArrayEquals(expected.getNeighbours().toArray(), actual.getNeighbours().toArray());
+            }
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    public void lshIndexFollowsLikeChanges() {
+        LikeBitmapIndex index = new LikeBitmapIndex(null);
+        MinHashLshIndex lsh = new MinHashLshIndex(index, 8, 2);
+        for (long film = 1; film <= 5; film++) {
+            index.addLike(film, 1L);
+            index.addLike(film, 2L);
+            index.addLike(film + 100, 3L);
+        }
+        assertTrue(index.read(() -> lsh.find(1, index.getFilmsOfUser(1)).contains(2)));
+        assertFalse(index.read(() -> lsh.find(1, index.getFilmsOfUser(1)).contains(3)));
+
+        for (long film = 1; film <= 5; film++) {
+            index.removeLike(film, 2L);
+            index.addLike(film + 100, 2L);
+        }
+        assertFalse(index.read(() -> lsh.find(1, index.getFilmsOfUser(1)).contains(2)));
+        assertTrue(index.read(() -> lsh.find(3, index.getFilmsOfUser(3)).contains(2)));
+    }
+
+    @Test
+    public void recommendationsMatchMajorityOverlapRule() throws ValidationException, UserNotFoundException,
+            FilmNotFoundException {
+        int users = 15;
+        int films = 12;
+        createUsersAndFilms(users, films);
+        Random random = new Random(7);
+        Map<Long, Set<Long>> likes = new HashMap<>();
+        for (long user = 1; user <= users; user++) {
+            likes.put(user, new HashSet<>());
+            for (long film = 1; film <= films; film++) {
+                if (random.nextInt(3) == 0) {
+                    filmService.likeFilm(film, user);
+                    likes.get(user).add(film);
+                }
+            }
+        }
+
+        for (long user = 1; user <= users; user++) {
+            Set<Long> expected = new HashSet<>();
+            Set<Long> own = likes.get(user);
+            for (long other = 1; other <= users; other++) {
+                Set<Long> common = new HashSet<>(likes.get(other));
+                common.retainAll(own);
+                if (other != user && common.size() > own.size() / 2) {
+                    expected.addAll(likes.get(other));
+                }
+            }
+            expected.removeAll(own);
+            List<Long> recommended = recommendationEngine.recommend(user, films);
+            assertEquals(expected, new HashSet<>(recommended));
+        }
+    }
+
+    @Test
+    public void cachedRecommendationsAreRefreshedAfterNeighbourChanges() throws ValidationException,
+            UserNotFoundException, FilmNotFoundException {
+        createUsersAndFilms(3, 3);
+        filmService.likeFilm(1L, 1L);
+        filmService.likeFilm(1L, 2L);
+        filmService.likeFilm(2L, 2L);
+        filmService.likeFilm(1L, 3L);
+        filmService.likeFilm(3L, 3L);
+        Recommendations recommendations = userService.getRecommendations(1L);
+        assertEquals(List.of(2L, 3L), ids(recommendations.getFilms()));
+        assertFalse(recommendations.isStale());
+
+        filmService.deleteLike(3L, 3L);
+        recommendations = userService.getRecommendations(1L);
+        assertEquals(List.of(2L, 3L), ids(recommendations.getFilms()));
+        assertTrue(recommendations.isStale());
+        assertEquals(1, recommendationCache.getStats().getQueueSize());
+        assertEquals(1, recommendationCache.refreshPending());
+        recommendations = userService.getRecommendations(1L);
+        assertEquals(List.of(2L), ids(recommendations.getFilms()));
+        assertFalse(recommendations.isStale());
+
+        userService.delete(2L);
+        recommendationCache.refreshPending();
+        assertEquals(List.of(), ids(userService.getRecommendation(1L)));
+
+        likeBitmapIndex.rebuild();
+        assertEquals(List.of(), recommendationEngine.recommend(1L, 10));
+    }
+
+    @Test
+    public void firstRecommendationIsStaleWhenNeighbourLikesDuringComputation() throws ValidationException,
+            UserNotFoundException, FilmNotFoundException {
+        createUsersAndFilms(2, 3);
+        filmService.likeFilm(1L, 1L);
+        filmService.likeFilm(1L, 2L);
+        filmService.likeFilm(2L, 2L);
+        boolean[] liked = {false};
+        BitmapRecommendationEngine engine = new BitmapRecommendationEngine(likeBitmapIndex, similarityStrategies,
+                "majority", 1) {
+            @Override
+            public Recommendation compute(Long userId, int limit) {
+                Recommendation recommendation = super.compute(userId, limit);
+                if (!liked[0]) {
+                    liked[0] = true;
+                    try {
+                        filmService.likeFilm(3L, 2L);
+                    } catch (FilmNotFoundException | UserNotFoundException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return recommendation;
+            }
+        };
+        RecommendationCache cache = new RecommendationCache(engine, likeBitmapIndex, 100, 100, 0, 3600);
+
+        RecommendationCache.Snapshot snapshot = cache.get(1L);
+        assertEquals(List.of(2L), snapshot.getFilmIds());
+
+        snapshot = cache.get(1L);
+        assertTrue(snapshot.isStale());
+        assertEquals(1, cache.refreshPending());
+        snapshot = cache.get(1L);
+        assertEquals(List.of(2L, 3L), snapshot.getFilmIds());
+        assertFalse(snapshot.isStale());
+    }
+
+    @Test
+    public void similarFilmsFollowCoLikes() throws ValidationException, UserNotFoundException,
+            FilmNotFoundException, InvalidCountException, UnknownSimilarFilmsSourceException {
+        createUsersAndFilms(3, 4);
+        filmService.likeFilm(1L, 1L);
+        filmService.likeFilm(2L, 1L);
+        filmService.likeFilm(1L, 2L);
+        filmService.likeFilm(2L, 2L);
+        filmService.likeFilm(3L, 2L);
+        filmService.likeFilm(3L, 3L);
+        filmService.likeFilm(4L, 3L);
+        similarFilmsIndex.awaitPending();
+        assertEquals(List.of(2L, 3L), ids(filmService.getSimilarFilms(1L, 10, "likes")));
+        assertEquals(List.of(2L), ids(filmService.getSimilarFilms(1L, 1, "likes")));
+
+        filmService.likeFilm(1L, 3L);
+        similarFilmsIndex.awaitPending();
+        assertEquals(List.of(2L, 3L, 4L), ids(filmService.getSimilarFilms(1L, 10, "likes")));
+        assertEquals(List.of(3L, 1L), ids(filmService.getSimilarFilms(4L, 10, "likes")));
+
+        similarFilmsIndex.rebuild();
+        assertEquals(List.of(3L, 1L), ids(filmService.getSimilarFilms(4L, 10, "likes")));
+        assertThrows(FilmNotFoundException.class, () -> filmService.getSimilarFilms(100L, 10, "likes"));
+        assertThrows(InvalidCountException.class, () -> filmService.getSimilarFilms(4L, -1, "likes"));
+        assertThrows(InvalidCountException.class, () -> filmService.getSimilarFilms(4L, 0, "embeddings"));
+        assertEquals(List.of(), similarFilmsIndex.getSimilar(4L, -1));
+        assertEquals(List.of(3L), ids(filmService.getSimilarFilms(4L, 1, "likes")));
+    }
+
+    @Test
+    public void alsIsNotTrainedWithoutLikes() throws ValidationException, UserNotFoundException,
+            FilmNotFoundException, IOException, UnknownRecommendationAlgorithmException {
+        Files.deleteIfExists(alsRecommendationEngine.getModelPath());
+        createUsersAndFilms(2, 2);
+        // модель, обученная без лайков, не считается обученной
+        alsRecommendationEngine.setModel(new AlsTrainer(4, 1, 0.1, 10, 42).train(likeBitmapIndex));
+        assertTrue(alsRecommendationEngine.getTrainedAt().isEmpty());
+
+        assertTrue(alsTrainingJob.train().isEmpty());
+        assertFalse(Files.exists(alsRecommendationEngine.getModelPath()));
+        assertTrue(alsRecommendationEngine.getTrainedAt().isEmpty());
+        assertEquals(RecommendationAlgorithm.NEIGHBOURS, userService.getRecommendations(1L, "als").getAlgorithm());
+
+        filmService.likeFilm(1L, 1L);
+        filmService.likeFilm(2L, 2L);
+        AlsModel model = alsTrainingJob.train().orElseThrow();
+        assertFalse(model.isEmpty());
+        assertTrue(alsRecommendationEngine.getTrainedAt().isPresent());
+    }
+
+    @Test
+    public void alsRecommendsFilmsOfTheSameTaste() throws ValidationException, UserNotFoundException,
+            FilmNotFoundException, IOException, UnknownRecommendationAlgorithmException, InvalidCountException,
+            UnknownSimilarFilmsSourceException {
+        createUsersAndFilms(7, 6);
+        for (long user = 1; user <= 6; user++) {
+            long firstFilm = user <= 3 ? 1 : 4;
+            for (long film = firstFilm; film < firstFilm + 3; film++) {
+                filmService.likeFilm(film, user);
+            }
+        }
+        AlsModel model = alsTrainingJob.train().orElseThrow();
+        assertEquals(6, model.getUserCount());
+        assertEquals(6, model.getFilmCount());
+        AlsModel loaded = AlsModel.read(alsRecommendationEngine.getModelPath());
+        assertEquals(model.getTrainedAt(), loaded.getTrainedAt());
+        assertArrayEquals(model.userVector(1, new IdBitmap()), loaded.userVector(1, new IdBitmap()));
+
+        Recommendations recommendations = userService.getRecommendations(1L, "als");
+        assertEquals(RecommendationAlgorithm.ALS, recommendations.getAlgorithm());
+        assertEquals(Set.of(4L, 5L, 6L), new HashSet<>(ids(recommendations.getFilms())));
+
+        // пользователя 7 не было при обучении: его вектор вычисляется по единственному лайку
+        filmService.likeFilm(1L, 7L);
+        assertEquals(Set.of(2L, 3L), new HashSet<>(alsRecommendationEngine.recommend(7L, 2)));
+        assertEquals(RecommendationAlgorithm.NEIGHBOURS, userService.getRecommendations(7L, "neighbours")
+                .getAlgorithm());
+        assertThrows(UnknownRecommendationAlgorithmException.class, () -> userService.getRecommendations(7L, "svd"));
+
+        while (!filmEmbeddingIndex.isReady()) {
+            Thread.onSpinWait();
+        }
+        assertEquals(Set.of(2L, 3L), new HashSet<>(ids(filmService.getSimilarFilms(1L, 2, "embeddings"))));
+        assertEquals(Set.of(2L, 3L), new HashSet<>(alsRecommendationEngine.recommend(7L, 2)));
+
+        // новый фильм получает вектор популярных фильмов того же жанра
+        Film film = filmService.getById(4L);
+        film.setGenres(new LinkedHashSet<>(List.of(Genre.builder().id(1).build())));
+        filmService.update(film);
+        filmService.create(Film.builder().name("Film7").description("Description")
+                .releaseDate(LocalDate.of(1995, 12, 27)).duration(150L).mpa(Mpa.builder().id(1).build())
+                .genres(new LinkedHashSet<>(List.of(Genre.builder().id(1).build()))).build());
+        assertEquals(List.of(4L), ids(filmService.getSimilarFilms(7L, 1, "embeddings")));
+        assertThrows(UnknownSimilarFilmsSourceException.class, () -> filmService.getSimilarFilms(1L, 2, "genres"));
+    }
+
+    @Test
+    public void hnswFindsNearestVectorsAndSurvivesSerialization() throws IOException {
+        Random random = new Random(5);
+        int dimension = 8;
+        float[][] vectors = new float[3000][dimension];
+        HnswIndex index = new HnswIndex(dimension, 8, 64);
+        for (int id = 0; id < vectors.length; id++) {
+            for (int i = 0; i < dimension; i++) {
+                vectors[id][i] = (float) random.nextGaussian();
+            }
+            index.add(id, vectors[id]);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.write(new DataOutputStream(bytes));
+        HnswIndex loaded = HnswIndex.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        int found = 0;
+        for (int query = 0; query < 100; query++) {
+            float[] vector = vectors[random.nextInt(vectors.length)].clone();
+            vector[0] += 0.1f;
+            Set<Integer> top = IntStream.range(0, vectors.length).boxed()
+                    .sorted(Comparator.comparingDouble(id -> distance(vectors[id], vector)))
+                    .limit(10)
+                    .collect(Collectors.toSet());
+            int[] actual = index.search(vector, 10, 64, id -> true);
+            assertArrayEquals(actual, loaded.search(vector, 10, 64, id -> true));
+            for (int id : actual) {
+                found += top.contains(id) ? 1 : 0;
+            }
+        }
+        assertTrue(found >= 950, "recall@10 " + found / 1000.0);
+    }
+
+    private static double distance(float[] first, float[] second) {
+        double product = 0;
+        double firstNorm = 0;
+        double secondNorm = 0;
+        for (int i = 0; i < first.length; i++) {
+            product += first[i] * second[i];
+            firstNorm += first[i] * first[i];
+            secondNorm += second[i] * second[i];
+        }
+        return 1 - product / Math.sqrt(firstNorm * secondNorm);
+    }
+
+    private void createUsersAndFilms(int users, int films) throws ValidationException, FilmNotFoundException {
+        for (int i = 1; i <= users; i++) {
+            userService.create(User.builder().email("user" + i + "@gmail.com").name("User" + i)
+                    .birthday(LocalDate.of(1990, 6, 9)).login("User" + i).build());
+        }
+        for (int i = 1; i <= films; i++) {
+            filmService.create(Film.builder().name("Film" + i).description("Description")
+                    .releaseDate(LocalDate.of(1995, 12, 27)).duration(150L)
+                    .mpa(Mpa.builder().id(1).build()).build());
+        }
+    }
+
+    private static List<Long> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+}
@@ -6,20 +6,25 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.exception.LikeRecordAlreadyExistsException;
 import ru.yandex.practicum.filmorate.exception.ReviewNotFoundException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.PageCursor;
 import ru.yandex.practicum.filmorate.model.Review;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.ReviewService;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
 import ru.yandex.practicum.filmorate.storage.review.ReviewDbStorage;
+import ru.yandex.practicum.filmorate.storage.reviewlikes.ReviewUsefulRepairJob;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
@@ -39,6 +44,8 @@ public class ReviewTests {
     private final ReviewDbStorage reviewDbStorage;
     private final ReviewService reviewService;
     private final FilmDbStorage filmDbStorage;
+    private final ReviewUsefulRepairJob reviewUsefulRepairJob;
+    private final JdbcTemplate jdbcTemplate;
 
     @Test
     public void checkCreatedReviewFindReviewById() {
@@ -96,7 +103,7 @@ public class ReviewTests {
                 .releaseDate(LocalDate.of(1995, 12, 27)).duration(120L)
                 .mpa(Mpa.builder().id(3).build()).build();
         filmDbStorage.create(film);
-        assertThat(reviewDbStorage.getReviewsForFilm(1L, 10).size(), is(equalTo(0)));
+        assertThat(reviewDbStorage.getReviewsPage(1L, null, 10).size(), is(equalTo(0)));
     }
 
     @Test
@@ -110,7 +117,7 @@ public class ReviewTests {
         filmDbStorage.create(film);
         Review review = Review.builder().content("Film is very good").isPositive(true).userId(1L).filmId(1L).build();
         reviewDbStorage.create(review);
-        assertThat(reviewDbStorage.getReviewsForFilm(1L, 10).size(), is(equalTo(1)));
+        assertThat(reviewDbStorage.getReviewsPage(1L, null, 10).size(), is(equalTo(1)));
     }
 
     @Test
@@ -129,7 +136,56 @@ public class ReviewTests {
         reviewDbStorage.create(review1);
         Review review2 = Review.builder().content("Film is a bad film").isPositive(false).userId(2L).filmId(1L).build();
         reviewDbStorage.create(review2);
-        assertThat(reviewDbStorage.getReviewsForFilm(1L, 1).size(), is(equalTo(1)));
+        assertThat(reviewDbStorage.getReviewsPage(1L, null, 1).size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void checkReviewsPageOrderedByUsefulWithCursor() throws Exception {
+        Film film = Film.builder().name("Name").description("Description")
+                .releaseDate(LocalDate.of(1995, 12, 27)).duration(120L)
+                .mpa(Mpa.builder().id(3).build()).build();
+        filmDbStorage.create(film);
+        for (int i = 1; i <= 3; i++) {
+            userDbStorage.create(User.builder().email("user" + i + "@gmail.com").name("UserName" + i)
+                    .birthday(LocalDate.of(1990, 6, 9)).login("UserLogin" + i).build());
+            reviewDbStorage.create(Review.builder().content("Review " + i).isPositive(true)
+                    .userId((long) i).filmId(1L).build());
+        }
+        reviewService.addLikeToReview(3L, 1L);
+        reviewService.addLikeToReview(3L, 2L);
+        reviewService.addDislikeToReview(1L, 2L);
+
+        List<Review> firstPage = reviewService.getReviewsPage(1L, null, 2);
+        assertThat(firstPage.stream().map(Review::getId).collect(Collectors.toList()),
+                is(equalTo(List.of(3L, 2L))));
+
+        Review last = firstPage.get(1);
+        PageCursor cursor = PageCursor.builder().id(last.getId()).sortValue(last.getUseful()).build();
+        List<Review> secondPage = reviewService.getReviewsPage(1L, cursor, 2);
+        assertThat(secondPage.stream().map(Review::getId).collect(Collectors.toList()),
+                is(equalTo(List.of(1L))));
+    }
+
+    @Test
+    public void checkUsefulCounterRepairedFromReviewLikes() throws Exception {
+        Film film = Film.builder().name("Name").description("Description")
+                .releaseDate(LocalDate.of(1995, 12, 27)).duration(120L)
+                .mpa(Mpa.builder().id(3).build()).build();
+        filmDbStorage.create(film);
+        for (int i = 1; i <= 3; i++) {
+            userDbStorage.create(User.builder().email("user" + i + "@gmail.com").name("UserName" + i)
+                    .birthday(LocalDate.of(1990, 6, 9)).login("UserLogin" + i).build());
+        }
+        reviewDbStorage.create(Review.builder().content("Review").isPositive(true).userId(1L).filmId(1L).build());
+        reviewService.addLikeToReview(1L, 2L);
+        reviewService.addLikeToReview(1L, 3L);
+        reviewService.removeDislikeFromReview(1L, 3L);
+        assertThat(reviewDbStorage.getById(1L).getUseful(), is(equalTo(1L)));
+
+        jdbcTemplate.update("UPDATE review SET USEFUL = 10 WHERE REVIEW_ID = 1");
+        assertThat(reviewUsefulRepairJob.repair(), is(equalTo(1)));
+        assertThat(reviewDbStorage.getById(1L).getUseful(), is(equalTo(1L)));
+        assertThat(reviewUsefulRepairJob.repair(), is(equalTo(0)));
     }
 
     @Test
@@ -7,8 +7,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exception.InvalidCursorException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.PageCursor;
+import ru.yandex.practicum.filmorate.service.ReviewService;
 import ru.yandex.practicum.filmorate.service.SearchService;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
 
@@ -28,6 +31,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 public class SearchFilmsTests {
     private final FilmDbStorage filmDbStorage;
     private final SearchService searchService;
+    private final ReviewService reviewService;
 
     @Test
     public void checkFindFilmByTitle() {
@@ -65,4 +69,13 @@ public class SearchFilmsTests {
 
         assertEquals("Поиск по DIRECTOR на текущий момент не поддерживается", exception.getMessage());
     }
+
+    @Test
+    public void checkCursorWithoutSortValueRejected() {
+        PageCursor cursor = PageCursor.builder().id(1L).build();
+        assertThrows(InvalidCursorException.class,
+                () -> searchService.searchFilmByParam("крад", List.of("title"), cursor, 10));
+        assertThrows(InvalidCursorException.class,
+                () -> reviewService.getReviewsPage(null, cursor, 10));
+    }
 }
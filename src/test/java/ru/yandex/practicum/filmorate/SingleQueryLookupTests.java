@@ -0,0 +1,186 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.GenreNotFoundException;
+import ru.yandex.practicum.filmorate.exception.MpaNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ReviewNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.service.ReviewService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Проверка того, что получение сущностей по id выполняет не больше одного запроса к БД.
+ * Источник данных оборачивается счетчиком подготовленных выражений. События ленты записываются
+ * синхронно, чтобы пакетная запись из фонового потока не попадала в счетчик
+ */
+@SpringBootTest(properties = "filmorate.feed.async=false")
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class SingleQueryLookupTests {
+    private static final AtomicInteger STATEMENTS = new AtomicInteger();
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private ReviewService reviewService;
+    @Autowired
+    private GenreService genreService;
+    @Autowired
+    private MpaService mpaService;
+    @Autowired
+    private FilmCache filmCache;
+
+    private User user;
+    private Film film;
+
+    @BeforeEach
+    public void init() throws ValidationException, FilmNotFoundException, UserNotFoundException {
+        user = userService.create(User.builder().email("qwerty@gmail.com").name("UserName")
+                .birthday(LocalDate.of(1990, 6, 9)).login("UserLogin").build());
+        User friend = userService.create(User.builder().email("friend@gmail.com").name("FriendName")
+                .birthday(LocalDate.of(1992, 6, 9)).login("FriendLogin").build());
+        userService.addToFriends(user.getId(), friend.getId());
+        film = filmService.create(Film.builder().name("name").description("Description")
+                .releaseDate(LocalDate.of(1995, 12, 27)).duration(150L)
+                .mpa(Mpa.builder().id(3).build())
+                .genres(new LinkedHashSet<>(List.of(Genre.builder().id(2).build(), Genre.builder().id(1).build())))
+                .build());
+        filmService.likeFilm(film.getId(), user.getId());
+    }
+
+    @Test
+    public void getUserByIdRunsOneQuery() throws UserNotFoundException {
+        STATEMENTS.set(0);
+        User found = userService.getById(user.getId());
+        assertEquals(1, STATEMENTS.get());
+        assertEquals(Set.of(2L), found.getFriends());
+    }
+
+    @Test
+    public void getFilmByIdRunsOneQueryOnCacheMiss() throws FilmNotFoundException {
+        filmCache.invalidateAll();
+        STATEMENTS.set(0);
+        Film found = filmService.getById(film.getId());
+        assertEquals(1, STATEMENTS.get());
+        assertEquals(Set.of(user.getId()), found.getLikesFromUsers());
+        assertEquals(List.of(1, 2), found.getGenres().stream().map(Genre::getId).collect(Collectors.toList()));
+        assertEquals("PG-13", found.getMpa().getName());
+
+        filmService.getById(film.getId());
+        assertEquals(1, STATEMENTS.get());
+    }
+
+    @Test
+    public void getReviewByIdRunsOneQuery() throws Exception {
+        Review review = reviewService.create(Review.builder().content("content").isPositive(true)
+                .userId(user.getId()).filmId(film.getId()).build());
+        STATEMENTS.set(0);
+        assertEquals(review.getId(), reviewService.getById(review.getId()).getId());
+        assertEquals(1, STATEMENTS.get());
+
+        STATEMENTS.set(0);
+        assertThrows(ReviewNotFoundException.class, () -> reviewService.getById(100L));
+        assertEquals(1, STATEMENTS.get());
+    }
+
+    @Test
+    public void likeAndFriendResponsesReflectChangeWithoutReload() throws FilmNotFoundException,
+            UserNotFoundException {
+        Film liked = filmService.likeFilm(film.getId(), 2L);
+        assertEquals(Set.of(user.getId(), 2L), liked.getLikesFromUsers());
+        Film unliked = filmService.deleteLike(film.getId(), user.getId());
+        assertEquals(Set.of(2L), unliked.getLikesFromUsers());
+        assertEquals(Set.of(2L), filmService.getById(film.getId()).getLikesFromUsers());
+
+        User withoutFriend = userService.deleteFromFriends(user.getId(), 2L);
+        assertEquals(Set.of(), withoutFriend.getFriends());
+        assertEquals(Set.of(), userService.getById(user.getId()).getFriends());
+    }
+
+    @Test
+    public void getGenreAndMpaByIdRunNoQueries() throws GenreNotFoundException, MpaNotFoundException {
+        STATEMENTS.set(0);
+        genreService.getById(1);
+        mpaService.getById(1);
+        assertEquals(0, STATEMENTS.get());
+    }
+
+    /**
+     * Конфигурация, оборачивающая источник данных счетчиком выполняемых выражений
+     */
+    @TestConfiguration
+    static class QueryCountConfig {
+        @Bean
+        static BeanPostProcessor countingDataSourcePostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource && !(bean instanceof CountingDataSource)) {
+                        return new CountingDataSource((DataSource) bean);
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+
+    static class CountingDataSource extends DelegatingDataSource {
+        CountingDataSource(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("prepareStatement") || method.getName().equals("createStatement")
+                                || method.getName().equals("prepareCall")) {
+                            STATEMENTS.incrementAndGet();
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
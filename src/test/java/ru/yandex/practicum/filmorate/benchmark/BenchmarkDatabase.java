@@ -0,0 +1,215 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Вспомогательный класс для бенчмарков: поднимает H2 в памяти со схемой приложения
+ * и заполняет ее синтетическими пользователями, фильмами и лайками
+ */
+public class BenchmarkDatabase {
+    private final EmbeddedDatabase dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public BenchmarkDatabase() {
+        dataSource = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:schema.sql")
+                .addScript("classpath:data.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // уникальный индекс по паре дружбы в приложении создает задача восстановления при старте
+        new FriendshipDbStorage(jdbcTemplate, new NamedParameterJdbcTemplate(jdbcTemplate),
+                new FriendGraph(jdbcTemplate), 200, 5).mergeDuplicatePairs();
+    }
+
+    /**
+     * Конструктор для заполнения уже созданной базы со схемой приложения. Такую базу shutdown не закрывает
+     */
+    public BenchmarkDatabase(JdbcTemplate jdbcTemplate) {
+        this.dataSource = null;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public EmbeddedDatabase getDataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    /**
+     * Метод для создания пользователей с id от 1 до count
+     */
+    public void createUsers(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            rows.add(new Object[]{i, "user" + i + "@mail.ru", "user" + i, "User " + i,
+                    Date.valueOf(LocalDate.of(1990, 1, 1))});
+            if (rows.size() == 10_000 || i == count) {
+                jdbcTemplate.batchUpdate("INSERT INTO users (USER_ID, EMAIL, LOGIN, NAME, BIRTHDAY) "
+                        + "VALUES (?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    /**
+     * Метод для создания фильмов с id от 1 до count
+     */
+    public void createFilms(int count) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            rows.add(new Object[]{i, "Film " + i, "Description " + i, Date.valueOf(LocalDate.of(2000, 1, 1)),
+                    120, i % 5 + 1});
+            if (rows.size() == 10_000 || i == count) {
+                jdbcTemplate.batchUpdate("INSERT INTO film (FILM_ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, "
+                        + "RATING_MPAA_ID) VALUES (?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    /**
+     * Метод для создания likesPerUser лайков у каждого пользователя. Популярность фильмов распределена
+     * по закону Ципфа, поэтому небольшая часть фильмов собирает большую часть лайков.
+     * После вставки пересчитывается счетчик лайков в таблице film
+     */
+    public void createLikes(int users, int films, int likesPerUser, long seed) {
+        ZipfGenerator zipf = new ZipfGenerator(films, 1.0, new Random(seed));
+        List<Object[]> rows = new ArrayList<>();
+        for (int userId = 1; userId <= users; userId++) {
+            Set<Integer> liked = new HashSet<>();
+            while (liked.size() < Math.min(likesPerUser, films)) {
+                liked.add(zipf.next());
+            }
+            for (Integer filmId : liked) {
+                rows.add(new Object[]{userId, filmId});
+            }
+            if (rows.size() >= 10_000 || userId == users) {
+                jdbcTemplate.batchUpdate("INSERT INTO user_film_likes (USER_ID, FILM_ID) VALUES (?, ?)", rows);
+                rows.clear();
+            }
+        }
+        jdbcTemplate.update("UPDATE film f SET LIKES_COUNT = "
+                + "(SELECT COUNT(*) FROM user_film_likes u WHERE u.FILM_ID = f.FILM_ID)");
+    }
+
+    /**
+     * Метод для создания подтвержденных дружб так, чтобы у каждого пользователя было в среднем
+     * averageFriends друзей. Каждая подтвержденная запись дает друга обоим пользователям, поэтому пара
+     * пользователей записывается не больше одного раза
+     */
+    public void createFriendships(int users, int averageFriends, long seed) {
+        Random random = new Random(seed);
+        List<Object[]> rows = new ArrayList<>();
+        Set<Long> pairs = new HashSet<>();
+        for (int userId = 1; userId <= users; userId++) {
+            Set<Integer> friends = new HashSet<>();
+            while (friends.size() < averageFriends / 2) {
+                int friendId = random.nextInt(users) + 1;
+                if (friendId != userId
+                        && pairs.add((long) Math.min(userId, friendId) << 32 | Math.max(userId, friendId))) {
+                    friends.add(friendId);
+                }
+            }
+            for (Integer friendId : friends) {
+                rows.add(new Object[]{userId, friendId});
+            }
+            if (rows.size() >= 10_000 || userId == users) {
+                jdbcTemplate.batchUpdate("INSERT INTO friendship (USER_ID, FRIEND_ID, CONFIRMED) "
+                        + "VALUES (?, ?, true)", rows);
+                rows.clear();
+            }
+        }
+        rebuildFriendEdges();
+    }
+
+    /**
+     * Метод для пересоздания строк friend_edge по таблице friendship после вставки дружб напрямую в friendship
+     */
+    public void rebuildFriendEdges() {
+        jdbcTemplate.update("DELETE FROM friend_edge");
+        jdbcTemplate.update("INSERT INTO friend_edge (USER_ID, FRIEND_ID, FRIENDSHIP_ID) "
+                + "SELECT USER_ID, FRIEND_ID, FRIENDSHIP_ID FROM friendship "
+                + "UNION ALL SELECT FRIEND_ID, USER_ID, FRIENDSHIP_ID FROM friendship WHERE CONFIRMED");
+    }
+
+    /**
+     * Метод для вставки заданных лайков: для каждого пользователя - id лайкнутых им фильмов.
+     * После вставки пересчитывается счетчик лайков в таблице film
+     */
+    public void insertLikes(Map<Integer, int[]> filmsByUser) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<Integer, int[]> entry : filmsByUser.entrySet()) {
+            for (int filmId : entry.getValue()) {
+                rows.add(new Object[]{entry.getKey(), filmId});
+            }
+            if (rows.size() >= 10_000) {
+                jdbcTemplate.batchUpdate("INSERT INTO user_film_likes (USER_ID, FILM_ID) VALUES (?, ?)", rows);
+                rows.clear();
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO user_film_likes (USER_ID, FILM_ID) VALUES (?, ?)", rows);
+        jdbcTemplate.update("UPDATE film f SET LIKES_COUNT = "
+                + "(SELECT COUNT(*) FROM user_film_likes u WHERE u.FILM_ID = f.FILM_ID)");
+    }
+
+    public void shutdown() {
+        if (dataSource != null) {
+            dataSource.shutdown();
+        }
+    }
+
+    /**
+     * Генератор чисел от 1 до n с распределением Ципфа
+     */
+    public static class ZipfGenerator {
+        private final double[] cumulative;
+        private final Random random;
+
+        public ZipfGenerator(int n, double exponent, Random random) {
+            this.random = random;
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1.0 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        public int next() {
+            double value = random.nextDouble();
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low + 1;
+        }
+    }
+}
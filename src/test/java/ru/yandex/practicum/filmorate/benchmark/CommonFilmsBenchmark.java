@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
+import ru.yandex.practicum.filmorate.storage.film.FilmHydrator;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.recommendations.LikeBitmapIndex;
+import ru.yandex.practicum.filmorate.storage.userfilmlikes.UserFilmLikesDbStorage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение получения общих фильмов двух пользователей, каждый из которых лайкнул likes фильмов из 200 000:
+ * прежний запрос с двойным соединением user_film_likes и подзапросом количества лайков для каждой строки
+ * и пересечение отсортированных id фильмов из индекса лайков. В обоих случаях фильмы загружаются одним
+ * запросом с пакетной подгрузкой рейтинга и жанров.
+ * Запуск: метод main из IDE или java -cp target/test-classes:&lt;classpath&gt; ...CommonFilmsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CommonFilmsBenchmark {
+    private static final int USERS = 20_000;
+    private static final int FILMS = 200_000;
+    private static final int LIKES_PER_USER = 10;
+
+    @Param({"100", "1000", "10000"})
+    private int likes;
+
+    private BenchmarkDatabase database;
+    private UserFilmLikesDbStorage likesStorage;
+    private long userId;
+    private long friendId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.createUsers(USERS + 2);
+        database.createFilms(FILMS);
+        database.createLikes(USERS, FILMS, LIKES_PER_USER, 42);
+        userId = USERS + 1;
+        friendId = USERS + 2;
+        Random random = new Random(42);
+        database.insertLikes(Map.of((int) userId, random.ints(1, FILMS + 1).distinct().limit(likes).toArray(),
+                (int) friendId, random.ints(1, FILMS + 1).distinct().limit(likes).toArray()));
+
+        MpaDbStorage mpaStorage = new MpaDbStorage(database.getJdbcTemplate());
+        mpaStorage.reload();
+        GenreDbStorage genreStorage = new GenreDbStorage(database.getJdbcTemplate());
+        genreStorage.reload();
+        NamedParameterJdbcTemplate namedJdbcTemplate = new NamedParameterJdbcTemplate(database.getJdbcTemplate());
+        LikeBitmapIndex index = new LikeBitmapIndex(database.getJdbcTemplate());
+        index.rebuild();
+        likesStorage = new UserFilmLikesDbStorage(database.getJdbcTemplate(), namedJdbcTemplate,
+                new FilmHydrator(namedJdbcTemplate, mpaStorage, genreStorage), new FilmCache(0), index);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    /**
+     * Прежний способ: двойное соединение лайков и подсчет лайков каждого общего фильма подзапросом
+     */
+    @Benchmark
+    public List<Film> sqlSelfJoin() {
+        return likesStorage.getByIds(database.getJdbcTemplate().queryForList("SELECT f.FILM_ID FROM film f "
+                + "INNER JOIN user_film_likes ufl1 ON ufl1.film_id = f.film_id "
+                + "INNER JOIN user_film_likes ufl2 ON ufl2.film_id = f.film_id "
+                + "WHERE ufl1.USER_ID = ? AND ufl2.USER_ID = ? AND NOT f.is_delete "
+                + "ORDER BY (SELECT COUNT(*) FROM user_film_likes ul WHERE ul.film_id = f.film_id) DESC",
+                Long.class, userId, friendId));
+    }
+
+    /**
+     * Пересечение отсортированных id фильмов из индекса лайков
+     */
+    @Benchmark
+    public List<Film> sortedIntersection() {
+        return likesStorage.getCommonFilms(userId, friendId);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CommonFilmsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение получения общих друзей двух пользователей, у каждого из которых friends друзей,
+ * на 100 000 пользователях с 50 друзьями в среднем: прежний запрос с пересечением двух объединений
+ * по таблице friendship и слияние отсортированных массивов друзей из графа дружбы с загрузкой
+ * общих друзей одним запросом.
+ * Запуск: метод main из IDE или java -cp target/test-classes:&lt;classpath&gt; ...CommonFriendsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class CommonFriendsBenchmark {
+    private static final int USERS = 100_000;
+    private static final int AVERAGE_FRIENDS = 50;
+
+    @Param({"50", "500", "5000"})
+    private int friends;
+
+    private BenchmarkDatabase database;
+    private FriendshipDbStorage friendshipDbStorage;
+    private long userId;
+    private long otherUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.createUsers(USERS + 2);
+        database.createFriendships(USERS, AVERAGE_FRIENDS, 42);
+        userId = USERS + 1;
+        otherUserId = USERS + 2;
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>();
+        for (long id : new long[]{userId, otherUserId}) {
+            random.ints(1, USERS / 10 + 1).distinct().limit(friends)
+                    .forEach(friendId -> rows.add(new Object[]{id, friendId}));
+        }
+        database.getJdbcTemplate().batchUpdate("INSERT INTO friendship (USER_ID, FRIEND_ID, CONFIRMED) "
+                + "VALUES (?, ?, false)", rows);
+        database.rebuildFriendEdges();
+
+        FriendGraph friendGraph = new FriendGraph(database.getJdbcTemplate());
+        friendGraph.rebuild();
+        friendshipDbStorage = new FriendshipDbStorage(database.getJdbcTemplate(),
+                new NamedParameterJdbcTemplate(database.getJdbcTemplate()), friendGraph, 200, 5);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    /**
+     * Прежний способ: пересечение двух объединений по таблице friendship в БД
+     */
+    @Benchmark
+    public List<User> sqlIntersect() {
+        return database.getJdbcTemplate().query("SELECT * FROM ((SELECT USER_ID AS user_id FROM friendship "
+                        + "WHERE (FRIEND_ID = ?) "
+                        + "UNION ALL "
+                        + "SELECT FRIEND_ID AS user_id FROM friendship "
+                        + "WHERE USER_ID = ?) INTERSECT (SELECT USER_ID AS user_id "
+                        + "FROM friendship WHERE FRIEND_ID = ? UNION ALL "
+                        + "SELECT FRIEND_ID AS user_id FROM friendship "
+                        + "WHERE USER_ID = ?)) AS common_friends "
+                        + "INNER JOIN users u ON u.user_id = common_friends.user_id AND (NOT u.is_delete)",
+                (rs, rowNum) -> User.builder()
+                        .id(rs.getLong("USER_ID"))
+                        .email(rs.getString("EMAIL"))
+                        .login(rs.getString("LOGIN"))
+                        .name(rs.getString("NAME"))
+                        .birthday(rs.getDate("BIRTHDAY").toLocalDate())
+                        .build(),
+                userId, userId, otherUserId, otherUserId);
+    }
+
+    /**
+     * Слияние отсортированных массивов друзей из графа дружбы
+     */
+    @Benchmark
+    public List<User> graphMerge() {
+        return friendshipDbStorage.getCommonFriends(userId, otherUserId);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CommonFriendsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
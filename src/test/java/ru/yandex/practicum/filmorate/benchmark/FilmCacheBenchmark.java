@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmHydrator;
+import ru.yandex.practicum.filmorate.storage.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.mpa.MpaDbStorage;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный тест FilmDbStorage.getById при распределении обращений к фильмам по закону Ципфа:
+ * без кэша (maximumSize = 0) и с кэшем, вмещающим 5% фильмов.
+ * После каждого прогона в консоль выводится статистика кэша.
+ * Запуск: метод main из IDE или java -cp target/test-classes:&lt;classpath&gt; ...FilmCacheBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class FilmCacheBenchmark {
+    private static final int USERS = 20_000;
+    private static final int FILMS = 20_000;
+    private static final int LIKES_PER_USER = 10;
+
+    @Param({"0", "1000"})
+    private int cacheSize;
+
+    private BenchmarkDatabase database;
+    private FilmCache filmCache;
+    private FilmDbStorage filmDbStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.createUsers(USERS);
+        database.createFilms(FILMS);
+        database.createLikes(USERS, FILMS, LIKES_PER_USER, 42);
+
+        MpaDbStorage mpaStorage = new MpaDbStorage(database.getJdbcTemplate());
+        mpaStorage.reload();
+        GenreDbStorage genreStorage = new GenreDbStorage(database.getJdbcTemplate());
+        genreStorage.reload();
+        NamedParameterJdbcTemplate namedJdbcTemplate = new NamedParameterJdbcTemplate(database.getJdbcTemplate());
+        filmCache = new FilmCache(cacheSize);
+        filmDbStorage = new FilmDbStorage(database.getJdbcTemplate(), namedJdbcTemplate,
+                new FilmHydrator(namedJdbcTemplate, mpaStorage, genreStorage), filmCache, genreStorage);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println("cacheSize = " + cacheSize + ": " + filmCache.getStats()
+                + ", hitRate = " + filmCache.getStats().getHitRate());
+        database.shutdown();
+    }
+
+    /**
+     * Генератор id фильмов, свой для каждого потока
+     */
+    @State(Scope.Thread)
+    public static class Requests {
+        private BenchmarkDatabase.ZipfGenerator zipf;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            zipf = new BenchmarkDatabase.ZipfGenerator(FILMS, 1.0, new Random(Thread.currentThread().getId()));
+        }
+    }
+
+    @Benchmark
+    public Film getById(Requests requests) {
+        return filmDbStorage.getById((long) requests.zipf.next());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FilmCacheBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
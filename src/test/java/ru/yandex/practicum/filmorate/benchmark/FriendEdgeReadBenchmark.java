@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение чтения id друзей пользователя на 100 000 пользователях с 50 друзьями в среднем: прежний запрос
+ * к friendship с объединением обоих направлений и поиск по диапазону первичного ключа friend_edge.
+ * Пользователь выбирается случайно для каждого вызова.
+ * Запуск: метод main из IDE или java -cp target/test-classes:&lt;classpath&gt; ...FriendEdgeReadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FriendEdgeReadBenchmark {
+    private static final int USERS = 100_000;
+    private static final int AVERAGE_FRIENDS = 50;
+
+    private BenchmarkDatabase database;
+    private final Random random = new Random(42);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.createUsers(USERS);
+        database.createFriendships(USERS, AVERAGE_FRIENDS, 42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    /**
+     * Прежний способ: объединение строк, где пользователь добавил друга, и подтвержденных строк, где друг
+     * добавил пользователя
+     */
+    @Benchmark
+    public List<Long> friendshipUnionAll() {
+        long userId = random.nextInt(USERS) + 1;
+        return database.getJdbcTemplate().queryForList("SELECT FRIEND_ID AS ID FROM friendship WHERE USER_ID = ? "
+                + "UNION ALL SELECT USER_ID AS ID FROM friendship WHERE FRIEND_ID = ? AND CONFIRMED = true",
+                Long.class, userId, userId);
+    }
+
+    /**
+     * Поиск по диапазону первичного ключа friend_edge
+     */
+    @Benchmark
+    public List<Long> friendEdgeRangeScan() {
+        long userId = random.nextInt(USERS) + 1;
+        return database.getJdbcTemplate().queryForList("SELECT FRIEND_ID FROM friend_edge WHERE USER_ID = ?",
+                Long.class, userId);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FriendEdgeReadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
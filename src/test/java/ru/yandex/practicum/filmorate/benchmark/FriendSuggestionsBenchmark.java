@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение подбора 10 возможных друзей пользователю с friends друзьями на 100 000 пользователях
+ * с 50 друзьями в среднем: группировка друзей друзей в SQL и обход друзей друзей в графе дружбы
+ * с ограничением на 200 друзей каждого друга и бюджетом времени, отдельно - вместе с загрузкой найденных
+ * пользователей.
+ * Запуск: метод main из IDE или java -cp target/test-classes:&lt;classpath&gt; ...FriendSuggestionsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FriendSuggestionsBenchmark {
+    private static final int USERS = 100_000;
+    private static final int AVERAGE_FRIENDS = 50;
+    private static final int LIMIT = 10;
+    private static final int FAN_OUT = 200;
+
+    @Param({"50", "500", "5000"})
+    private int friends;
+
+    private BenchmarkDatabase database;
+    private FriendGraph friendGraph;
+    private FriendshipDbStorage friendshipDbStorage;
+    private long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.createUsers(USERS + 1);
+        database.createFriendships(USERS, AVERAGE_FRIENDS, 42);
+        userId = USERS + 1;
+        List<Object[]> rows = new ArrayList<>();
+        new Random(42).ints(1, USERS + 1).distinct().limit(friends)
+                .forEach(friendId -> rows.add(new Object[]{userId, friendId}));
+        database.getJdbcTemplate().batchUpdate("INSERT INTO friendship (USER_ID, FRIEND_ID, CONFIRMED) "
+                + "VALUES (?, ?, false)", rows);
+        database.rebuildFriendEdges();
+        friendGraph = new FriendGraph(database.getJdbcTemplate());
+        friendGraph.rebuild();
+        friendshipDbStorage = new FriendshipDbStorage(database.getJdbcTemplate(),
+                new NamedParameterJdbcTemplate(database.getJdbcTemplate()), friendGraph, FAN_OUT, 5);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    /**
+     * Группировка друзей друзей в БД
+     */
+    @Benchmark
+    public List<Long> sqlGroupBy() {
+        String friendsOf = "SELECT FRIEND_ID AS OWNER_ID, USER_ID AS ID FROM friendship WHERE CONFIRMED = true "
+                + "UNION ALL SELECT USER_ID AS OWNER_ID, FRIEND_ID AS ID FROM friendship";
+        return database.getJdbcTemplate().queryForList(
+                "SELECT fof.ID FROM (" + friendsOf + ") f INNER JOIN (" + friendsOf + ") fof "
+                        + "ON fof.OWNER_ID = f.ID WHERE f.OWNER_ID = ? AND fof.ID <> ? "
+                        + "AND fof.ID NOT IN (SELECT ID FROM (" + friendsOf + ") WHERE OWNER_ID = ?) "
+                        + "GROUP BY fof.ID ORDER BY COUNT(*) DESC, fof.ID LIMIT ?",
+                Long.class, userId, userId, userId, LIMIT);
+    }
+
+    /**
+     * Обход друзей друзей в графе дружбы
+     */
+    @Benchmark
+    public long[] graphTraversal() {
+        return friendGraph.getSuggestions(userId, LIMIT, FAN_OUT, TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    /**
+     * Обход друзей друзей в графе дружбы с загрузкой пользователей
+     */
+    @Benchmark
+    public List<User> graphTraversalWithUsers() {
+        return friendshipDbStorage.getFriendSuggestions(userId, LIMIT);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FriendSuggestionsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,206 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сравнение переходов дружбы под конкурентной нагрузкой: прежние проверки SELECT * перед записью без транзакции
+ * и один запрос MERGE в транзакции. 64 потока парами одновременно добавляют друг друга в друзья, а затем
+ * удаляют из друзей; после каждого шага считаются пары с несколькими строками, пары, где пользователи
+ * не стали друзьями или остались ими, и ошибки. Для прежнего способа уникальный индекс пары удаляется,
+ * как было до его появления.
+ * Запуск: метод main из IDE или java -cp target/test-classes:&lt;classpath&gt; ...FriendshipTransitionHarness
+ */
+public class FriendshipTransitionHarness {
+    private static final int THREADS = 64;
+    private static final int ROUNDS = 200;
+
+    public static void main(String[] args) throws Exception {
+        run("legacy", true);
+        run("merge", false);
+    }
+
+    private static void run(String name, boolean legacy) throws Exception {
+        BenchmarkDatabase database = new BenchmarkDatabase();
+        JdbcTemplate jdbcTemplate = database.getJdbcTemplate();
+        database.createUsers(THREADS);
+        Transitions transitions;
+        if (legacy) {
+            jdbcTemplate.execute("DROP INDEX friendship_pair_uindex");
+            transitions = new LegacyTransitions(jdbcTemplate);
+        } else {
+            FriendGraph friendGraph = new FriendGraph(jdbcTemplate);
+            friendGraph.rebuild();
+            FriendshipDbStorage storage = new FriendshipDbStorage(jdbcTemplate,
+                    new NamedParameterJdbcTemplate(jdbcTemplate), friendGraph, 200, 5);
+            TransactionTemplate transaction = new TransactionTemplate(
+                    new DataSourceTransactionManager(database.getDataSource()));
+            transitions = new Transitions() {
+                @Override
+                public void add(long userId, long friendId) {
+                    transaction.executeWithoutResult(status -> storage.addToFriends(userId, friendId));
+                }
+
+                @Override
+                public void delete(long userId, long friendId) {
+                    transaction.executeWithoutResult(status -> storage.deleteFromFriends(userId, friendId));
+                }
+            };
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger errors = new AtomicInteger();
+        int duplicates = 0;
+        int lost = 0;
+        int leftovers = 0;
+        long nanos = 0;
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                nanos += runConcurrently(executor, transitions::add, errors);
+                duplicates += jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT LEAST(USER_ID, FRIEND_ID) "
+                        + "FROM friendship GROUP BY LEAST(USER_ID, FRIEND_ID), GREATEST(USER_ID, FRIEND_ID) "
+                        + "HAVING COUNT(*) > 1)", Integer.class);
+                for (long userId = 1; userId <= THREADS; userId++) {
+                    if (!friendsOf(jdbcTemplate, userId).contains(pairOf(userId))) {
+                        lost++;
+                    }
+                }
+                nanos += runConcurrently(executor, transitions::delete, errors);
+                for (long userId = 1; userId <= THREADS; userId++) {
+                    if (friendsOf(jdbcTemplate, userId).contains(pairOf(userId))) {
+                        leftovers++;
+                    }
+                }
+                jdbcTemplate.update("DELETE FROM friend_edge");
+                jdbcTemplate.update("DELETE FROM friendship");
+            }
+        } finally {
+            executor.shutdownNow();
+            database.shutdown();
+        }
+        System.out.printf("%s: %.0f transitions/s, duplicate pairs %d, missing friends after add %d, "
+                        + "friends left after delete %d, errors %d%n", name,
+                2.0 * ROUNDS * THREADS / (nanos / 1e9), duplicates, lost, leftovers, errors.get());
+    }
+
+    /**
+     * Метод для одновременного выполнения перехода каждым пользователем над его парой, возвращает время шага
+     */
+    private static long runConcurrently(ExecutorService executor, Transition transition, AtomicInteger errors)
+            throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (long userId = 1; userId <= THREADS; userId++) {
+            long id = userId;
+            futures.add(executor.submit(() -> {
+                try {
+                    start.await();
+                    transition.apply(id, pairOf(id));
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return System.nanoTime() - started;
+    }
+
+    private static List<Long> friendsOf(JdbcTemplate jdbcTemplate, long userId) {
+        return jdbcTemplate.queryForList("SELECT FRIEND_ID FROM friendship WHERE USER_ID = ? "
+                + "UNION ALL SELECT USER_ID FROM friendship WHERE FRIEND_ID = ? AND CONFIRMED", Long.class,
+                userId, userId);
+    }
+
+    private static long pairOf(long userId) {
+        return userId % 2 == 1 ? userId + 1 : userId - 1;
+    }
+
+    private interface Transition {
+        void apply(long userId, long friendId);
+    }
+
+    private interface Transitions {
+        void add(long userId, long friendId);
+
+        void delete(long userId, long friendId);
+    }
+
+    /**
+     * Прежний способ: проверки строк пары запросами SELECT * и запись без транзакции
+     */
+    private static class LegacyTransitions implements Transitions {
+        private final JdbcTemplate jdbcTemplate;
+
+        LegacyTransitions(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @Override
+        public void add(long userId, long friendId) {
+            if (!exists(userId, friendId)) {
+                if (exists(friendId, userId)) {
+                    if (!confirmed(friendId, userId)) {
+                        jdbcTemplate.update("UPDATE friendship SET CONFIRMED = true WHERE USER_ID = ? AND FRIEND_ID = ?",
+                                friendId, userId);
+                    }
+                } else {
+                    jdbcTemplate.update("INSERT INTO friendship (USER_ID, FRIEND_ID, CONFIRMED)  VALUES (?, ?, false)",
+                            userId, friendId);
+                }
+            }
+        }
+
+        @Override
+        public void delete(long userId, long friendId) {
+            if (exists(friendId, userId)) {
+                if (confirmed(friendId, userId)) {
+                    jdbcTemplate.update("UPDATE friendship SET CONFIRMED = false WHERE USER_ID = ? AND FRIEND_ID = ?",
+                            friendId, userId);
+                }
+            } else if (exists(userId, friendId)) {
+                if (confirmed(userId, friendId)) {
+                    jdbcTemplate.update("DELETE FROM friendship WHERE USER_ID = ? AND FRIEND_ID = ?", userId, friendId);
+                    jdbcTemplate.update("INSERT INTO friendship (USER_ID, FRIEND_ID, CONFIRMED)  VALUES (?, ?, false)",
+                            friendId, userId);
+                } else {
+                    jdbcTemplate.update("DELETE FROM friendship WHERE USER_ID = ? AND FRIEND_ID = ?", userId, friendId);
+                }
+            }
+        }
+
+        private boolean confirmed(long userId, long friendId) {
+            SqlRowSet row = jdbcTemplate.queryForRowSet("SELECT * FROM friendship WHERE USER_ID = ? AND FRIEND_ID = ?",
+                    userId, friendId);
+            row.next();
+            return row.getBoolean("CONFIRMED");
+        }
+
+        private boolean exists(long userId, long friendId) {
+            SqlRowSet row = jdbcTemplate.queryForRowSet("SELECT * FROM friendship WHERE USER_ID = ? AND FRIEND_ID = ?",
+                    userId, friendId);
+            int rowCount = 0;
+            while (row.next()) {
+                rowCount++;
+            }
+            return rowCount != 0;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.yandex.practicum.filmorate.storage.recommendations.IdBitmap;
+import ru.yandex.practicum.filmorate.storage.recommendations.LikeBitmapIndex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Сравнение отбора фильмов, которые лайкнули не менее min из 50 пользователей с 5 000 лайков у каждого
+ * (фильмы выбираются по закону Ципфа из 200 000): группировка лайков группы в SQL с условием HAVING,
+ * подсчет вхождений каждого фильма в хеш-таблице по всем множествам лайков и отбор по порогу IdBitmap.threshold
+ * со счетчиками по блокам старших 16 бит. Сравниваются только id фильмов, без загрузки самих фильмов.
+ * Запуск: метод main из IDE или java -cp target/test-classes:&lt;classpath&gt; ...GroupCommonFilmsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class GroupCommonFilmsBenchmark {
+    private static final int GROUP = 50;
+    private static final int FILMS = 200_000;
+    private static final int LIKES_PER_USER = 5_000;
+
+    @Param({"2", "25", "50"})
+    private int min;
+
+    private BenchmarkDatabase database;
+    private LikeBitmapIndex index;
+    private List<Long> userIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.createUsers(GROUP);
+        database.createFilms(FILMS);
+        database.createLikes(GROUP, FILMS, LIKES_PER_USER, 42);
+        index = new LikeBitmapIndex(database.getJdbcTemplate());
+        index.rebuild();
+        userIds = LongStream.rangeClosed(1, GROUP).boxed().collect(Collectors.toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    /**
+     * Группировка лайков группы в БД
+     */
+    @Benchmark
+    public List<Long> sqlGroupBy() {
+        return new NamedParameterJdbcTemplate(database.getJdbcTemplate()).queryForList("SELECT FILM_ID "
+                + "FROM user_film_likes WHERE USER_ID IN (:ids) GROUP BY FILM_ID HAVING COUNT(*) >= :min",
+                new MapSqlParameterSource("ids", userIds).addValue("min", min), Long.class);
+    }
+
+    /**
+     * Подсчет вхождений каждого фильма по всем множествам лайков в хеш-таблице
+     */
+    @Benchmark
+    public List<Integer> scanCount() {
+        return index.read(() -> {
+            Map<Integer, Integer> counts = new HashMap<>();
+            for (Long userId : userIds) {
+                index.getFilmsOfUser(userId.intValue()).forEach(film -> counts.merge(film, 1, Integer::sum));
+            }
+            List<Integer> result = new ArrayList<>();
+            counts.forEach((film, count) -> {
+                if (count >= min) {
+                    result.add(film);
+                }
+            });
+            return result;
+        });
+    }
+
+    /**
+     * Отбор по порогу со счетчиками по блокам
+     */
+    @Benchmark
+    public int[] threshold() {
+        return index.read(() -> {
+            List<IdBitmap> likes = new ArrayList<>();
+            for (Long userId : userIds) {
+                likes.add(index.getFilmsOfUser(userId.intValue()));
+            }
+            return IdBitmap.threshold(likes, min).toArray();
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GroupCommonFilmsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
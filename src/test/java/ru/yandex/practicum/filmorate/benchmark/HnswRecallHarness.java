@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.storage.recommendations.AlsModel;
+import ru.yandex.practicum.filmorate.storage.recommendations.AlsRecommendationEngine;
+import ru.yandex.practicum.filmorate.storage.recommendations.FilmEmbeddingIndex;
+import ru.yandex.practicum.filmorate.storage.recommendations.LikeBitmapIndex;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Сравнение подбора рекомендаций ALS полным перебором и по индексу HNSW на синтетической модели из 500 000
+ * фильмов с векторами размерности 32: фильмы разбиты на 1 000 групп со своим центром, норма вектора фильма
+ * растет с его популярностью. Вектор пользователя - среднее центров групп 10 понравившихся фильмов,
+ * 7 из которых из одной группы.
+ * Выводятся время построения, сохранения и загрузки индекса, среднее время подбора полным перебором и по
+ * индексу при нескольких значениях ef-search и полнота первых 10 фильмов относительно полного перебора.
+ * Индекс сохраняется в target/hnsw-recall.hnsw и при повторном запуске загружается из файла.
+ * Запуск: метод main из IDE или java -Xmx4g -cp target/test-classes:&lt;classpath&gt; ...HnswRecallHarness
+ */
+public class HnswRecallHarness {
+    private static final int FILMS = 500_000;
+    private static final int USERS = 1_000;
+    private static final int FACTORS = 32;
+    private static final int GROUPS = 1_000;
+    private static final int USER_LIKES = 10;
+    private static final int LIMIT = 10;
+    private static final int[] EF_SEARCH = {64, 128, 256, 512, 1024};
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(42);
+        float[][] centers = new float[GROUPS][FACTORS];
+        for (float[] center : centers) {
+            for (int i = 0; i < FACTORS; i++) {
+                center[i] = (float) random.nextGaussian();
+            }
+        }
+        int[] filmIds = new int[FILMS];
+        float[] filmFactors = new float[FILMS * FACTORS];
+        for (int film = 0; film < FILMS; film++) {
+            filmIds[film] = film + 1;
+            float[] center = centers[random.nextInt(GROUPS)];
+            double popularity = 0.5 + 1.5 * Math.pow(random.nextDouble(), 4);
+            for (int i = 0; i < FACTORS; i++) {
+                filmFactors[film * FACTORS + i] = (float) ((center[i] + 0.5 * random.nextGaussian()) * popularity);
+            }
+        }
+        int[] userIds = new int[USERS];
+        float[] userFactors = new float[USERS * FACTORS];
+        for (int user = 0; user < USERS; user++) {
+            userIds[user] = user + 1;
+            int favourite = random.nextInt(GROUPS);
+            for (int like = 0; like < USER_LIKES; like++) {
+                int group = like < USER_LIKES * 7 / 10 ? favourite : random.nextInt(GROUPS);
+                for (int i = 0; i < FACTORS; i++) {
+                    userFactors[user * FACTORS + i] += centers[group][i] / USER_LIKES;
+                }
+            }
+        }
+        AlsModel model = new AlsModel(FACTORS, 0.1, 10, Instant.EPOCH, userIds, userFactors, filmIds, filmFactors);
+        LikeBitmapIndex likes = new LikeBitmapIndex(null);
+        Path path = Paths.get("target", "hnsw-recall.hnsw");
+
+        long start = System.nanoTime();
+        FilmEmbeddingIndex built = new FilmEmbeddingIndex(path.toString(), 16, 100, 512);
+        built.modelChanged(model).get();
+        System.out.printf("build or load: %.1f s, file %.1f MB%n", (System.nanoTime() - start) / 1e9,
+                Files.size(path) / 1e6);
+        built.stop();
+
+        AlsRecommendationEngine exact = engine(likes, path, "exact", 64, model);
+        @SuppressWarnings("unchecked")
+        List<Long>[] expected = new List[USERS];
+        start = System.nanoTime();
+        for (int user = 0; user < USERS; user++) {
+            expected[user] = exact.recommend((long) userIds[user], LIMIT);
+        }
+        System.out.printf("exact: %.3f ms/user%n", (System.nanoTime() - start) / 1e6 / USERS);
+
+        for (int efSearch : EF_SEARCH) {
+            start = System.nanoTime();
+            AlsRecommendationEngine hnsw = engine(likes, path, "hnsw", efSearch, model);
+            double loadSeconds = (System.nanoTime() - start) / 1e9;
+            for (int user = 0; user < USERS; user++) {
+                hnsw.recommend((long) userIds[user], LIMIT);
+            }
+            long found = 0;
+            start = System.nanoTime();
+            for (int user = 0; user < USERS; user++) {
+                Set<Long> actual = new HashSet<>(hnsw.recommend((long) userIds[user], LIMIT));
+                actual.retainAll(expected[user]);
+                found += actual.size();
+            }
+            System.out.printf("hnsw ef=%d: %.3f ms/user, recall@10 %.3f, load %.1f s%n", efSearch,
+                    (System.nanoTime() - start) / 1e6 / USERS, (double) found / (USERS * LIMIT), loadSeconds);
+            hnsw.shutdown();
+        }
+    }
+
+    /**
+     * Метод для создания движка рекомендаций ALS с индексом, загруженным из файла
+     */
+    private static AlsRecommendationEngine engine(LikeBitmapIndex likes, Path path, String search, int efSearch,
+                                                  AlsModel model) throws Exception {
+        FilmEmbeddingIndex index = new FilmEmbeddingIndex(path.toString(), 16, 100, efSearch);
+        AlsRecommendationEngine engine = new AlsRecommendationEngine(likes, index, "unused", search, 1);
+        engine.setModel(model);
+        while (!index.isReady()) {
+            Thread.sleep(10);
+        }
+        return engine;
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.storage.recommendations.BitmapRecommendationEngine;
+import ru.yandex.practicum.filmorate.storage.recommendations.IdBitmap;
+import ru.yandex.practicum.filmorate.storage.recommendations.LikeBitmapIndex;
+import ru.yandex.practicum.filmorate.storage.recommendations.MajorityOverlapSimilarity;
+import ru.yandex.practicum.filmorate.storage.recommendations.MinHashLshIndex;
+import ru.yandex.practicum.filmorate.storage.recommendations.SimilarityStrategy;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Оценка полноты приближенного поиска похожих пользователей через MinHash/LSH относительно точного поиска.
+ * На синтетическом наборе, где пользователи разбиты на группы со схожими вкусами, для выборки пользователей
+ * подбираются рекомендации точным движком и движком с LSH при нескольких настройках bands x rows.
+ * Выводятся полнота найденных похожих пользователей, полнота первых 10 рекомендаций, среднее количество
+ * проверенных кандидатов и среднее время подбора.
+ * Запуск: метод main из IDE или java -cp target/test-classes:&lt;classpath&gt; ...LshRecallHarness
+ */
+public class LshRecallHarness {
+    private static final int USERS = 50_000;
+    private static final int FILMS = 5_000;
+    private static final int GROUPS = 250;
+    private static final int GROUP_FILMS = 40;
+    private static final int SAMPLE = 500;
+    private static final int[][] CONFIGS = {{8, 4}, {16, 3}, {16, 2}, {32, 2}, {32, 1}};
+
+    public static void main(String[] args) {
+        LikeBitmapIndex index = new LikeBitmapIndex(null);
+        Random random = new Random(42);
+        BenchmarkDatabase.ZipfGenerator zipf = new BenchmarkDatabase.ZipfGenerator(FILMS, 0.9, random);
+        for (long user = 1; user <= USERS; user++) {
+            int group = random.nextInt(GROUPS);
+            int likes = 8 + random.nextInt(16);
+            for (int i = 0; i < likes; i++) {
+                long film = random.nextDouble() < 0.7
+                        ? (long) group * GROUP_FILMS % FILMS + random.nextInt(GROUP_FILMS) + 1
+                        : zipf.next();
+                index.addLike(film, user);
+            }
+        }
+        List<SimilarityStrategy> strategies = List.of(new MajorityOverlapSimilarity());
+        BitmapRecommendationEngine exact = new BitmapRecommendationEngine(index, strategies, "majority", 1);
+
+        long[] sample = random.longs(SAMPLE, 1, USERS + 1).toArray();
+        BitmapRecommendationEngine.Recommendation[] expected = new BitmapRecommendationEngine.Recommendation[SAMPLE];
+        long start = System.nanoTime();
+        for (int i = 0; i < SAMPLE; i++) {
+            expected[i] = exact.compute(sample[i], 10);
+        }
+        System.out.printf("exact: %.3f ms/user%n", (System.nanoTime() - start) / 1e6 / SAMPLE);
+
+        for (int[] config : CONFIGS) {
+            MinHashLshIndex lsh = new MinHashLshIndex(index, config[0], config[1]);
+            lsh.rebuild();
+            BitmapRecommendationEngine approximate = new BitmapRecommendationEngine(index, strategies, "majority",
+                    List.of(lsh), "lsh", 1);
+            long found = 0;
+            long relevant = 0;
+            long recommendedFound = 0;
+            long recommendedRelevant = 0;
+            long candidates = 0;
+            start = System.nanoTime();
+            BitmapRecommendationEngine.Recommendation[] actual = new BitmapRecommendationEngine.Recommendation[SAMPLE];
+            for (int i = 0; i < SAMPLE; i++) {
+                actual[i] = approximate.compute(sample[i], 10);
+            }
+            double millis = (System.nanoTime() - start) / 1e6 / SAMPLE;
+            for (int i = 0; i < SAMPLE; i++) {
+                int user = (int) sample[i];
+                candidates += index.read(() -> lsh.find(user, index.getFilmsOfUser(user)).cardinality());
+                relevant += expected[i].getNeighbours().cardinality();
+                found += expected[i].getNeighbours().andCardinality(actual[i].getNeighbours());
+                Set<Long> films = new HashSet<>(expected[i].getFilmIds());
+                recommendedRelevant += films.size();
+                films.retainAll(actual[i].getFilmIds());
+                recommendedFound += films.size();
+            }
+            System.out.printf("bands=%d rows=%d: neighbour recall %.3f, recall@10 %.3f, candidates %.0f, "
+                            + "%.3f ms/user%n", config[0], config[1], ratio(found, relevant),
+                    ratio(recommendedFound, recommendedRelevant), (double) candidates / SAMPLE, millis);
+        }
+        IdBitmap users = index.read(index::getUsers);
+        System.out.println("users with likes: " + users.cardinality());
+    }
+
+    private static double ratio(long found, long relevant) {
+        return relevant == 0 ? 1 : (double) found / relevant;
+    }
+}
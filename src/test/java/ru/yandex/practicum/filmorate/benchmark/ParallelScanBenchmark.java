@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.storage.recommendations.BitmapRecommendationEngine;
+import ru.yandex.practicum.filmorate.storage.recommendations.CosineSimilarity;
+import ru.yandex.practicum.filmorate.storage.recommendations.LikeBitmapIndex;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подбор рекомендаций с разным параллелизмом проверки похожести на синтетическом наборе из 1 000 000 лайков:
+ * 100 000 пользователей по 10 лайков, популярность 20 000 фильмов распределена по закону Ципфа.
+ * Рекомендации подбираются для пользователя, лайкнувшего 200 самых популярных фильмов, поэтому кандидатами
+ * в похожие оказываются почти все пользователи. Индекс заполняется напрямую, без БД.
+ * Запуск: метод main из IDE или java -cp target/test-classes:&lt;classpath&gt; ...ParallelScanBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ParallelScanBenchmark {
+    private static final int USERS = 100_000;
+    private static final int FILMS = 20_000;
+    private static final int LIKES_PER_USER = 10;
+    private static final int HEAVY_USER_LIKES = 200;
+
+    @Param({"1", "4", "16"})
+    private int parallelism;
+
+    private BitmapRecommendationEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LikeBitmapIndex index = new LikeBitmapIndex(null);
+        BenchmarkDatabase.ZipfGenerator zipf = new BenchmarkDatabase.ZipfGenerator(FILMS, 0.8, new Random(42));
+        for (long user = 2; user <= USERS; user++) {
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                index.addLike((long) zipf.next(), user);
+            }
+        }
+        for (long film = 1; film <= HEAVY_USER_LIKES; film++) {
+            index.addLike(film, 1L);
+        }
+        engine = new BitmapRecommendationEngine(index, List.of(new CosineSimilarity(0.1)), "cosine", parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public List<Long> recommend() {
+        return engine.recommend(1L, 10);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ParallelScanBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
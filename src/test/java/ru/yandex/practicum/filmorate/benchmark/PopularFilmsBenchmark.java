@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.storage.leaderboard.FilmLeaderboard;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение способов получения первых count популярных фильмов на 1 000 000 лайков:
+ * агрегирующий запрос по user_film_likes, индекс по счетчику лайков и рейтинг в памяти.
+ * Запуск: метод main из IDE или java -cp target/test-classes:&lt;classpath&gt; ...PopularFilmsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PopularFilmsBenchmark {
+    private static final int USERS = 100_000;
+    private static final int FILMS = 20_000;
+    private static final int LIKES_PER_USER = 10;
+
+    @Param({"10", "100"})
+    private int count;
+
+    private BenchmarkDatabase database;
+    private FilmLeaderboard leaderboard;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.createUsers(USERS);
+        database.createFilms(FILMS);
+        database.createLikes(USERS, FILMS, LIKES_PER_USER, 42);
+        leaderboard = new FilmLeaderboard(database.getJdbcTemplate());
+        leaderboard.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    /**
+     * Прежний способ: группировка всех лайков и сортировка при каждом запросе
+     */
+    @Benchmark
+    public List<Long> sqlAggregate() {
+        return database.getJdbcTemplate().queryForList("SELECT f.FILM_ID FROM film f "
+                + "LEFT OUTER JOIN user_film_likes u ON f.FILM_ID = u.FILM_ID WHERE NOT f.is_delete "
+                + "GROUP BY f.FILM_ID ORDER BY COUNT(u.USER_ID) DESC LIMIT ?", Long.class, count);
+    }
+
+    /**
+     * Сортировка по поддерживаемому счетчику лайков с индексом
+     */
+    @Benchmark
+    public List<Long> sqlLikesCountIndex() {
+        return database.getJdbcTemplate().queryForList("SELECT f.FILM_ID FROM film f WHERE NOT f.is_delete "
+                + "ORDER BY f.LIKES_COUNT DESC, f.NAME LIMIT ?", Long.class, count);
+    }
+
+    /**
+     * Рейтинг популярности в памяти
+     */
+    @Benchmark
+    public List<Long> leaderboard() {
+        return leaderboard.getTop(count);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PopularFilmsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
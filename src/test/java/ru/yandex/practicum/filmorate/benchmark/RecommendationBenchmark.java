@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.storage.recommendations.BitmapRecommendationEngine;
+import ru.yandex.practicum.filmorate.storage.recommendations.LikeBitmapIndex;
+import ru.yandex.practicum.filmorate.storage.recommendations.MajorityOverlapSimilarity;
+import ru.yandex.practicum.filmorate.storage.recommendations.UserRecommendationDbStorage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение подбора рекомендаций для одного пользователя: прежний способ с запросом лайков каждого
+ * пользователя к БД и подбор по индексу лайков в памяти. Каждый пользователь лайкает 20 фильмов из 10 000.
+ * Запуск: метод main из IDE или java -cp target/test-classes:&lt;classpath&gt; ...RecommendationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class RecommendationBenchmark {
+    private static final int FILMS = 10_000;
+    private static final int LIKES_PER_USER = 20;
+
+    @Param({"5000", "20000"})
+    private int users;
+
+    private BenchmarkDatabase database;
+    private UserRecommendationDbStorage recommendationStorage;
+    private BitmapRecommendationEngine engine;
+    private long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.createUsers(users);
+        database.createFilms(FILMS);
+        database.createLikes(users, FILMS, LIKES_PER_USER, 42);
+        recommendationStorage = new UserRecommendationDbStorage(database.getJdbcTemplate());
+        LikeBitmapIndex index = new LikeBitmapIndex(database.getJdbcTemplate());
+        index.rebuild();
+        engine = new BitmapRecommendationEngine(index, List.of(new MajorityOverlapSimilarity()), "majority", 1);
+        userId = users / 2;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    /**
+     * Прежний способ: лайки каждого другого пользователя загружаются отдельным запросом
+     */
+    @Benchmark
+    public Set<Long> perUserQueries() {
+        List<Long> userFilms = recommendationStorage.getUserFilms(userId);
+        List<Long> otherUsers = recommendationStorage.getListOfOtherUser(userId);
+        Set<Long> recommended = new HashSet<>();
+        for (int i = 0; i < otherUsers.size(); i++) {
+            List<Long> common = new ArrayList<>(userFilms);
+            List<Long> otherFilms = recommendationStorage.getFilmsOfOtherUser(otherUsers, i);
+            common.retainAll(otherFilms);
+            if (common.size() > userFilms.size() / 2) {
+                otherFilms.removeAll(userFilms);
+                recommended.addAll(otherFilms);
+            }
+        }
+        return recommended;
+    }
+
+    /**
+     * Подбор по индексу лайков в памяти
+     */
+    @Benchmark
+    public List<Long> bitmapIndex() {
+        return engine.recommend(userId, 10);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RecommendationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
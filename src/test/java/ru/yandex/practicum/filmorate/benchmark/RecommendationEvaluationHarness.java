@@ -0,0 +1,319 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.recommendations.AlsTrainingJob;
+import ru.yandex.practicum.filmorate.storage.recommendations.FilmEmbeddingIndex;
+import ru.yandex.practicum.filmorate.storage.recommendations.RecommendationCache;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Офлайн-оценка способов подбора рекомендаций: качество и стоимость вызова UserService.getRecommendations.
+ * Лайки берутся из CSV-файла со строками user_id,film_id (параметр --likes=путь) или генерируются: пользователи
+ * разбиты на группы со схожими вкусами, 70% лайков пользователя - фильмы его группы, остальные - популярные
+ * фильмы по закону Ципфа. У каждого пользователя с 5 и более лайками доля --holdout=0.2 лайков откладывается,
+ * остальные загружаются в H2. Для каждого способа поднимается приложение с соответствующими настройками
+ * и кэшем рекомендаций нулевого размера, чтобы каждый вызов подбирал рекомендации заново, и для выборки
+ * из --sample=200 пользователей считаются precision@10 и recall@10 по отложенным лайкам, медиана и 99-й
+ * перцентиль времени вызова, выделенная вызывающим потоком память и количество выполненных SQL-запросов
+ * на вызов. Параллелизм подбора равен 1, поэтому вся работа выполняется в вызывающем потоке.
+ * Результаты пишутся в JSON-файл --output=target/recommendation-evaluation.json для сравнения запусков.
+ * Запуск: метод main из IDE или java -cp target/test-classes:&lt;classpath&gt; ...RecommendationEvaluationHarness
+ */
+public class RecommendationEvaluationHarness {
+    private static final int USERS = 2_000;
+    private static final int FILMS = 2_000;
+    private static final int GROUPS = 50;
+    private static final int GROUP_FILMS = 40;
+    private static final int MIN_LIKES = 5;
+    private static final int LIMIT = RecommendationCache.LIMIT;
+    private static final String DATABASE_URL = "jdbc:h2:mem:recommendation-evaluation;DB_CLOSE_DELAY=-1";
+
+    /**
+     * Оцениваемые способы: имя и настройки приложения, которыми он включается
+     */
+    private static final Map<String, Map<String, Object>> STRATEGIES = new LinkedHashMap<>();
+
+    static {
+        STRATEGIES.put("db", Map.of("filmorate.recommendations.bitmap-enabled", false));
+        for (String similarity : List.of("majority", "jaccard", "cosine")) {
+            STRATEGIES.put("neighbours-" + similarity, Map.of("filmorate.recommendations.similarity", similarity));
+        }
+        STRATEGIES.put("neighbours-majority-lsh", Map.of("filmorate.recommendations.candidates", "lsh"));
+        STRATEGIES.put("als-exact", Map.of("filmorate.recommendations.algorithm", "als",
+                "filmorate.recommendations.als.search", "exact"));
+        STRATEGIES.put("als-hnsw", Map.of("filmorate.recommendations.algorithm", "als",
+                "filmorate.recommendations.als.search", "hnsw"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] parts = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(parts[0], parts.length > 1 ? parts[1] : "true");
+        }
+        double holdout = Double.parseDouble(options.getOrDefault("holdout", "0.2"));
+        int sampleSize = Integer.parseInt(options.getOrDefault("sample", "200"));
+        Path output = Paths.get(options.getOrDefault("output", "target/recommendation-evaluation.json"));
+        Random random = new Random(42);
+
+        Map<Integer, Set<Integer>> likes = options.containsKey("likes")
+                ? readLikes(Paths.get(options.get("likes")))
+                : generateLikes(random);
+        Map<Integer, int[]> training = new TreeMap<>();
+        Map<Integer, Set<Integer>> heldOut = new TreeMap<>();
+        for (Map.Entry<Integer, Set<Integer>> entry : likes.entrySet()) {
+            List<Integer> films = new ArrayList<>(entry.getValue());
+            Collections.shuffle(films, random);
+            int held = films.size() >= MIN_LIKES ? (int) Math.round(films.size() * holdout) : 0;
+            if (held > 0) {
+                heldOut.put(entry.getKey(), new TreeSet<>(films.subList(0, held)));
+            }
+            training.put(entry.getKey(), films.subList(held, films.size()).stream().mapToInt(Integer::intValue)
+                    .toArray());
+        }
+        List<Integer> sample = new ArrayList<>(heldOut.keySet());
+        Collections.shuffle(sample, random);
+        sample = sample.subList(0, Math.min(sampleSize, sample.size()));
+        int users = likes.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        int films = likes.values().stream().flatMap(Set::stream).mapToInt(Integer::intValue).max().orElse(0);
+        createDatabase(users, films, training);
+
+        Path modelDirectory = Files.createTempDirectory("recommendation-evaluation");
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", Instant.now().toString());
+        report.put("dataset", Map.of("source", options.getOrDefault("likes", "synthetic"),
+                "users", likes.size(),
+                "films", films,
+                "likes", likes.values().stream().mapToInt(Set::size).sum(),
+                "heldOutUsers", heldOut.size(),
+                "holdout", holdout,
+                "sample", sample.size()));
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> strategy : STRATEGIES.entrySet()) {
+            Map<String, Object> result = evaluate(strategy.getValue(), modelDirectory, sample, heldOut);
+            System.out.printf("%-24s precision@10 %.4f, recall@10 %.4f, p50 %.3f ms, p99 %.3f ms, "
+                            + "%.0f bytes/call, %.1f SQL/call%n", strategy.getKey(), result.get("precisionAt10"),
+                    result.get("recallAt10"), result.get("p50Millis"), result.get("p99Millis"),
+                    result.get("allocatedBytesPerCall"), result.get("sqlStatementsPerCall"));
+            results.put(strategy.getKey(), result);
+        }
+        report.put("strategies", results);
+
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), report);
+        System.out.println("results: " + output.toAbsolutePath());
+        try (var paths = Files.list(modelDirectory)) {
+            for (Path path : paths.collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(modelDirectory);
+    }
+
+    /**
+     * Метод для оценки одного способа: поднимает приложение с его настройками поверх подготовленной базы,
+     * прогревает его одним проходом по выборке и измеряет второй проход
+     */
+    private static Map<String, Object> evaluate(Map<String, Object> properties, Path modelDirectory,
+                                                List<Integer> sample, Map<Integer, Set<Integer>> heldOut)
+            throws Exception {
+        AtomicLong statements = new AtomicLong();
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("spring.datasource.url", DATABASE_URL);
+        settings.put("spring.main.web-application-type", "none");
+        settings.put("spring.main.banner-mode", "off");
+        settings.put("logging.level.root", "warn");
+        settings.put("logging.level.ru.yandex.practicum", "warn");
+        settings.put("filmorate.recommendations.cache.maximum-size", 0);
+        settings.put("filmorate.recommendations.parallelism", 1);
+        settings.put("filmorate.recommendations.als.train-interval-minutes", 0);
+        settings.put("filmorate.recommendations.als.model-path", modelDirectory.resolve("als-model.bin").toString());
+        settings.put("filmorate.recommendations.hnsw.path", modelDirectory.resolve("als-model.hnsw").toString());
+        settings.put("filmorate.similar-films.rebuild-interval-minutes", 0);
+        settings.putAll(properties);
+
+        String[] arguments = settings.entrySet().stream()
+                .map(setting -> "--" + setting.getKey() + "=" + setting.getValue())
+                .toArray(String[]::new);
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .initializers(initialized -> initialized.getBeanFactory().addBeanPostProcessor(
+                        new CountingDataSourcePostProcessor(statements)))
+                .run(arguments)) {
+            if ("als".equals(properties.get("filmorate.recommendations.algorithm"))) {
+                context.getBean(AlsTrainingJob.class).train();
+                FilmEmbeddingIndex index = context.getBean(FilmEmbeddingIndex.class);
+                while ("hnsw".equals(properties.get("filmorate.recommendations.als.search")) && !index.isReady()) {
+                    Thread.sleep(10);
+                }
+            }
+            UserService userService = context.getBean(UserService.class);
+            for (int user : sample) {
+                userService.getRecommendations((long) user);
+            }
+
+            com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long thread = Thread.currentThread().getId();
+            long[] latencies = new long[sample.size()];
+            long allocated = 0;
+            long executed = 0;
+            double precision = 0;
+            double recall = 0;
+            for (int i = 0; i < sample.size(); i++) {
+                int user = sample.get(i);
+                long statementsBefore = statements.get();
+                long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+                long start = System.nanoTime();
+                List<Film> recommended = userService.getRecommendations((long) user).getFilms();
+                latencies[i] = System.nanoTime() - start;
+                allocated += threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+                executed += statements.get() - statementsBefore;
+
+                Set<Integer> relevant = heldOut.get(user);
+                long hits = recommended.stream().limit(LIMIT)
+                        .filter(film -> relevant.contains(film.getId().intValue()))
+                        .count();
+                precision += (double) hits / LIMIT;
+                recall += (double) hits / relevant.size();
+            }
+            Arrays.sort(latencies);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("properties", properties);
+            result.put("precisionAt10", precision / sample.size());
+            result.put("recallAt10", recall / sample.size());
+            result.put("p50Millis", percentile(latencies, 0.5) / 1e6);
+            result.put("p99Millis", percentile(latencies, 0.99) / 1e6);
+            result.put("allocatedBytesPerCall", (double) allocated / sample.size());
+            result.put("sqlStatementsPerCall", (double) executed / sample.size());
+            return result;
+        }
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    /**
+     * Метод для создания базы со схемой приложения и обучающими лайками. База живет до конца работы JVM,
+     * и каждое поднимаемое приложение подключается к ней
+     */
+    private static void createDatabase(int users, int films, Map<Integer, int[]> training) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(DATABASE_URL, "sa", "password");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .execute(dataSource);
+        BenchmarkDatabase database = new BenchmarkDatabase(new JdbcTemplate(dataSource));
+        database.createUsers(users);
+        database.createFilms(films);
+        database.insertLikes(training);
+    }
+
+    /**
+     * Метод для генерации лайков пользователей, разбитых на группы со схожими вкусами
+     */
+    private static Map<Integer, Set<Integer>> generateLikes(Random random) {
+        BenchmarkDatabase.ZipfGenerator zipf = new BenchmarkDatabase.ZipfGenerator(FILMS, 0.9, random);
+        Map<Integer, Set<Integer>> likes = new TreeMap<>();
+        for (int user = 1; user <= USERS; user++) {
+            int group = random.nextInt(GROUPS);
+            int count = 10 + random.nextInt(20);
+            Set<Integer> films = new TreeSet<>();
+            while (films.size() < count) {
+                films.add(random.nextDouble() < 0.7
+                        ? group * GROUP_FILMS % FILMS + random.nextInt(GROUP_FILMS) + 1
+                        : zipf.next());
+            }
+            likes.put(user, films);
+        }
+        return likes;
+    }
+
+    /**
+     * Метод для чтения лайков из CSV-файла со строками user_id,film_id. Строки, которые не начинаются
+     * с числа, например заголовок, пропускаются
+     */
+    private static Map<Integer, Set<Integer>> readLikes(Path path) throws IOException {
+        Map<Integer, Set<Integer>> likes = new TreeMap<>();
+        for (String line : Files.readAllLines(path)) {
+            String[] parts = line.split("[,;\\t]");
+            if (parts.length < 2 || !parts[0].trim().matches("\\d+")) {
+                continue;
+            }
+            likes.computeIfAbsent(Integer.parseInt(parts[0].trim()), user -> new TreeSet<>())
+                    .add(Integer.parseInt(parts[1].trim()));
+        }
+        return likes;
+    }
+
+    /**
+     * Обертка источника данных приложения, считающая выполненные SQL-запросы: каждый вызов execute*
+     * у выражения, полученного из соединения, считается одним обращением к базе
+     */
+    private static final class CountingDataSourcePostProcessor implements BeanPostProcessor {
+        private final AtomicLong statements;
+
+        private CountingDataSourcePostProcessor(AtomicLong statements) {
+            this.statements = statements;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            return bean instanceof DataSource ? proxy(bean, DataSource.class) : bean;
+        }
+
+        private Object proxy(Object target, Class<?> type) {
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (method.getName().startsWith("execute")) {
+                    statements.incrementAndGet();
+                }
+                if (result instanceof Connection && method.getReturnType() == Connection.class) {
+                    return proxy(result, Connection.class);
+                }
+                if (result != null && Statement.class.isAssignableFrom(method.getReturnType())) {
+                    return proxy(result, method.getReturnType());
+                }
+                return result;
+            });
+        }
+    }
+}
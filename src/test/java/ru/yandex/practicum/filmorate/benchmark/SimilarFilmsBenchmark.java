@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.yandex.practicum.filmorate.storage.recommendations.CosineSimilarity;
+import ru.yandex.practicum.filmorate.storage.recommendations.LikeBitmapIndex;
+import ru.yandex.practicum.filmorate.storage.recommendations.SimilarFilmsIndex;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полное построение модели похожих фильмов и получение соседей фильма на синтетическом наборе
+ * из 1 000 000 лайков: 100 000 пользователей по 10 лайков, популярность 20 000 фильмов распределена
+ * по закону Ципфа. Индекс лайков заполняется напрямую, без БД.
+ * Запуск: метод main из IDE или java -cp target/test-classes:&lt;classpath&gt; ...SimilarFilmsBenchmark
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SimilarFilmsBenchmark {
+    private static final int USERS = 100_000;
+    private static final int FILMS = 20_000;
+    private static final int LIKES_PER_USER = 10;
+
+    private SimilarFilmsIndex similarFilmsIndex;
+    private BenchmarkDatabase.ZipfGenerator zipf;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LikeBitmapIndex index = new LikeBitmapIndex(null);
+        zipf = new BenchmarkDatabase.ZipfGenerator(FILMS, 0.8, new Random(42));
+        for (long user = 1; user <= USERS; user++) {
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                index.addLike((long) zipf.next(), user);
+            }
+        }
+        similarFilmsIndex = new SimilarFilmsIndex(index, List.of(new CosineSimilarity(0)), "cosine", 20, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        similarFilmsIndex.stop();
+    }
+
+    /**
+     * Полное построение модели
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void build() {
+        similarFilmsIndex.rebuild();
+    }
+
+    /**
+     * Получение 10 соседей фильма с популярностью по закону Ципфа
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<Long> getSimilar() {
+        return similarFilmsIndex.getSimilar((long) zipf.next(), 10);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SimilarFilmsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.friendship.FriendshipDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение загрузки страницы пользователей с id друзей на 100 000 пользователей, у каждого из которых
+ * в среднем 50 друзей: прежний способ с запросом друзей на каждую строку и пакетная подгрузка.
+ * Запуск: метод main из IDE или java -cp target/test-classes:&lt;classpath&gt; ...UserListBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class UserListBenchmark {
+    private static final int USERS = 100_000;
+    private static final int AVERAGE_FRIENDS = 50;
+
+    @Param({"100", "1000"})
+    private int pageSize;
+
+    private BenchmarkDatabase database;
+    private UserDbStorage userDbStorage;
+    private FriendshipDbStorage friendshipDbStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.createUsers(USERS);
+        database.createFriendships(USERS, AVERAGE_FRIENDS, 42);
+        userDbStorage = new UserDbStorage(database.getJdbcTemplate(),
+                new NamedParameterJdbcTemplate(database.getJdbcTemplate()));
+        FriendGraph friendGraph = new FriendGraph(database.getJdbcTemplate());
+        friendGraph.rebuild();
+        friendshipDbStorage = new FriendshipDbStorage(database.getJdbcTemplate(),
+                new NamedParameterJdbcTemplate(database.getJdbcTemplate()), friendGraph, 200, 5);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    /**
+     * Прежний способ: запрос списка друзей отдельно для каждого пользователя страницы
+     */
+    @Benchmark
+    public List<User> perRowFriends() {
+        List<User> users = database.getJdbcTemplate().query("SELECT USER_ID, EMAIL, LOGIN, NAME, BIRTHDAY "
+                        + "FROM users WHERE NOT is_delete ORDER BY USER_ID LIMIT ?",
+                (rs, rowNum) -> User.builder().id(rs.getLong("USER_ID")).build(), pageSize);
+        for (User user : users) {
+            Set<Long> friends = new HashSet<>();
+            for (User friend : friendshipDbStorage.getFriendsForUser(user.getId())) {
+                friends.add(friend.getId());
+            }
+            user.setFriends(friends);
+        }
+        return users;
+    }
+
+    /**
+     * Пакетная подгрузка id друзей для всей страницы
+     */
+    @Benchmark
+    public List<User> batchedFriends() {
+        return userDbStorage.getPage(null, pageSize);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserListBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Проверка кодов ответа запроса общих фильмов группы пользователей
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class CommonFilmsControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserService userService;
+
+    @Test
+    public void groupCommonFilmsOfExistingUsersReturnOk() throws Exception {
+        createUsers(2);
+
+        mockMvc.perform(get("/films/common").param("userIds", "1", "2").param("min", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isArray());
+    }
+
+    @Test
+    public void groupCommonFilmsWithMinOutOfRangeReturnBadRequest() throws Exception {
+        createUsers(2);
+
+        mockMvc.perform(get("/films/common").param("userIds", "1", "2").param("min", "3"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/common").param("userIds", "1", "2").param("min", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void groupCommonFilmsWithoutUsersReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/films/common").param("userIds", ""))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void createUsers(int count) throws ValidationException {
+        for (int i = 1; i <= count; i++) {
+            userService.create(User.builder().email("user" + i + "@gmail.com").name("User" + i)
+                    .birthday(LocalDate.of(1990, 6, 9)).login("User" + i).build());
+        }
+    }
+}